@@ -0,0 +1,399 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.testcontainers.containers.GenericContainer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Base class for initializers which run a container via TestContainers and set Spring properties accordingly. The
+ * container is obtained from {@link ContainerRegistry}, therefore all Spring contexts having the same
+ * {@link #getContainerKey() container key} share one container, which is stopped at JVM shutdown (not when a context
+ * gets closed).
+ * <p>
+ * If {@value ForkSharedContainers#ENABLED_PROPERTY} is {@code true}, containers are also shared between JVMs, such as
+ * parallel Surefire/Failsafe forks (see {@link ForkSharedContainers}), and subclasses isolate forks from each other
+ * according to {@link #getForkSlot()}.
+ * <p>
+ * If {@value #LAZY_START_PROPERTY} is {@code true}, the container is started on first access rather than at context
+ * startup (see {@link LazyContainer}), so contexts which never touch the store, such as web layer tests sharing an
+ * initializer list, don't wait for it. Only runners which register lazy beans in place of those Spring Boot would
+ * auto-configure (JDBC, Redis and MongoDB ones) support this: otherwise configuration properties binding, which
+ * happens at context startup whether or not the beans are used, would start the container anyway. Runners which
+ * can't start lazily in their current configuration start eagerly.
+ *
+ * @param <C> container type
+ */
+@Slf4j
+public abstract class AbstractContainerRunner<C extends GenericContainer<?>>
+        implements ApplicationContextInitializer<GenericApplicationContext> {
+
+    public static final String LAZY_START_PROPERTY = "guru.nicks.test.lazy-start.enabled";
+
+    /**
+     * Appended to {@link #getPropertyPrefix()}: whether readiness is checked with {@link ReadinessProbe} (default
+     * {@code true}) rather than the default wait strategy of the container.
+     */
+    static final String READINESS_PROBE_ENABLED_SUFFIX = ".readiness-probe.enabled";
+
+    /**
+     * Appended to {@link #getPropertyPrefix()}: maximum interval between readiness probe attempts, default
+     * {@value ReadinessProbe#DEFAULT_MAX_INTERVAL_MILLIS}.
+     */
+    static final String READINESS_PROBE_MAX_INTERVAL_SUFFIX = ".readiness-probe.max-interval-millis";
+
+    /**
+     * IDs of containers {@link #provision(GenericContainer)} has been called for.
+     */
+    private static final Set<String> PROVISIONED_CONTAINERS = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Lock for each container ID, so containers are provisioned concurrently, each of them once.
+     */
+    private static final Map<String, ReentrantLock> PROVISIONING_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * {@code null} means containers are not shared between forks.
+     */
+    private ForkSharedContainers forkSharedContainers;
+
+    private boolean lazyStart;
+
+    /**
+     * {@code null} means the default wait strategy is used.
+     */
+    private Duration readinessProbeMaxInterval;
+
+    @Override
+    public void initialize(GenericApplicationContext applicationContext) {
+        applyEnvironment(applicationContext.getEnvironment());
+
+        if (isLazyStart()) {
+            registerLazyContainer(applicationContext);
+            return;
+        }
+
+        C container = acquireContainer(TestTimings.contextKey(applicationContext));
+
+        try {
+            applyTestProperties(applicationContext, bindContainer(applicationContext, container));
+        } catch (RuntimeException e) {
+            // the context won't be closed, so the lease bean (even if registered) won't release the container
+            ContainerRegistry.release(getContainerKey());
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the key under which the container is shared via {@link ContainerRegistry}: image name plus everything
+     * that makes containers built from the same image differ.
+     *
+     * @return container key
+     */
+    public abstract String getContainerKey();
+
+    /**
+     * Returns the prefix of runner settings, such as {@code guru.nicks.test.redis}. Settings common for all runners,
+     * such as those of the readiness probe, are read by this class under this prefix.
+     *
+     * @return property prefix
+     */
+    protected abstract String getPropertyPrefix();
+
+    /**
+     * Reads runner settings from the environment. Called before the container is acquired, therefore settings which
+     * affect the container itself must be reflected in {@link #getContainerKey()}. Does nothing by default.
+     *
+     * @param environment application context environment (or system properties and environment variables if
+     *                    containers are prewarmed before any context exists)
+     */
+    protected void configure(Environment environment) {
+    }
+
+    /**
+     * Creates a container. Must not start it - that's done by {@link ContainerRegistry}.
+     *
+     * @return container
+     */
+    protected abstract C createContainer();
+
+    /**
+     * Returns the type the container is registered in Spring context as.
+     *
+     * @return bean type
+     */
+    protected abstract Class<? super C> getContainerBeanClass();
+
+    /**
+     * Prepares the started container, such as granting privileges or creating extensions. Called once per container
+     * (per JVM if the container is shared between forks), not per context, so property getters have no side effects.
+     * Does nothing by default.
+     *
+     * @param container started container
+     */
+    protected void provision(C container) {
+    }
+
+    /**
+     * Returns Spring properties pointing to the started container.
+     *
+     * @param container started container
+     * @return properties in the 'name=value' form
+     */
+    protected abstract List<String> getTestProperties(C container);
+
+    /**
+     * Returns the slot of this JVM among forks sharing the container. Subclasses use it to give each fork its own
+     * database, DB index and the like.
+     *
+     * @return slot (starting with 1), or 0 if the container is not shared between forks
+     */
+    protected int getForkSlot() {
+        return ForkSharedContainers.getSlot(getContainerKey());
+    }
+
+    /**
+     * Returns the names of properties {@link #getTestProperties(GenericContainer)} returns (except for
+     * {@link #getStaticTestProperties() static ones}), so they can be resolved before the container is started. Empty
+     * by default, which means the container is never started lazily.
+     *
+     * @return property names, empty if the container can't be started lazily in the current configuration
+     */
+    protected List<String> getLazyPropertyNames() {
+        return List.of();
+    }
+
+    /**
+     * Returns those of {@link #getTestProperties(GenericContainer) properties} which don't depend on the container. In
+     * lazy mode, they're applied at context startup, so reading them doesn't start the container. Empty by default.
+     *
+     * @return properties in the 'name=value' form
+     */
+    protected List<String> getStaticTestProperties() {
+        return List.of();
+    }
+
+    /**
+     * Registers beans which start the container on first use, in place of beans Spring Boot would auto-configure from
+     * {@link #getTestProperties(GenericContainer) properties}. Does nothing by default.
+     *
+     * @param applicationContext application context
+     * @param lazyContainer      container to start on first use
+     * @return {@code true} if beans have been registered (the properties are not listed to Spring Boot configuration
+     *         binding until the container starts then)
+     */
+    boolean registerLazyBeans(GenericApplicationContext applicationContext, LazyContainer<C> lazyContainer) {
+        return false;
+    }
+
+    /**
+     * Called in lazy mode, when the container has just started, instead of
+     * {@link #registerBeans(GenericApplicationContext, GenericContainer)} (beans can't be registered at that point).
+     * Returns {@link #getTestProperties(GenericContainer)} by default.
+     *
+     * @param container started container
+     * @return Spring properties pointing to the container
+     */
+    protected List<String> bindLazyContainer(C container) {
+        return getTestProperties(container);
+    }
+
+    /**
+     * Releases whatever {@link #bindLazyContainer(GenericContainer)} has acquired when the context gets closed. Does
+     * nothing by default.
+     */
+    protected void unbindLazyContainer() {
+    }
+
+    /**
+     * Reads settings common for all runners, then calls {@link #configure(Environment)}.
+     *
+     * @param environment application context environment
+     */
+    void applyEnvironment(Environment environment) {
+        forkSharedContainers = environment.getProperty(ForkSharedContainers.ENABLED_PROPERTY, Boolean.class, false)
+                ? new ForkSharedContainers(Path.of(environment.getProperty(ForkSharedContainers.DIRECTORY_PROPERTY,
+                        ForkSharedContainers.DEFAULT_DIRECTORY)))
+                : null;
+        lazyStart = environment.getProperty(LAZY_START_PROPERTY, Boolean.class, false);
+        readinessProbeMaxInterval = environment.getProperty(getPropertyPrefix() + READINESS_PROBE_ENABLED_SUFFIX,
+                Boolean.class, true)
+                ? Duration.ofMillis(environment.getProperty(getPropertyPrefix() + READINESS_PROBE_MAX_INTERVAL_SUFFIX,
+                        Long.class, ReadinessProbe.DEFAULT_MAX_INTERVAL_MILLIS))
+                : null;
+        configure(environment);
+    }
+
+    /**
+     * Returns the maximum interval between {@link ReadinessProbe} attempts.
+     *
+     * @return interval, {@code null} if the readiness probe is disabled and the default wait strategy is to be used
+     */
+    protected Duration getReadinessProbeMaxInterval() {
+        return readinessProbeMaxInterval;
+    }
+
+    /**
+     * Tells if the container is shared between forks (see {@link #getForkSlot()}), which is known before the container
+     * is acquired, unlike the slot.
+     *
+     * @return {@code true} if {@value ForkSharedContainers#ENABLED_PROPERTY} is {@code true}
+     */
+    boolean isSharedBetweenForks() {
+        return forkSharedContainers != null;
+    }
+
+    /**
+     * Tells if the container is to be started on first access.
+     *
+     * @return {@code true} if lazy start is on and the runner supports it in the current configuration
+     */
+    boolean isLazyStart() {
+        return lazyStart && !getLazyPropertyNames().isEmpty();
+    }
+
+    /**
+     * Registers the container bean and beans of {@link #registerLazyBeans}, and adds a property source, all of which
+     * start the container on first access.
+     *
+     * @param applicationContext application context
+     */
+    void registerLazyContainer(GenericApplicationContext applicationContext) {
+        var lazyContainer = new LazyContainer<>(this, TestTimings.contextKey(applicationContext));
+        applicationContext.registerBean(getClass().getName() + ".lazyContainer", LazyContainer.class,
+                () -> lazyContainer);
+
+        // empty destroy method name prevents Spring from calling AutoCloseable.close() - the container is shared
+        applicationContext.registerBean(getContainerBeanClass(),
+                lazyContainer::get,
+                beanDefinition -> {
+                    beanDefinition.setLazyInit(true);
+                    beanDefinition.setDestroyMethodName("");
+                });
+
+        boolean lazyBeansRegistered = registerLazyBeans(applicationContext, lazyContainer);
+        applicationContext.getEnvironment().getPropertySources().addFirst(new LazyContainer.PropertySource(
+                lazyContainer, getLazyPropertyNames(), !lazyBeansRegistered));
+        applyTestProperties(applicationContext, getStaticTestProperties());
+        log.info("Container '{}' will be started on first access", getContainerKey());
+    }
+
+    /**
+     * Acquires the (possibly already running) container from {@link ContainerRegistry}.
+     *
+     * @param contextName {@link TestTimings#contextKey key} of the Spring context the container is acquired for (for
+     *                    timing statistics)
+     * @return started container
+     */
+    C acquireContainer(String contextName) {
+        String key = getContainerKey();
+        ForkSharedContainers forks = forkSharedContainers;
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.CONTAINER_ACQUIRE, key, contextName);
+
+        C container = (forks == null)
+                ? ContainerRegistry.acquire(key, this::createContainer)
+                : ContainerRegistry.acquire(key, () -> forks.join(key, createContainer()),
+                        startedContainer -> forks.leave(key, startedContainer));
+        timer.stop();
+
+        String containerId = container.getContainerId();
+        if (PROVISIONED_CONTAINERS.contains(containerId)) {
+            return container;
+        }
+
+        ReentrantLock lock = PROVISIONING_LOCKS.computeIfAbsent(containerId, id -> new ReentrantLock());
+        lock.lock();
+
+        try {
+            if (!PROVISIONED_CONTAINERS.contains(containerId)) {
+                provision(container);
+                PROVISIONED_CONTAINERS.add(containerId);
+            }
+        } catch (RuntimeException e) {
+            ContainerRegistry.release(key);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+
+        return container;
+    }
+
+    /**
+     * Starts the container in background, to be picked up later by {@link #acquireContainer(String)}.
+     */
+    void prewarm() {
+        applyEnvironment(new StandardEnvironment());
+        String key = getContainerKey();
+        ForkSharedContainers forks = forkSharedContainers;
+
+        if (forks == null) {
+            ContainerRegistry.startInBackground(key, this::createContainer);
+        } else {
+            ContainerRegistry.startInBackground(key, () -> forks.join(key, createContainer()),
+                    container -> forks.leave(key, container));
+        }
+    }
+
+    /**
+     * Registers container-related beans in the application context. Doesn't apply properties because
+     * {@link CompositeContainerRunner} applies properties of all its runners at once.
+     *
+     * @param applicationContext application context
+     * @param container          started container
+     * @return Spring properties pointing to the container
+     */
+    List<String> bindContainer(GenericApplicationContext applicationContext, C container) {
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.PROPERTY_BINDING, getContainerKey(),
+                TestTimings.contextKey(applicationContext));
+        registerBeans(applicationContext, container);
+        List<String> properties = getTestProperties(container);
+        timer.stop();
+        return properties;
+    }
+
+    /**
+     * Releases whatever {@link #bindContainer(GenericApplicationContext, GenericContainer)} has acquired besides the
+     * container, such as a part of the container leased to the context, when the context fails to initialize after
+     * the binding (such a context is never closed, so its beans don't release anything). Does nothing by default.
+     */
+    void unbindContainer() {
+    }
+
+    /**
+     * Registers the container bean and the bean releasing the container when the context is closed. Subclasses may
+     * register more beans, calling {@code super} as well.
+     *
+     * @param applicationContext application context
+     * @param container          started container
+     */
+    protected void registerBeans(GenericApplicationContext applicationContext, C container) {
+        // empty destroy method name prevents Spring from calling AutoCloseable.close() - the container is shared
+        applicationContext.registerBean(getContainerBeanClass(),
+                () -> container,
+                beanDefinition -> beanDefinition.setDestroyMethodName(""));
+
+        // the only reason to register this bean is to release the container when app context is closed
+        String containerKey = getContainerKey();
+        applicationContext.registerBean(getClass().getName() + ".lease", ContainerRegistry.Lease.class,
+                () -> new ContainerRegistry.Lease(containerKey));
+    }
+
+    static void applyTestProperties(GenericApplicationContext applicationContext, List<String> properties) {
+        TestPropertyValues testProps = TestPropertyValues.of(properties);
+        log.debug("Assigning application properties for running tests: {}", testProps);
+        testProps.applyTo(applicationContext);
+    }
+
+}
@@ -0,0 +1,143 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Starts containers of several runners concurrently (on virtual threads), so context startup takes as long as the
+ * slowest container rather than the sum of all of them. If any container fails to start, the context initialization
+ * fails immediately, without waiting for the rest (they keep starting in {@link ContainerRegistry} and will be reused).
+ * Containers acquired for a context which fails to initialize are released, along with whatever has been bound to it
+ * (see {@link AbstractContainerRunner#unbindContainer()}), since such a context is never closed.
+ * Properties of all runners are applied at once. Runners which start their containers lazily (see
+ * {@link AbstractContainerRunner#LAZY_START_PROPERTY}) are initialized separately, without starting anything.
+ * <p>
+ * Subclass this class to declare the runners (Spring instantiates initializers via no-arg constructors):
+ * <pre>
+ *  public class MyContainerRunner extends CompositeContainerRunner {
+ *      public MyContainerRunner() {
+ *          super(new PostgreSqlContainerRunner(), new RedisContainerRunner(), new MongoContainerRunner());
+ *      }
+ *  }
+ * </pre>
+ * and use it as {@code @ContextConfiguration(initializers = MyContainerRunner.class)}.
+ */
+@Slf4j
+public abstract class CompositeContainerRunner implements ApplicationContextInitializer<GenericApplicationContext> {
+
+    private final List<AbstractContainerRunner<?>> runners;
+
+    protected CompositeContainerRunner(AbstractContainerRunner<?>... runners) {
+        this.runners = List.of(runners);
+    }
+
+    @Override
+    public void initialize(GenericApplicationContext applicationContext) {
+        runners.forEach(runner -> runner.applyEnvironment(applicationContext.getEnvironment()));
+        runners.stream()
+                .filter(AbstractContainerRunner::isLazyStart)
+                .forEach(runner -> runner.registerLazyContainer(applicationContext));
+        List<AbstractContainerRunner<?>> startedRunners = runners.stream()
+                .filter(runner -> !runner.isLazyStart())
+                .toList();
+        List<Function<GenericApplicationContext, List<String>>> binders = startContainers(startedRunners,
+                TestTimings.contextKey(applicationContext));
+
+        List<AbstractContainerRunner<?>> boundRunners = new ArrayList<>(binders.size());
+
+        try {
+            List<String> testProps = new ArrayList<>();
+
+            for (int i = 0; i < binders.size(); i++) {
+                testProps.addAll(binders.get(i).apply(applicationContext));
+                boundRunners.add(startedRunners.get(i));
+            }
+
+            AbstractContainerRunner.applyTestProperties(applicationContext, testProps);
+        } catch (RuntimeException e) {
+            // the context won't be closed, so its beans (even if registered) won't release what has been leased to it
+            boundRunners.forEach(AbstractContainerRunner::unbindContainer);
+            startedRunners.forEach(runner -> ContainerRegistry.release(runner.getContainerKey()));
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the containers of all runners in background, to be picked up later by {@link #initialize}.
+     */
+    void prewarm() {
+        runners.forEach(AbstractContainerRunner::prewarm);
+    }
+
+    private static List<Function<GenericApplicationContext, List<String>>> startContainers(
+            List<AbstractContainerRunner<?>> startedRunners, String contextName) {
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name("container-runner-", 0)
+                .factory());
+        List<CompletableFuture<Function<GenericApplicationContext, List<String>>>> futures = startedRunners.stream()
+                .map(runner -> CompletableFuture.supplyAsync(() -> startContainer(runner, contextName), executor))
+                .toList();
+
+        try {
+            // fail fast: complete the combined future as soon as any container fails
+            CompletableFuture<Void> allStarted = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+            futures.forEach(future -> future.exceptionally(e -> {
+                allStarted.completeExceptionally(e);
+                return null;
+            }));
+
+            allStarted.join();
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+        } catch (CompletionException e) {
+            releaseOnSuccess(startedRunners, futures);
+            throw (e.getCause() instanceof RuntimeException cause)
+                    ? cause
+                    : e;
+        } finally {
+            // don't wait for the containers which are still starting after a failure
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Releases containers which have been (or will be, if still starting) acquired for a context failing to initialize.
+     *
+     * @param startedRunners runners the futures have been created for, in the same order
+     * @param futures        futures starting the containers
+     */
+    private static void releaseOnSuccess(List<AbstractContainerRunner<?>> startedRunners,
+            List<CompletableFuture<Function<GenericApplicationContext, List<String>>>> futures) {
+        for (int i = 0; i < futures.size(); i++) {
+            String key = startedRunners.get(i).getContainerKey();
+            futures.get(i).thenRun(() -> ContainerRegistry.release(key));
+        }
+    }
+
+    /**
+     * Starts the container. Declares the container type explicitly for the runner and its container to match.
+     *
+     * @param runner      runner
+     * @param contextName display name of the application context
+     * @param <C>         container type
+     * @return function which binds the container to the application context
+     */
+    private static <C extends GenericContainer<?>> Function<GenericApplicationContext, List<String>> startContainer(
+            AbstractContainerRunner<C> runner, String contextName) {
+        log.debug("Starting container '{}'", runner.getContainerKey());
+        C container = runner.acquireContainer(contextName);
+        return applicationContext -> runner.bindContainer(applicationContext, container);
+    }
+
+}
@@ -0,0 +1,88 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.LauncherSessionListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Starts containers in background as soon as JUnit launcher session opens, i.e. before classpath scanning, test
+ * discovery and Spring context creation, so all that work overlaps with container startup. Runners later pick up the
+ * already starting containers from {@link ContainerRegistry}.
+ * <p>
+ * Registered automatically via {@link java.util.ServiceLoader}, but does nothing unless
+ * {@value #PREWARM_RUNNERS_PROPERTY} lists fully qualified class names of {@link AbstractContainerRunner} and/or
+ * {@link CompositeContainerRunner} subclasses (comma-separated). The property is looked up in system properties and
+ * then in {@code junit-platform.properties}, for example:
+ * <pre>
+ *  guru.nicks.test.prewarm.runners=guru.nicks.test.PostgreSqlContainerRunner,guru.nicks.test.RedisContainerRunner
+ * </pre>
+ */
+@Slf4j
+public class ContainerPrewarmingListener implements LauncherSessionListener {
+
+    public static final String PREWARM_RUNNERS_PROPERTY = "guru.nicks.test.prewarm.runners";
+
+    private static final String JUNIT_PLATFORM_PROPERTIES = "junit-platform.properties";
+
+    @Override
+    public void launcherSessionOpened(LauncherSession session) {
+        String runners = Optional.ofNullable(System.getProperty(PREWARM_RUNNERS_PROPERTY))
+                .orElseGet(ContainerPrewarmingListener::getRunnersFromJunitPlatformProperties);
+
+        if (StringUtils.isBlank(runners)) {
+            return;
+        }
+
+        Arrays.stream(runners.split(","))
+                .map(String::strip)
+                .filter(StringUtils::isNotEmpty)
+                .forEach(ContainerPrewarmingListener::prewarm);
+    }
+
+    private static void prewarm(String runnerClassName) {
+        Object runner;
+
+        try {
+            runner = Class.forName(runnerClassName, true, Thread.currentThread().getContextClassLoader())
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException e) {
+            log.warn("Failed to instantiate container runner '{}': {}", runnerClassName, e.getMessage(), e);
+            return;
+        }
+
+        log.info("Prewarming containers of '{}'", runnerClassName);
+
+        if (runner instanceof AbstractContainerRunner<?> containerRunner) {
+            containerRunner.prewarm();
+        } else if (runner instanceof CompositeContainerRunner compositeRunner) {
+            compositeRunner.prewarm();
+        } else {
+            log.warn("'{}' is not a container runner", runnerClassName);
+        }
+    }
+
+    private static String getRunnersFromJunitPlatformProperties() {
+        try (InputStream in = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream(JUNIT_PLATFORM_PROPERTIES)) {
+            if (in == null) {
+                return null;
+            }
+
+            var properties = new Properties();
+            properties.load(in);
+            return properties.getProperty(PREWARM_RUNNERS_PROPERTY);
+        } catch (IOException e) {
+            log.warn("Failed to read '{}': {}", JUNIT_PLATFORM_PROPERTIES, e.getMessage(), e);
+            return null;
+        }
+    }
+
+}
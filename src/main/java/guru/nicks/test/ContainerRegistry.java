@@ -0,0 +1,230 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of containers shared by Spring contexts. Containers are keyed by image plus configuration (see
+ * {@link AbstractContainerRunner#getContainerKey()}), started once, reference-counted by the contexts using them, and
+ * stopped at JVM shutdown only: Spring caches test contexts, so a container released by one context is likely to be
+ * needed by the next one.
+ */
+@Slf4j
+public final class ContainerRegistry {
+
+    private static final ConcurrentMap<String, SharedContainer> CONTAINERS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ContainerRegistry::stopAll, "container-registry-shutdown"));
+    }
+
+    private ContainerRegistry() {
+    }
+
+    /**
+     * Returns the container registered under the given key, creating and starting it if needed. Concurrent calls for
+     * the same key wait for the same container, calls for different keys don't block each other.
+     *
+     * @param key              container key (image plus configuration)
+     * @param containerFactory creates (but doesn't start) the container
+     * @param <C>              container type
+     * @return started container
+     * @throws IllegalStateException container failed to start (the next call for the same key will retry)
+     */
+    public static <C extends GenericContainer<?>> C acquire(String key, Supplier<C> containerFactory) {
+        return acquire(key, containerFactory, GenericContainer::stop);
+    }
+
+    /**
+     * Same as {@link #acquire(String, Supplier)}, but the container is stopped at JVM shutdown by the given action
+     * (for example, one which stops it only if no other JVM uses it).
+     *
+     * @param key              container key (image plus configuration)
+     * @param containerFactory creates the container (may start it too)
+     * @param stopAction       stops the container
+     * @param <C>              container type
+     * @return started container
+     * @throws IllegalStateException container failed to start (the next call for the same key will retry)
+     */
+    @SuppressWarnings("unchecked")
+    public static <C extends GenericContainer<?>> C acquire(String key, Supplier<C> containerFactory,
+            Consumer<? super C> stopAction) {
+        SharedContainer sharedContainer = CONTAINERS.computeIfAbsent(key,
+                k -> new SharedContainer(k, containerFactory, stopAction));
+
+        GenericContainer<?> container;
+        try {
+            container = sharedContainer.awaitStarted();
+        } catch (RuntimeException e) {
+            CONTAINERS.remove(key, sharedContainer);
+            throw e;
+        }
+
+        int refCount = sharedContainer.refCount.incrementAndGet();
+        log.debug("Acquired container '{}', reference count: {}", key, refCount);
+        return (C) container;
+    }
+
+    /**
+     * Starts the container in background (on a virtual thread) unless it's already registered. A subsequent
+     * {@link #acquire(String, Supplier)} with the same key waits for this container instead of starting another one.
+     *
+     * @param key              container key (image plus configuration)
+     * @param containerFactory creates (but doesn't start) the container
+     */
+    public static void startInBackground(String key, Supplier<? extends GenericContainer<?>> containerFactory) {
+        startInBackground(key, containerFactory, GenericContainer::stop);
+    }
+
+    /**
+     * Same as {@link #startInBackground(String, Supplier)}, but the container is stopped at JVM shutdown by the given
+     * action.
+     *
+     * @param key              container key (image plus configuration)
+     * @param containerFactory creates the container (may start it too)
+     * @param stopAction       stops the container
+     * @param <C>              container type
+     */
+    public static <C extends GenericContainer<?>> void startInBackground(String key, Supplier<C> containerFactory,
+            Consumer<? super C> stopAction) {
+        SharedContainer sharedContainer = CONTAINERS.computeIfAbsent(key,
+                k -> new SharedContainer(k, containerFactory, stopAction));
+
+        Thread.ofVirtual()
+                .name("container-prewarm-" + key)
+                .start(() -> {
+                    try {
+                        sharedContainer.awaitStarted();
+                    } catch (RuntimeException e) {
+                        // acquire() will retry
+                        CONTAINERS.remove(key, sharedContainer);
+                        log.warn("Failed to start container '{}' in background: {}", key, e.getMessage(), e);
+                    }
+                });
+    }
+
+    /**
+     * Decrements the reference count of the given container. The container keeps running until JVM shutdown even if
+     * the count drops to 0.
+     *
+     * @param key container key
+     */
+    public static void release(String key) {
+        SharedContainer sharedContainer = CONTAINERS.get(key);
+
+        if (sharedContainer != null) {
+            int refCount = sharedContainer.refCount.decrementAndGet();
+            log.debug("Released container '{}', reference count: {}", key, refCount);
+        }
+    }
+
+    /**
+     * Returns the number of contexts using the container.
+     *
+     * @param key container key
+     * @return reference count, 0 if the container is not registered
+     */
+    static int getReferenceCount(String key) {
+        SharedContainer sharedContainer = CONTAINERS.get(key);
+        return (sharedContainer == null)
+                ? 0
+                : sharedContainer.refCount.get();
+    }
+
+    private static void stopAll() {
+        CONTAINERS.values().forEach(SharedContainer::stop);
+        CONTAINERS.clear();
+    }
+
+    /**
+     * Registered as a bean by {@link AbstractContainerRunner}: Spring calls {@link #close()} when the context gets
+     * closed, which releases the container.
+     *
+     * @param key container key
+     */
+    record Lease(String key) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            release(key);
+        }
+
+    }
+
+    private static final class SharedContainer {
+
+        private final String key;
+        private final FutureTask<GenericContainer<?>> startTask;
+        private final AtomicInteger refCount = new AtomicInteger();
+
+        /**
+         * Assigned once the container has started.
+         */
+        private volatile Runnable stopTask;
+
+        <C extends GenericContainer<?>> SharedContainer(String key, Supplier<C> containerFactory,
+                Consumer<? super C> stopAction) {
+            this.key = key;
+
+            startTask = new FutureTask<>(() -> {
+                TestTimings.Timer createTimer = TestTimings.start(TestTimings.Phase.CONTAINER_CREATE, key);
+                C container = containerFactory.get();
+                createTimer.stop();
+
+                // pulls the image if needed (otherwise done by start())
+                TestTimings.Timer imageTimer = TestTimings.start(TestTimings.Phase.IMAGE_RESOLUTION, key);
+                container.getDockerImageName();
+                imageTimer.stop();
+
+                log.info("Starting container '{}'", key);
+                TestTimings.Timer startTimer = TestTimings.start(TestTimings.Phase.CONTAINER_START, key);
+                // no-op if the factory has started the container
+                container.start();
+                startTimer.stop();
+                stopTask = () -> stopAction.accept(container);
+                return container;
+            });
+        }
+
+        GenericContainer<?> awaitStarted() {
+            // no-op if the task is already running (in another thread) or done
+            startTask.run();
+
+            try {
+                return startTask.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for container '" + key + "'", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to start container '" + key + "': "
+                        + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        void stop() {
+            if (!startTask.isDone()) {
+                return;
+            }
+
+            try {
+                log.info("Stopping container '{}' (reference count: {})", key, refCount.get());
+                startTask.get();
+                stopTask.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | RuntimeException e) {
+                log.warn("Failed to stop container '{}': {}", key, e.getMessage(), e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,255 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Distribution of delays before a stub responds, see {@link WireMockCommand.Response#getDelay()}. Fixed, uniform and
+ * lognormal delays without a seed are WireMock built-ins. Seeded delays (reproducible as long as requests come in the
+ * same order) and histograms are sampled by {@link Transformer}, which is registered by
+ * {@link WireMockServerCustomizer}. Without the transformer, WireMock ignores such delays, so a warning is logged if
+ * the transformer hasn't been created in this JVM (a WireMock server running elsewhere may have it registered).
+ */
+@Slf4j
+public final class DelayProfile {
+
+    private static final String TYPE_PARAMETER = "guru.nicks.delay.type";
+    private static final String VALUES_PARAMETER = "guru.nicks.delay.values";
+    private static final String SEED_PARAMETER = "guru.nicks.delay.seed";
+
+    private final Type type;
+
+    /**
+     * Fixed: delay; uniform: min and max; lognormal: median and sigma; histogram: (percentile, delay) pairs. Delays are
+     * in milliseconds.
+     */
+    private final List<Double> values;
+
+    /**
+     * {@code null} means the sequence of delays is not reproducible.
+     */
+    private final Long seed;
+
+    private DelayProfile(Type type, List<Double> values, Long seed) {
+        this.type = type;
+        this.values = values;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates a fixed delay.
+     *
+     * @param delay delay
+     * @return delay profile
+     */
+    public static DelayProfile fixed(Duration delay) {
+        return new DelayProfile(Type.FIXED, List.of((double) delay.toMillis()), null);
+    }
+
+    /**
+     * Creates a uniformly distributed delay.
+     *
+     * @param min minimum delay
+     * @param max maximum delay
+     * @return delay profile
+     */
+    public static DelayProfile uniform(Duration min, Duration max) {
+        return new DelayProfile(Type.UNIFORM, List.of((double) min.toMillis(), (double) max.toMillis()), null);
+    }
+
+    /**
+     * Creates a lognormally distributed delay, which is typical for network latency.
+     *
+     * @param median median delay
+     * @param sigma  standard deviation of the underlying normal distribution (the greater, the longer the tail)
+     * @return delay profile
+     */
+    public static DelayProfile logNormal(Duration median, double sigma) {
+        return new DelayProfile(Type.LOG_NORMAL, List.of((double) median.toMillis(), sigma), null);
+    }
+
+    /**
+     * Creates a delay following the given percentiles, such as those measured in production. Delays between
+     * percentiles are interpolated linearly.
+     *
+     * @param percentiles delays by percentile (0 to 100), for example {@code 50 -> 20ms, 99 -> 300ms, 100 -> 2s}
+     * @return delay profile
+     * @throws IllegalArgumentException no percentiles or a percentile is out of range
+     */
+    public static DelayProfile histogram(SortedMap<Double, Duration> percentiles) {
+        if (percentiles.isEmpty() || (percentiles.firstKey() < 0) || (percentiles.lastKey() > 100)) {
+            throw new IllegalArgumentException("Percentiles must be within 0..100: " + percentiles.keySet());
+        }
+
+        List<Double> values = new ArrayList<>(2 * percentiles.size());
+        percentiles.forEach((percentile, delay) -> {
+            values.add(percentile);
+            values.add((double) delay.toMillis());
+        });
+
+        return new DelayProfile(Type.HISTOGRAM, List.copyOf(values), null);
+    }
+
+    /**
+     * Makes the sequence of delays reproducible: each stub gets its own random generator initialized with the seed.
+     *
+     * @param seed seed
+     * @return new delay profile
+     */
+    public DelayProfile withSeed(long seed) {
+        return new DelayProfile(type, values, seed);
+    }
+
+    /**
+     * Applies the delay to the response.
+     *
+     * @param response     response definition
+     * @param transformers transformer names to add {@link Transformer#NAME} to if it's needed
+     */
+    void applyTo(ResponseDefinitionBuilder response, Collection<String> transformers) {
+        if (type == Type.FIXED) {
+            response.withFixedDelay(values.getFirst().intValue());
+        } else if ((type == Type.UNIFORM) && (seed == null)) {
+            response.withUniformRandomDelay(values.get(0).intValue(), values.get(1).intValue());
+        } else if ((type == Type.LOG_NORMAL) && (seed == null)) {
+            response.withLogNormalRandomDelay(values.get(0), values.get(1));
+        } else {
+            if (!Transformer.created) {
+                log.warn("{} delay{} is sampled by {}, which is registered by {} - without it, the stub isn't "
+                        + "delayed", type, (seed == null) ? "" : " with seed", Transformer.class.getName(),
+                        WireMockServerCustomizer.class.getSimpleName());
+            }
+
+            transformers.add(Transformer.NAME);
+            response.withTransformerParameter(TYPE_PARAMETER, type.name())
+                    .withTransformerParameter(VALUES_PARAMETER, values)
+                    .withTransformerParameter(SEED_PARAMETER, seed);
+        }
+    }
+
+    /**
+     * Samples a delay.
+     *
+     * @param random random generator
+     * @return delay in milliseconds
+     */
+    long sample(Random random) {
+        return Math.round(switch (type) {
+            case FIXED -> values.getFirst();
+            case UNIFORM -> values.get(0) + random.nextDouble() * (values.get(1) - values.get(0));
+            case LOG_NORMAL -> values.get(0) * Math.exp(random.nextGaussian() * values.get(1));
+            case HISTOGRAM -> sampleHistogram(100 * random.nextDouble());
+        });
+    }
+
+    private double sampleHistogram(double percentile) {
+        double previousPercentile = values.get(0);
+        double previousDelay = values.get(1);
+
+        if (percentile <= previousPercentile) {
+            return previousDelay;
+        }
+
+        for (int i = 2; i < values.size(); i += 2) {
+            double nextPercentile = values.get(i);
+            double nextDelay = values.get(i + 1);
+
+            if (percentile <= nextPercentile) {
+                return previousDelay + (nextDelay - previousDelay)
+                        * (percentile - previousPercentile) / (nextPercentile - previousPercentile);
+            }
+
+            previousPercentile = nextPercentile;
+            previousDelay = nextDelay;
+        }
+
+        return previousDelay;
+    }
+
+    private enum Type {
+
+        FIXED,
+        UNIFORM,
+        LOG_NORMAL,
+        HISTOGRAM
+
+    }
+
+    /**
+     * Samples delays which are not WireMock built-ins, applied to stubs having {@link DelayProfile} parameters only.
+     */
+    static class Transformer implements ResponseDefinitionTransformerV2 {
+
+        public static final String NAME = "guru-nicks-delay-profile";
+
+        /**
+         * Whether a transformer has been created in this JVM (it's created only to be registered in WireMock).
+         */
+        private static volatile boolean created;
+
+        /**
+         * Random generators of stubs having a seed.
+         */
+        private final Map<UUID, Random> randoms = new ConcurrentHashMap<>();
+
+        Transformer() {
+            created = true;
+        }
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public boolean applyGlobally() {
+            return false;
+        }
+
+        @Override
+        public ResponseDefinition transform(ServeEvent serveEvent) {
+            ResponseDefinition responseDefinition = serveEvent.getResponseDefinition();
+            Parameters parameters = serveEvent.getTransformerParameters();
+
+            if ((parameters == null) || !parameters.containsKey(TYPE_PARAMETER)) {
+                return responseDefinition;
+            }
+
+            // numbers come as Integer, Long or Double after JSON round trip
+            List<Double> values = ((List<?>) requireNonNull(parameters.get(VALUES_PARAMETER))).stream()
+                    .map(value -> ((Number) value).doubleValue())
+                    .toList();
+            Long seed = (parameters.get(SEED_PARAMETER) instanceof Number number)
+                    ? number.longValue()
+                    : null;
+            var delayProfile = new DelayProfile(Type.valueOf(parameters.getString(TYPE_PARAMETER)), values, seed);
+
+            Random random = (seed == null)
+                    ? ThreadLocalRandom.current()
+                    : randoms.computeIfAbsent(serveEvent.getStubMapping().getId(), id -> new Random(seed));
+
+            return ResponseDefinitionBuilder.like(responseDefinition)
+                    .withFixedDelay((int) delayProfile.sample(random))
+                    .build();
+        }
+
+    }
+
+}
@@ -0,0 +1,202 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bounded LRU cache of classpath fixtures read by {@link WireMockCommand.Response.ResponseBuilder}, so fixtures reused
+ * in many stubs are read (and decoded) once. The total size is limited by {@value #MAX_SIZE_PROPERTY} (system property,
+ * in bytes, default is {@value #DEFAULT_MAX_SIZE}); fixtures larger than a quarter of it are not cached - large files
+ * should be served with {@link WireMockCommand.Response.ResponseBuilder#bodyFile(String)}, which WireMock streams from
+ * disk.
+ * <p>
+ * Cached values are shared, therefore byte arrays returned must not be modified.
+ */
+@Slf4j
+public final class FixtureCache {
+
+    public static final String MAX_SIZE_PROPERTY = "guru.nicks.test.wiremock.fixture-cache.max-size";
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private static final ResourcePatternResolver RESOURCE_RESOLVER = new PathMatchingResourcePatternResolver(
+            MethodHandles.lookup().lookupClass().getClassLoader());
+
+    private static final long MAX_SIZE = Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+
+    /**
+     * Access-ordered, i.e. the eldest entry is the least recently used one. Guarded by itself.
+     */
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+    private static long size;
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private FixtureCache() {
+    }
+
+    /**
+     * Returns the number of lookups which found the fixture in the cache.
+     *
+     * @return hit count
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * Returns the number of lookups which had to read the fixture.
+     *
+     * @return miss count
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Returns the (estimated) total size of cached fixtures.
+     *
+     * @return size in bytes
+     */
+    public static long getSize() {
+        synchronized (ENTRIES) {
+            return size;
+        }
+    }
+
+    /**
+     * Removes all entries and resets counters.
+     */
+    public static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+            size = 0;
+        }
+
+        HITS.set(0);
+        MISSES.set(0);
+    }
+
+    /**
+     * Returns the fixture decoded as UTF-8.
+     *
+     * @param path path to the fixture ('classpath:' is prepended automatically)
+     * @return fixture content
+     * @throws IllegalArgumentException error reading resource
+     */
+    static String getText(String path) {
+        String key = "text:" + path;
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (String) cached;
+        }
+
+        String text = new String(read(path), StandardCharsets.UTF_8);
+        // UTF-16 in the worst case
+        store(key, text, 2L * text.length());
+        return text;
+    }
+
+    /**
+     * Returns the fixture as is.
+     *
+     * @param path path to the fixture ('classpath:' is prepended automatically)
+     * @return fixture content (must not be modified)
+     * @throws IllegalArgumentException error reading resource
+     */
+    static byte[] getBytes(String path) {
+        String key = "bytes:" + path;
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (byte[]) cached;
+        }
+
+        byte[] bytes = read(path);
+        store(key, bytes, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Returns the gzipped fixture decompressed.
+     *
+     * @param path path to the fixture ('classpath:' is prepended automatically)
+     * @return fixture content (must not be modified)
+     * @throws IllegalArgumentException error reading or decompressing resource
+     */
+    static byte[] getGunzippedBytes(String path) {
+        String key = "gunzipped:" + path;
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (byte[]) cached;
+        }
+
+        byte[] bytes;
+        try (InputStream in = new GZIPInputStream(RESOURCE_RESOLVER
+                .getResource("classpath:" + path)
+                .getInputStream())) {
+            bytes = in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error reading resource: " + e.getMessage(), e);
+        }
+
+        store(key, bytes, bytes.length);
+        return bytes;
+    }
+
+    private static Object lookup(String key) {
+        Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(key);
+        }
+
+        if (entry == null) {
+            MISSES.incrementAndGet();
+            return null;
+        }
+
+        HITS.incrementAndGet();
+        return entry.value();
+    }
+
+    private static void store(String key, Object value, long weight) {
+        if (weight > MAX_SIZE / 4) {
+            log.debug("Fixture '{}' is too large to be cached: {} bytes", key, weight);
+            return;
+        }
+
+        synchronized (ENTRIES) {
+            Entry previous = ENTRIES.put(key, new Entry(value, weight));
+            size += weight - ((previous == null) ? 0 : previous.weight());
+
+            for (Iterator<Entry> it = ENTRIES.values().iterator(); (size > MAX_SIZE) && it.hasNext(); ) {
+                size -= it.next().weight();
+                it.remove();
+            }
+        }
+    }
+
+    private static byte[] read(String path) {
+        try {
+            return RESOURCE_RESOLVER
+                    .getResource("classpath:" + path)
+                    .getContentAsByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error reading resource: " + e.getMessage(), e);
+        }
+    }
+
+    private record Entry(Object value, long weight) {
+    }
+
+}
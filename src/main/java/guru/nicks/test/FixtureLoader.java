@@ -0,0 +1,534 @@
+package guru.nicks.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams classpath fixtures into database tables, in constant memory regardless of fixture size:
+ * <ul>
+ *     <li>PostgreSQL/TimescaleDB - {@code COPY ... FROM STDIN} (CSV format; needs the PostgreSQL JDBC driver, which
+ *         the application has anyway)</li>
+ *     <li>other databases, such as MySQL - multi-row {@code INSERT} statements of up to {@value #BATCH_ROWS} rows
+ *         (no server or driver settings needed, unlike {@code LOAD DATA LOCAL INFILE})</li>
+ * </ul>
+ * Fixture formats, recognized by file extension (optionally followed by {@code .gz}):
+ * <ul>
+ *     <li>{@code .csv} - RFC 4180, the first line holds column names; unquoted empty fields are {@code NULL}, quoted
+ *         ones are empty strings</li>
+ *     <li>{@code .ndjson}, {@code .jsonl} - a JSON object per line, column names are taken from the first object;
+ *         missing and {@code null} fields are {@code NULL}, nested objects and arrays are stored as JSON text</li>
+ * </ul>
+ * Rows per second are logged for each fixture.
+ */
+@Slf4j
+public final class FixtureLoader {
+
+    /**
+     * Rows per {@code INSERT} (fewer if the number of placeholders would exceed {@value #MAX_PLACEHOLDERS}).
+     */
+    public static final int BATCH_ROWS = 1000;
+
+    /**
+     * MySQL limit of placeholders per statement.
+     */
+    private static final int MAX_PLACEHOLDERS = 65_535;
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+
+    private static final ResourcePatternResolver RESOURCE_RESOLVER = new PathMatchingResourcePatternResolver(
+            MethodHandles.lookup().lookupClass().getClassLoader());
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private FixtureLoader() {
+    }
+
+    /**
+     * Loads the fixture into the table.
+     *
+     * @param dataSource data source
+     * @param table      table name, optionally schema-qualified
+     * @param path       path to the fixture ('classpath:' is prepended automatically)
+     * @return number of rows loaded
+     * @throws IllegalArgumentException unknown fixture format, invalid table or column name
+     * @throws IllegalStateException    error reading the fixture or writing to the database
+     */
+    public static long load(DataSource dataSource, String table, String path) {
+        requireIdentifier(table);
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.FIXTURE_LOAD, path + " -> " + table);
+        long rows;
+
+        try (Connection connection = dataSource.getConnection();
+                RowReader rowReader = openFixture(path)) {
+            var dialect = Dialect.of(connection.getMetaData());
+            rows = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+                    ? PostgresCopy.copy(connection, table, rowReader, dialect)
+                    : insertBatched(connection, table, rowReader, dialect);
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("Failed to load fixture '" + path + "' into '" + table + "': "
+                    + e.getMessage(), e);
+        }
+
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(timer.stop()));
+        log.info("Loaded {} rows into '{}' from '{}' in {} ms ({} rows/s)", rows, table, path, millis,
+                rows * 1000 / millis);
+        return rows;
+    }
+
+    /**
+     * Opens a classpath fixture for streaming, decompressing it if its name ends with {@code .gz}.
+     *
+     * @param path path to the fixture ('classpath:' is prepended automatically)
+     * @return reader
+     * @throws IOException fixture not found
+     */
+    static BufferedReader openReader(String path) throws IOException {
+        InputStream in = RESOURCE_RESOLVER.getResource("classpath:" + path).getInputStream();
+
+        if (path.endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Checks if the fixture has a JSON object per line.
+     *
+     * @param path path to the fixture
+     * @return {@code true} for {@code .ndjson} and {@code .jsonl} files (optionally followed by {@code .gz})
+     */
+    static boolean isNdjson(String path) {
+        String name = path.endsWith(".gz") ? path.substring(0, path.length() - 3) : path;
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    private static RowReader openFixture(String path) throws IOException {
+        boolean csv = path.endsWith(".csv") || path.endsWith(".csv.gz");
+
+        if (!csv && !isNdjson(path)) {
+            throw new IllegalArgumentException("Unknown fixture format (expected .csv, .ndjson or .jsonl): " + path);
+        }
+
+        BufferedReader reader = openReader(path);
+
+        try {
+            return csv ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+        } catch (RuntimeException e) {
+            // such as an invalid header
+            reader.close();
+            throw e;
+        }
+    }
+
+    static long insertBatched(Connection connection, String table, RowReader rowReader, Dialect dialect)
+            throws SQLException {
+        List<String> columns = rowReader.getColumns();
+        int batchRows = Math.max(1, Math.min(BATCH_ROWS, MAX_PLACEHOLDERS / columns.size()));
+        List<String[]> batch = new ArrayList<>(batchRows);
+        long rows = 0;
+
+        try (PreparedStatement fullBatchStatement = connection.prepareStatement(
+                buildInsert(table, columns, batchRows, dialect))) {
+            for (String[] row = rowReader.next(); row != null; row = rowReader.next()) {
+                batch.add(row);
+
+                if (batch.size() == batchRows) {
+                    rows += executeInsert(fullBatchStatement, batch, columns.size());
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            try (PreparedStatement lastBatchStatement = connection.prepareStatement(
+                    buildInsert(table, columns, batch.size(), dialect))) {
+                rows += executeInsert(lastBatchStatement, batch, columns.size());
+            }
+        }
+
+        return rows;
+    }
+
+    private static String buildInsert(String table, List<String> columns, int rows, Dialect dialect) {
+        String rowPlaceholders = "(" + "?,".repeat(columns.size() - 1) + "?)";
+
+        var sql = new StringBuilder("INSERT INTO ")
+                .append(dialect.quote(table))
+                .append(" (")
+                .append(dialect.quoteAll(columns))
+                .append(") VALUES ")
+                .append(rowPlaceholders);
+
+        for (int i = 1; i < rows; i++) {
+            sql.append(',').append(rowPlaceholders);
+        }
+
+        return sql.toString();
+    }
+
+    private static int executeInsert(PreparedStatement statement, List<String[]> batch, int columnCount)
+            throws SQLException {
+        int parameterIndex = 1;
+
+        for (String[] row : batch) {
+            for (int column = 0; column < columnCount; column++) {
+                statement.setString(parameterIndex++, (column < row.length) ? row[column] : null);
+            }
+        }
+
+        statement.executeUpdate();
+        int rows = batch.size();
+        batch.clear();
+        return rows;
+    }
+
+    private static List<String> requireColumns(List<String> columns) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Fixture has no columns");
+        }
+
+        columns.forEach(FixtureLoader::requireIdentifier);
+        return columns;
+    }
+
+    /**
+     * Allows plain (optionally schema-qualified) names only, because they're inserted in SQL without escaping (just
+     * quoted).
+     *
+     * @param identifier table or column name
+     * @throws IllegalArgumentException invalid name
+     */
+    static void requireIdentifier(String identifier) {
+        if ((identifier == null) || !IDENTIFIER.matcher(identifier).matches()) {
+            throw new IllegalArgumentException("Invalid table or column name: '" + identifier + "'");
+        }
+    }
+
+    /**
+     * Identifier quoting of a database, so that reserved words such as {@code user} or {@code order} can be used as
+     * table and column names. Names are case-folded the way the database folds unquoted identifiers, so quoting doesn't
+     * change which table or column is meant.
+     *
+     * @param quoteString quote character(s), empty if the database doesn't support quoting
+     * @param lowerCase   whether unquoted identifiers are stored in lower case, as in PostgreSQL
+     * @param upperCase   whether unquoted identifiers are stored in upper case, as in H2
+     */
+    record Dialect(String quoteString, boolean lowerCase, boolean upperCase) {
+
+        static Dialect of(DatabaseMetaData metaData) throws SQLException {
+            // a space means quoting is not supported
+            return new Dialect(metaData.getIdentifierQuoteString().strip(), metaData.storesLowerCaseIdentifiers(),
+                    metaData.storesUpperCaseIdentifiers());
+        }
+
+        /**
+         * Quotes each part of an optionally schema-qualified name checked with
+         * {@link FixtureLoader#requireIdentifier(String)}, which doesn't allow quote characters.
+         *
+         * @param identifier table or column name
+         * @return quoted name
+         */
+        String quote(String identifier) {
+            String folded = lowerCase
+                    ? identifier.toLowerCase(Locale.ROOT)
+                    : upperCase ? identifier.toUpperCase(Locale.ROOT) : identifier;
+
+            return Arrays.stream(folded.split("\\."))
+                    .map(part -> quoteString + part + quoteString)
+                    .collect(Collectors.joining("."));
+        }
+
+        String quoteAll(List<String> identifiers) {
+            return identifiers.stream()
+                    .map(this::quote)
+                    .collect(Collectors.joining(", "));
+        }
+
+    }
+
+    /**
+     * Source of fixture rows.
+     */
+    interface RowReader extends AutoCloseable {
+
+        List<String> getColumns();
+
+        /**
+         * Reads the next row.
+         *
+         * @return values ({@code null} elements are SQL {@code NULL}), {@code null} at the end
+         * @throws IllegalStateException error reading or parsing
+         */
+        String[] next();
+
+        @Override
+        void close() throws IOException;
+
+    }
+
+    /**
+     * RFC 4180 parser: fields may be quoted, quotes inside quoted fields are doubled, quoted fields may span lines.
+     */
+    static final class CsvRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private final List<String> columns;
+
+        CsvRowReader(BufferedReader reader) {
+            this.reader = reader;
+
+            String[] header = next();
+            columns = requireColumns((header == null) ? List.of() : List.of(header));
+        }
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public String[] next() {
+            try {
+                int c = reader.read();
+                if (c < 0) {
+                    return null;
+                }
+
+                List<String> fields = new ArrayList<>();
+                var field = new StringBuilder();
+                boolean quoted = false;
+                boolean inQuotes = false;
+
+                while (true) {
+                    if (inQuotes) {
+                        if (c < 0) {
+                            throw new IllegalStateException("Unterminated quoted CSV field");
+                        } else if (c == '"') {
+                            reader.mark(1);
+                            if (reader.read() == '"') {
+                                field.append('"');
+                            } else {
+                                reader.reset();
+                                inQuotes = false;
+                            }
+                        } else {
+                            field.append((char) c);
+                        }
+                    } else if ((c < 0) || (c == '\n') || (c == ',')) {
+                        fields.add((quoted || !field.isEmpty()) ? field.toString() : null);
+                        field.setLength(0);
+                        quoted = false;
+
+                        if (c != ',') {
+                            return fields.toArray(String[]::new);
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                        inQuotes = true;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+
+                    c = reader.read();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Error reading CSV: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Returns the rest of the input (after the header) as is, so it can be streamed without parsing.
+         *
+         * @return reader
+         */
+        Reader getRawReader() {
+            return reader;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+    }
+
+    static final class NdjsonRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private final List<String> columns;
+
+        /**
+         * The first object, read to find out the columns.
+         */
+        private JsonNode pendingObject;
+
+        NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+            pendingObject = readObject();
+
+            List<String> fieldNames = new ArrayList<>();
+            if (pendingObject != null) {
+                pendingObject.fieldNames().forEachRemaining(fieldNames::add);
+            }
+
+            columns = requireColumns(fieldNames);
+        }
+
+        @Override
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public String[] next() {
+            JsonNode object = (pendingObject == null) ? readObject() : pendingObject;
+            pendingObject = null;
+
+            if (object == null) {
+                return null;
+            }
+
+            String[] row = new String[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                JsonNode value = object.get(columns.get(i));
+
+                if ((value != null) && !value.isNull()) {
+                    row[i] = value.isValueNode() ? value.asText() : value.toString();
+                }
+            }
+
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private JsonNode readObject() {
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.isBlank()) {
+                        JsonNode node = OBJECT_MAPPER.readTree(line);
+                        if (!node.isObject()) {
+                            throw new IllegalStateException("NDJSON line is not an object: " + line);
+                        }
+
+                        return node;
+                    }
+                }
+
+                return null;
+            } catch (IOException e) {
+                throw new IllegalStateException("Error reading NDJSON: " + e.getMessage(), e);
+            }
+        }
+
+    }
+
+    /**
+     * Presents rows as CSV text for {@code COPY}, rendering one row at a time.
+     */
+    private static final class CsvRenderingReader extends Reader {
+
+        private final RowReader rowReader;
+        private final StringBuilder buffer = new StringBuilder();
+        private int position;
+
+        CsvRenderingReader(RowReader rowReader) {
+            this.rowReader = rowReader;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) {
+            if ((position == buffer.length()) && !renderNextRow()) {
+                return -1;
+            }
+
+            int count = Math.min(length, buffer.length() - position);
+            buffer.getChars(position, position + count, target, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // the row reader is closed by the caller
+        }
+
+        private boolean renderNextRow() {
+            String[] row = rowReader.next();
+            if (row == null) {
+                return false;
+            }
+
+            buffer.setLength(0);
+            position = 0;
+
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+
+                // unquoted empty field is NULL
+                if (row[i] != null) {
+                    buffer.append('"').append(row[i].replace("\"", "\"\"")).append('"');
+                }
+            }
+
+            buffer.append('\n');
+            return true;
+        }
+
+    }
+
+    /**
+     * Isolates the PostgreSQL driver dependency: this class is loaded for PostgreSQL connections only.
+     */
+    static final class PostgresCopy {
+
+        private PostgresCopy() {
+        }
+
+        static long copy(Connection connection, String table, RowReader rowReader, Dialect dialect)
+                throws SQLException, IOException {
+            // CSV is streamed as is, without parsing
+            Reader csv = (rowReader instanceof CsvRowReader csvRowReader)
+                    ? csvRowReader.getRawReader()
+                    : new CsvRenderingReader(rowReader);
+            String sql = "COPY " + dialect.quote(table) + " (" + dialect.quoteAll(rowReader.getColumns())
+                    + ") FROM STDIN WITH (FORMAT csv)";
+
+            return connection.unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn(sql, csv);
+        }
+
+    }
+
+}
@@ -0,0 +1,228 @@
+package guru.nicks.test;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.TestcontainersConfiguration;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Shares containers between JVMs on the same host, such as Maven Surefire/Failsafe forks ({@code forkCount > 1}). The
+ * first fork starts the container, later ones attach to it, the last fork out stops it. Attaching relies on
+ * Testcontainers reuse, which must be enabled with {@code testcontainers.reuse.enable=true} in
+ * {@code ~/.testcontainers.properties} (otherwise Ryuk would stop the container when the fork that started it exits).
+ * <p>
+ * Forks are coordinated by a lock file plus a state file (live forks and their slots) per container, in the directory
+ * set in {@value #DIRECTORY_PROPERTY} ({@value #DEFAULT_DIRECTORY} by default). Each fork gets a slot number (starting
+ * with 1) which runners use to isolate forks from each other: separate databases for PostgreSQL, MySQL and MongoDB,
+ * separate DB index for Redis.
+ * <p>
+ * Forks that have crashed are pruned by live ones. A fork is recorded with its PID and process start instant, so a PID
+ * reused by an unrelated process doesn't keep a crashed fork alive. The slot of a crashed fork is given to the next
+ * fork, which must not rely on the data left there: runners recreate fork databases once per JVM. If all forks crash,
+ * the container keeps running (Ryuk doesn't stop reusable containers) and is reused by the next build.
+ */
+@RequiredArgsConstructor
+@Slf4j
+final class ForkSharedContainers {
+
+    public static final String ENABLED_PROPERTY = "guru.nicks.test.fork-sharing.enabled";
+    public static final String DIRECTORY_PROPERTY = "guru.nicks.test.fork-sharing.directory";
+    public static final String DEFAULT_DIRECTORY = "target/shared-containers";
+
+    private static final String FORK_PREFIX = "fork.";
+    private static final String VALUE_SEPARATOR = ",";
+    private static final long PID = ProcessHandle.current().pid();
+
+    /**
+     * Start instant of this JVM (epoch millis), empty if the OS doesn't report it.
+     */
+    private static final String START_INSTANT = getStartInstant(ProcessHandle.current());
+
+    /**
+     * Slot of this fork for each container key.
+     */
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+
+    /**
+     * In-JVM lock for each lock file: file locks are held by the whole JVM, so threads of this JVM are serialized
+     * separately, per container (containers of different keys start concurrently).
+     */
+    private static final Map<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+
+    /**
+     * Returns the slot of this fork.
+     *
+     * @param key container key
+     * @return slot (starting with 1), or 0 if the container is not shared between forks
+     */
+    static int getSlot(String key) {
+        return SLOTS.getOrDefault(key, 0);
+    }
+
+    /**
+     * Starts the container or attaches to the one started by another fork.
+     *
+     * @param key       container key
+     * @param container container (not started)
+     * @param <C>       container type
+     * @return started container
+     * @throws IllegalStateException Testcontainers reuse is not enabled
+     */
+    <C extends GenericContainer<?>> C join(String key, C container) {
+        if (!TestcontainersConfiguration.getInstance().environmentSupportsReuse()) {
+            throw new IllegalStateException("Sharing containers between forks requires 'testcontainers.reuse.enable"
+                    + "=true' in ~/.testcontainers.properties or TESTCONTAINERS_REUSE_ENABLE=true");
+        }
+
+        container.withReuse(true);
+
+        withLock(key, state -> {
+            pruneDeadForks(state);
+            // starts the container or attaches to the running one; within the lock because the reuse lookup isn't
+            // atomic, so forks starting the same container at once would each create one
+            container.start();
+
+            Set<Integer> takenSlots = state.stringPropertyNames().stream()
+                    .filter(name -> name.startsWith(FORK_PREFIX))
+                    .map(name -> parseSlot(state.getProperty(name)))
+                    .collect(Collectors.toSet());
+            int slot = IntStream.iterate(1, i -> i + 1)
+                    .filter(i -> !takenSlots.contains(i))
+                    .findFirst()
+                    .orElseThrow();
+            state.setProperty(FORK_PREFIX + PID, slot + VALUE_SEPARATOR + START_INSTANT);
+            SLOTS.put(key, slot);
+
+            log.info("Fork {} joined container '{}' in slot {}, forks using it: {}", PID, key, slot,
+                    countForks(state));
+        });
+
+        return container;
+    }
+
+    /**
+     * Detaches this fork from the container, stops the container if no other live fork uses it.
+     *
+     * @param key       container key
+     * @param container container
+     */
+    void leave(String key, GenericContainer<?> container) {
+        withLock(key, state -> {
+            state.remove(FORK_PREFIX + PID);
+            pruneDeadForks(state);
+            long forks = countForks(state);
+
+            if (forks == 0) {
+                log.info("Fork {} is the last one using container '{}', stopping it", PID, key);
+                container.stop();
+            } else {
+                log.info("Fork {} left container '{}', forks still using it: {}", PID, key, forks);
+            }
+        });
+    }
+
+    private void withLock(String key, Consumer<Properties> action) {
+        String fileName = key.replaceAll("[^A-Za-z0-9._-]", "_");
+        Path stateFile = directory.resolve(fileName + ".properties");
+
+        ReentrantLock lock = LOCKS.computeIfAbsent(fileName, name -> new ReentrantLock());
+        lock.lock();
+
+        try {
+            try {
+                Files.createDirectories(directory);
+
+                try (FileChannel channel = FileChannel.open(directory.resolve(fileName + ".lock"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        FileLock ignored = channel.lock()) {
+                    var state = new Properties();
+
+                    if (Files.exists(stateFile)) {
+                        try (Reader reader = Files.newBufferedReader(stateFile)) {
+                            state.load(reader);
+                        }
+                    }
+
+                    action.accept(state);
+
+                    if (state.isEmpty()) {
+                        Files.deleteIfExists(stateFile);
+                    } else {
+                        try (Writer writer = Files.newBufferedWriter(stateFile)) {
+                            state.store(writer, key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to coordinate forks sharing container '" + key + "': "
+                        + e.getMessage(), e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes forks whose process is no longer running, or whose PID now belongs to a process started at another
+     * instant.
+     *
+     * @param state fork entries: {@code fork.<pid>=<slot>,<start instant>}
+     */
+    static void pruneDeadForks(Properties state) {
+        state.stringPropertyNames().stream()
+                .filter(name -> name.startsWith(FORK_PREFIX))
+                .filter(name -> !isAlive(Long.parseLong(name.substring(FORK_PREFIX.length())),
+                        state.getProperty(name)))
+                .forEach(state::remove);
+    }
+
+    private static boolean isAlive(long pid, String value) {
+        String[] parts = value.split(VALUE_SEPARATOR, 2);
+        String recordedStartInstant = (parts.length < 2) ? "" : parts[1];
+
+        return ProcessHandle.of(pid)
+                .map(handle -> handle.isAlive() && isSameStart(recordedStartInstant, getStartInstant(handle)))
+                .orElse(false);
+    }
+
+    private static boolean isSameStart(String recordedStartInstant, String startInstant) {
+        // the start instant is unknown on some platforms, then only the PID is checked
+        return recordedStartInstant.isEmpty() || startInstant.isEmpty() || recordedStartInstant.equals(startInstant);
+    }
+
+    private static String getStartInstant(ProcessHandle handle) {
+        return handle.info().startInstant()
+                .map(instant -> String.valueOf(instant.toEpochMilli()))
+                .orElse("");
+    }
+
+    private static int parseSlot(String value) {
+        return Integer.parseInt(value.split(VALUE_SEPARATOR, 2)[0]);
+    }
+
+    private static long countForks(Properties state) {
+        return state.stringPropertyNames().stream()
+                .filter(name -> name.startsWith(FORK_PREFIX))
+                .count();
+    }
+
+}
@@ -0,0 +1,179 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.requestfilter.RequestMatcherExtension;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.matching.MatchResult;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.store.DefaultStores;
+import com.github.tomakehurst.wiremock.store.InMemoryStubMappingStore;
+import com.github.tomakehurst.wiremock.store.StubMappingStore;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.stubbing.SubEvent;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stub mapping store which indexes stubs matching an exact HTTP method and URL path (such as those created by
+ * {@link WireMockCommand}) by method and path, so a request is matched against stubs for its own method and path plus
+ * stubs which can't be indexed (URL patterns, any method, etc.), not against all stubs. Matching order is the same as
+ * in {@link InMemoryStubMappingStore}: by priority, then newest first.
+ * <p>
+ * Requests having percent-encoded paths are matched against all stubs because WireMock may compare decoded paths.
+ */
+class IndexedStubMappingStore implements StubMappingStore {
+
+    /**
+     * WireMock's default for stubs having no priority.
+     */
+    private static final int DEFAULT_PRIORITY = 5;
+
+    private static final Comparator<StubMapping> MATCHING_ORDER = Comparator
+            .comparingInt((StubMapping stub) -> Optional.ofNullable(stub.getPriority()).orElse(DEFAULT_PRIORITY))
+            .thenComparing(Comparator.comparingLong(StubMapping::getInsertionIndex).reversed())
+            .thenComparing(StubMapping::getId);
+
+    private final StubMappingStore delegate = new InMemoryStubMappingStore();
+    private final Map<String, Set<StubMapping>> indexedStubs = new ConcurrentHashMap<>();
+    private final Set<StubMapping> otherStubs = new ConcurrentSkipListSet<>(MATCHING_ORDER);
+
+    @Override
+    public Stream<StubMapping> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public Optional<StubMapping> get(UUID id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Stream<StubMapping> findAllMatchingRequest(Request request,
+            Map<String, RequestMatcherExtension> customMatchers, Consumer<SubEvent> subEventConsumer) {
+        String path = getPath(request.getUrl());
+
+        Stream<StubMapping> candidates = path.contains("%")
+                ? delegate.getAll()
+                : Stream.concat(
+                                indexedStubs.getOrDefault(getIndexKey(request.getMethod(), path), Set.of()).stream(),
+                                otherStubs.stream())
+                        .sorted(MATCHING_ORDER);
+
+        return candidates.filter(stub -> {
+            MatchResult matchResult = stub.getRequest().match(request, customMatchers);
+            matchResult.getSubEvents().forEach(subEventConsumer);
+            return matchResult.isExactMatch();
+        });
+    }
+
+    @Override
+    public void remove(UUID id) {
+        delegate.get(id).ifPresent(this::unindex);
+        delegate.remove(id);
+    }
+
+    @Override
+    public void add(StubMapping stub) {
+        // assigns insertion index
+        delegate.add(stub);
+        index(stub);
+    }
+
+    @Override
+    public void replace(StubMapping existing, StubMapping updated) {
+        delegate.replace(existing, updated);
+        unindex(existing);
+        index(updated);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        indexedStubs.clear();
+        otherStubs.clear();
+    }
+
+    private void index(StubMapping stub) {
+        String indexKey = getIndexKey(stub);
+
+        if (indexKey == null) {
+            otherStubs.add(stub);
+        } else {
+            indexedStubs
+                    .computeIfAbsent(indexKey, k -> new ConcurrentSkipListSet<>(MATCHING_ORDER))
+                    .add(stub);
+        }
+    }
+
+    private void unindex(StubMapping stub) {
+        String indexKey = getIndexKey(stub);
+
+        if (indexKey == null) {
+            otherStubs.remove(stub);
+        } else {
+            indexedStubs.computeIfPresent(indexKey, (k, stubs) -> {
+                stubs.remove(stub);
+                return stubs.isEmpty() ? null : stubs;
+            });
+        }
+    }
+
+    /**
+     * Returns the index key of the stub.
+     *
+     * @param stub stub
+     * @return {@code null} if the stub doesn't match an exact method and path
+     */
+    private static String getIndexKey(StubMapping stub) {
+        RequestPattern requestPattern = stub.getRequest();
+
+        if ((requestPattern.getUrlPath() == null)
+                || (requestPattern.getUrlPathTemplate() != null)
+                || (requestPattern.getMethod() == null)
+                || Objects.equals(requestPattern.getMethod(), RequestMethod.ANY)) {
+            return null;
+        }
+
+        return getIndexKey(requestPattern.getMethod(), requestPattern.getUrlPath());
+    }
+
+    private static String getIndexKey(RequestMethod method, String path) {
+        return method.getName() + " " + path;
+    }
+
+    private static String getPath(String url) {
+        int queryStart = url.indexOf('?');
+        return (queryStart == -1)
+                ? url
+                : url.substring(0, queryStart);
+    }
+
+    /**
+     * Default WireMock stores, except for stub mappings.
+     */
+    static class Stores extends DefaultStores {
+
+        private final StubMappingStore stubMappingStore = new IndexedStubMappingStore();
+
+        Stores(FileSource fileRoot) {
+            super(fileRoot);
+        }
+
+        @Override
+        public StubMappingStore getStubMappingStore() {
+            return stubMappingStore;
+        }
+
+    }
+
+}
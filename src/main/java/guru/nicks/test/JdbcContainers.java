@@ -0,0 +1,52 @@
+package guru.nicks.test;
+
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers for JDBC containers which need databases other than the one created by the container.
+ */
+final class JdbcContainers {
+
+    /**
+     * PostgreSQL database which always exists and is not used by applications.
+     */
+    static final String POSTGRES_ADMIN_DATABASE = "postgres";
+
+    private JdbcContainers() {
+    }
+
+    /**
+     * Replaces the database name in the container JDBC URL, keeping URL parameters.
+     *
+     * @param container container
+     * @param database  database name
+     * @return JDBC URL
+     */
+    static String getJdbcUrl(JdbcDatabaseContainer<?> container, String database) {
+        return container.getJdbcUrl().replaceFirst(
+                "/" + Pattern.quote(container.getDatabaseName()) + "(?=\\?|;|$)",
+                Matcher.quoteReplacement("/" + database));
+    }
+
+    /**
+     * Opens a connection to the given database with the container credentials.
+     *
+     * @param container container
+     * @param database  database name
+     * @param username  user name (the container's one may lack privileges needed, e.g. to create databases)
+     * @param password  password
+     * @return connection (caller must close it)
+     * @throws SQLException error connecting
+     */
+    static Connection openConnection(JdbcDatabaseContainer<?> container, String database,
+            String username, String password) throws SQLException {
+        return DriverManager.getConnection(getJdbcUrl(container, database), username, password);
+    }
+
+}
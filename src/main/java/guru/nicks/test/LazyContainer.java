@@ -0,0 +1,141 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Container of one application context, started on first access (see
+ * {@value AbstractContainerRunner#LAZY_START_PROPERTY}): when the container bean or a lazy bean registered by the
+ * runner (such as {@link LazyDataSource}) is used, or when one of the runner's properties is read via
+ * {@link PropertySource}. Registered as a bean: Spring calls {@link #close()} when the context gets closed, which
+ * releases the container if it was started and logs that it was skipped otherwise.
+ *
+ * @param <C> container type
+ */
+@Slf4j
+final class LazyContainer<C extends GenericContainer<?>> implements Supplier<C>, AutoCloseable {
+
+    private final AbstractContainerRunner<C> runner;
+    private final String contextName;
+    private final String containerKey;
+
+    private volatile C container;
+    private volatile Map<String, String> properties = Map.of();
+
+    LazyContainer(AbstractContainerRunner<C> runner, String contextName) {
+        this.runner = runner;
+        this.contextName = contextName;
+        containerKey = runner.getContainerKey();
+    }
+
+    /**
+     * Starts (or acquires the already running) container on first call.
+     *
+     * @return started container
+     */
+    @Override
+    public C get() {
+        C result = container;
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (this) {
+            if (container == null) {
+                C startedContainer = runner.acquireContainer(contextName);
+                Map<String, String> boundProperties = new LinkedHashMap<>();
+                TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.PROPERTY_BINDING, containerKey,
+                        contextName);
+
+                for (String property : runner.bindLazyContainer(startedContainer)) {
+                    String[] nameAndValue = property.split("=", 2);
+                    boundProperties.put(nameAndValue[0], (nameAndValue.length == 2) ? nameAndValue[1] : "");
+                }
+
+                timer.stop();
+                properties = boundProperties;
+                container = startedContainer;
+                log.info("Container '{}' started on first access by context '{}'", containerKey, contextName);
+            }
+
+            return container;
+        }
+    }
+
+    /**
+     * Tells if the container has been started (or acquired) for this context.
+     *
+     * @return {@code true} if {@link #get()} has been called
+     */
+    boolean isStarted() {
+        return container != null;
+    }
+
+    /**
+     * Returns a property pointing to the container, starting the container if needed.
+     *
+     * @param name property name
+     * @return {@code null} if the runner doesn't set this property
+     */
+    String getProperty(String name) {
+        get();
+        return properties.get(name);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (container == null) {
+            log.info("Context '{}' never accessed container '{}', it was not started", contextName, containerKey);
+            return;
+        }
+
+        runner.unbindLazyContainer();
+        ContainerRegistry.release(containerKey);
+    }
+
+    /**
+     * Resolves properties of the runner, starting the container on first access. Property names are not listed
+     * before the container starts if the runner has registered lazy beans instead of those Spring Boot would create
+     * from these properties - otherwise binding configuration properties (which happens at context startup,
+     * regardless of whether the beans are used) would start the container.
+     */
+    static class PropertySource extends EnumerablePropertySource<LazyContainer<?>> {
+
+        private final Set<String> names;
+        private final boolean listNamesBeforeStart;
+
+        PropertySource(LazyContainer<?> lazyContainer, List<String> names, boolean listNamesBeforeStart) {
+            super(LazyContainer.class.getName() + "." + lazyContainer.containerKey, lazyContainer);
+            this.names = Set.copyOf(names);
+            this.listNamesBeforeStart = listNamesBeforeStart;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return (listNamesBeforeStart || getSource().isStarted())
+                    ? names.toArray(String[]::new)
+                    : new String[0];
+        }
+
+        @Override
+        public boolean containsProperty(String name) {
+            return getProperty(name) != null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return names.contains(name)
+                    ? getSource().getProperty(name)
+                    : null;
+        }
+
+    }
+
+}
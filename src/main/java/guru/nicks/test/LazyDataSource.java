@@ -0,0 +1,123 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Registered by JDBC runners in lazy mode (see {@value AbstractContainerRunner#LAZY_START_PROPERTY}) instead of the
+ * {@link DataSource} Spring Boot would auto-configure: starts the container and creates the actual connection pool on
+ * first use. The pool is built by {@link DataSourceBuilder} from {@code spring.datasource.*} properties set by the
+ * runner ({@code spring.datasource.hikari.*} and the like are not applied).
+ */
+@Slf4j
+class LazyDataSource implements DataSource, AutoCloseable {
+
+    /**
+     * Properties set by JDBC runners, except for {@link #STATIC_PROPERTIES}.
+     */
+    static final List<String> PROPERTY_NAMES = List.of(
+            "spring.datasource.url",
+            "spring.datasource.username",
+            "spring.datasource.password",
+            "spring.datasource.driver-class-name");
+
+    /**
+     * Properties set by JDBC runners which don't depend on the container.
+     */
+    static final List<String> STATIC_PROPERTIES = List.of("spring.test.database.replace=none");
+
+    private final LazyContainer<?> lazyContainer;
+
+    private volatile DataSource dataSource;
+
+    LazyDataSource(LazyContainer<?> lazyContainer) {
+        this.lazyContainer = lazyContainer;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close DataSource: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getDataSource().getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return getDataSource().getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        getDataSource().setLogWriter(out);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return getDataSource().getLoginTimeout();
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        getDataSource().setLoginTimeout(seconds);
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return getDataSource().getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this)
+                ? iface.cast(this)
+                : getDataSource().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || getDataSource().isWrapperFor(iface);
+    }
+
+    private DataSource getDataSource() {
+        DataSource result = dataSource;
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (this) {
+            if (dataSource == null) {
+                dataSource = DataSourceBuilder.create()
+                        .url(lazyContainer.getProperty("spring.datasource.url"))
+                        .username(lazyContainer.getProperty("spring.datasource.username"))
+                        .password(lazyContainer.getProperty("spring.datasource.password"))
+                        .driverClassName(lazyContainer.getProperty("spring.datasource.driver-class-name"))
+                        .build();
+            }
+
+            return dataSource;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package guru.nicks.test;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Registers a synchronous {@link MongoClient} (see {@link LazyProxy}) which starts the container and connects on first
+ * use, in place of the one Spring Boot would auto-configure. Kept apart from {@link MongoContainerRunner}, so the
+ * runner works without the MongoDB driver on the classpath (it starts eagerly then).
+ */
+final class LazyMongoClient {
+
+    private static final String MONGO_CLIENTS = "com.mongodb.client.MongoClients";
+
+    private LazyMongoClient() {
+    }
+
+    /**
+     * Tells if the synchronous MongoDB driver is on the classpath.
+     *
+     * @return {@code true} if the client can be registered
+     */
+    static boolean isSupported() {
+        return ClassUtils.isPresent(MONGO_CLIENTS, LazyMongoClient.class.getClassLoader());
+    }
+
+    /**
+     * Registers the client, connecting to {@code spring.data.mongodb.uri}.
+     *
+     * @param applicationContext application context
+     * @param lazyContainer      container to start on first use
+     */
+    static void register(GenericApplicationContext applicationContext, LazyContainer<?> lazyContainer) {
+        applicationContext.registerBean(MongoClient.class, () -> LazyProxy.create(
+                MongoClient.class,
+                () -> MongoClients.create(lazyContainer.getProperty("spring.data.mongodb.uri")),
+                MongoClient::close));
+    }
+
+}
@@ -0,0 +1,99 @@
+package guru.nicks.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Registered by runners in lazy mode (see {@value AbstractContainerRunner#LAZY_START_PROPERTY}) instead of a client
+ * Spring Boot would auto-configure, such as MongoDB {@code MongoClient}: a JDK proxy which creates the actual client
+ * (starting the container via {@link LazyContainer}) on first call. Unlike {@link LazyDataSource}, it doesn't depend on
+ * the interface version. The proxy is also {@link AutoCloseable}, so Spring closes it with the context: the client is
+ * closed if it has been created.
+ *
+ * @param <T> client type
+ */
+final class LazyProxy<T> implements InvocationHandler {
+
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final Consumer<T> closer;
+
+    private volatile T target;
+
+    private LazyProxy(Class<T> type, Supplier<T> factory, Consumer<T> closer) {
+        this.type = type;
+        this.factory = factory;
+        this.closer = closer;
+    }
+
+    /**
+     * Creates a proxy.
+     *
+     * @param type    client interface
+     * @param factory creates the client, starting the container if needed
+     * @param closer  closes the client
+     * @param <T>     client type
+     * @return proxy implementing the client interface and {@link AutoCloseable}
+     */
+    static <T> T create(Class<T> type, Supplier<T> factory, Consumer<T> closer) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type, AutoCloseable.class},
+                new LazyProxy<>(type, factory, closer));
+        return type.cast(proxy);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        int argCount = (args == null) ? 0 : args.length;
+
+        if (name.equals("equals") && (argCount == 1)) {
+            return proxy == args[0];
+        }
+
+        if (name.equals("hashCode") && (argCount == 0)) {
+            return System.identityHashCode(proxy);
+        }
+
+        if (name.equals("toString") && (argCount == 0)) {
+            return "Lazy " + type.getSimpleName() + ((target == null) ? " (not created)" : (": " + target));
+        }
+
+        // the client's own close() as well as AutoCloseable's
+        if (name.equals("close") && (argCount == 0)) {
+            close();
+            return null;
+        }
+
+        try {
+            return method.invoke(getTarget(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private T getTarget() {
+        T result = target;
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (this) {
+            if (target == null) {
+                target = factory.get();
+            }
+
+            return target;
+        }
+    }
+
+    private synchronized void close() {
+        if (target != null) {
+            closer.accept(target);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package guru.nicks.test;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Registers a {@link RedisConnectionFactory} (see {@link LazyProxy}) which starts the container and creates a Lettuce
+ * connection factory on first use, in place of the one Spring Boot would auto-configure. Kept apart from
+ * {@link RedisContainerRunner}, so the runner works without Spring Data Redis on the classpath (it starts eagerly
+ * then).
+ */
+final class LazyRedisConnectionFactory {
+
+    private static final String LETTUCE_CONNECTION_FACTORY =
+            "org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory";
+
+    private LazyRedisConnectionFactory() {
+    }
+
+    /**
+     * Tells if Spring Data Redis and Lettuce are on the classpath.
+     *
+     * @return {@code true} if the connection factory can be registered
+     */
+    static boolean isSupported() {
+        return ClassUtils.isPresent(LETTUCE_CONNECTION_FACTORY, LazyRedisConnectionFactory.class.getClassLoader());
+    }
+
+    /**
+     * Registers the connection factory, connecting to the host, port and database of the partition.
+     *
+     * @param applicationContext application context
+     * @param lazyContainer      container to start on first use
+     */
+    static void register(GenericApplicationContext applicationContext, LazyContainer<?> lazyContainer) {
+        applicationContext.registerBean(RedisConnectionFactory.class, () -> LazyProxy.create(
+                RedisConnectionFactory.class,
+                () -> createConnectionFactory(lazyContainer),
+                connectionFactory -> ((LettuceConnectionFactory) connectionFactory).destroy()));
+    }
+
+    private static RedisConnectionFactory createConnectionFactory(LazyContainer<?> lazyContainer) {
+        var configuration = new RedisStandaloneConfiguration(lazyContainer.getProperty("spring.redis.host"),
+                Integer.parseInt(lazyContainer.getProperty("spring.redis.port")));
+        configuration.setDatabase(Integer.parseInt(lazyContainer.getProperty("spring.redis.database")));
+
+        var connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        return connectionFactory;
+    }
+
+}
@@ -0,0 +1,304 @@
+package guru.nicks.test;
+
+import com.github.dockerjava.api.exception.NotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.util.ClassUtils;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches database containers with migrations applied as local Docker images tagged with the checksum of migration
+ * scripts found on the classpath. The first run starts the container from the base image, lets Flyway/Liquibase
+ * migrate it and commits the container as {@code <base image>-migrated:<base tag>-<checksum>}; later runs start from
+ * that image, so Flyway/Liquibase find nothing to migrate. Any change in migration scripts changes the checksum and
+ * thus invalidates the cache.
+ * <p>
+ * {@code docker commit} doesn't capture volumes and tmpfs mounts, therefore runners move the data directory out of the
+ * image volume, and the cache can't be combined with fast (tmpfs) mode.
+ */
+@Slf4j
+final class MigratedImageCache {
+
+    /**
+     * Comma-separated resource patterns of migration scripts, default is {@value #DEFAULT_LOCATIONS} (default
+     * locations of Flyway and Liquibase).
+     */
+    public static final String LOCATIONS_PROPERTY = "guru.nicks.test.migrated-image-cache.locations";
+    public static final String DEFAULT_LOCATIONS = "classpath*:db/migration/**/*.*,classpath*:db/changelog/**/*.*";
+
+    private static final String IMAGE_SUFFIX = "-migrated";
+    private static final int CHECKSUM_LENGTH = 16;
+
+    private static final ResourcePatternResolver RESOURCE_RESOLVER = new PathMatchingResourcePatternResolver(
+            MethodHandles.lookup().lookupClass().getClassLoader());
+
+    private static final List<String> MIGRATION_BEAN_CLASSES = List.of(
+            "org.flywaydb.core.Flyway",
+            "liquibase.integration.spring.SpringLiquibase");
+
+    /**
+     * Images committed by this JVM.
+     */
+    private static final Set<String> COMMITTED_IMAGES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * IDs of containers tests have run against: their data is not just migrated anymore.
+     */
+    private static final Set<String> USED_CONTAINERS = ConcurrentHashMap.newKeySet();
+
+    private MigratedImageCache() {
+    }
+
+    /**
+     * Computes the checksum of migration scripts: their paths (relative to the classpath root, so moving a script to
+     * another directory changes the checksum, but building in another directory doesn't) and contents, in path order.
+     *
+     * @param locations comma-separated resource patterns
+     * @return hex-encoded checksum
+     * @throws IllegalArgumentException error reading resources
+     */
+    static String computeChecksum(String locations) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+
+            for (Script script : findScripts(locations)) {
+                digest.update(script.path().getBytes(StandardCharsets.UTF_8));
+
+                try (InputStream in = new DigestInputStream(script.resource().getInputStream(), digest)) {
+                    // the stream updates the digest
+                    while (in.read(buffer) != -1) {
+                        // read everything
+                    }
+                }
+            }
+
+            return HexFormat.of().formatHex(digest.digest()).substring(0, CHECKSUM_LENGTH);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error reading migration scripts: " + e.getMessage(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the name of the image holding the migrated database.
+     *
+     * @param baseImage base image
+     * @param checksum  migration scripts checksum
+     * @return image name
+     */
+    static DockerImageName getCachedImage(DockerImageName baseImage, String checksum) {
+        return DockerImageName
+                .parse(baseImage.getUnversionedPart() + IMAGE_SUFFIX)
+                .withTag(baseImage.getVersionPart() + "-" + checksum);
+    }
+
+    /**
+     * Checks if the image exists locally.
+     *
+     * @param image image name
+     * @return {@code true} if the image exists
+     */
+    static boolean exists(DockerImageName image) {
+        try {
+            DockerClientFactory.lazyClient()
+                    .inspectImageCmd(image.asCanonicalNameString())
+                    .exec();
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    private static List<Script> findScripts(String locations) throws IOException {
+        List<Script> scripts = new ArrayList<>();
+
+        for (String location : locations.split(",")) {
+            String root = getRoot(location.strip());
+
+            for (Resource resource : RESOURCE_RESOLVER.getResources(location.strip())) {
+                if (resource.isReadable()) {
+                    scripts.add(new Script(getPath(resource, root), resource));
+                }
+            }
+        }
+
+        scripts.sort(Comparator.comparing(Script::path));
+        return scripts;
+    }
+
+    /**
+     * Returns the directory part of a resource pattern preceding wildcards.
+     *
+     * @param location resource pattern, such as {@code classpath*:db/migration/**}{@code /*.sql}
+     * @return root, such as {@code db/migration/}, empty if the pattern starts with a wildcard
+     */
+    static String getRoot(String location) {
+        String path = StringUtils.removeStart(location.substring(location.indexOf(':') + 1), "/");
+        int wildcard = StringUtils.indexOfAny(path, '*', '?', '{');
+        String prefix = (wildcard < 0) ? path : path.substring(0, wildcard);
+
+        return prefix.substring(0, prefix.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Returns the resource path starting with the root, which is the same whether the resource is in a directory or
+     * a JAR, and wherever the project is built.
+     *
+     * @param resource resource found by the pattern
+     * @param root     {@link #getRoot(String) root} of the pattern
+     * @return path, such as {@code db/migration/v2/V2__add_index.sql}, or the file name if the root is empty
+     * @throws IOException the resource has no URL
+     */
+    static String getPath(Resource resource, String root) throws IOException {
+        String url = resource.getURL().toString();
+        int rootIndex = root.isEmpty() ? -1 : url.lastIndexOf("/" + root);
+
+        return (rootIndex < 0)
+                ? Objects.requireNonNull(resource.getFilename())
+                : url.substring(rootIndex + 1);
+    }
+
+    /**
+     * Migration script.
+     *
+     * @param path     {@link #getPath(Resource, String) path}
+     * @param resource resource
+     */
+    private record Script(String path, Resource resource) {
+    }
+
+    /**
+     * Commits the container as the cached image once the context has been refreshed, i.e. migrations have been
+     * applied. Does nothing if the context has no Flyway/Liquibase bean (the database would not be migrated), the
+     * image has already been committed, or tests have already run against the container (see
+     * {@link ExecutionListener}) - the image would capture their data.
+     */
+    @RequiredArgsConstructor
+    static class Committer implements ApplicationListener<ContextRefreshedEvent> {
+
+        private final GenericContainer<?> container;
+        private final DockerImageName image;
+
+        /**
+         * Flushes data to disk before committing (may do nothing).
+         */
+        private final Runnable beforeCommit;
+
+        @Override
+        public void onApplicationEvent(ContextRefreshedEvent event) {
+            if (!hasMigrationBeans(event.getApplicationContext())) {
+                return;
+            }
+
+            if (USED_CONTAINERS.contains(container.getContainerId())) {
+                log.info("Not committing migrated database as image '{}': tests have already run against it",
+                        image.asCanonicalNameString());
+                return;
+            }
+
+            if (!COMMITTED_IMAGES.add(image.asCanonicalNameString())) {
+                return;
+            }
+
+            try {
+                beforeCommit.run();
+                long start = System.nanoTime();
+
+                DockerClientFactory.instance().client()
+                        .commitCmd(container.getContainerId())
+                        .withRepository(image.getUnversionedPart())
+                        .withTag(image.getVersionPart())
+                        // otherwise Ryuk removes the image at the end of the session
+                        .withLabels(Map.of(DockerClientFactory.TESTCONTAINERS_SESSION_ID_LABEL, IMAGE_SUFFIX))
+                        .exec();
+
+                log.info("Committed migrated database as image '{}' in {} ms", image.asCanonicalNameString(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (RuntimeException e) {
+                COMMITTED_IMAGES.remove(image.asCanonicalNameString());
+                log.warn("Failed to commit migrated database as image '{}': {}", image.asCanonicalNameString(),
+                        e.getMessage(), e);
+            }
+        }
+
+        private static boolean hasMigrationBeans(ApplicationContext applicationContext) {
+            ClassLoader classLoader = MigratedImageCache.class.getClassLoader();
+
+            return MIGRATION_BEAN_CLASSES.stream()
+                    .filter(className -> ClassUtils.isPresent(className, classLoader))
+                    .map(className -> ClassUtils.resolveClassName(className, classLoader))
+                    .anyMatch(beanClass -> applicationContext.getBeanNamesForType(beanClass).length > 0);
+        }
+
+        void markUsed() {
+            USED_CONTAINERS.add(container.getContainerId());
+        }
+
+    }
+
+    /**
+     * Marks containers of the test context as used before each test class and method, so that contexts refreshed
+     * later don't commit test data. Registered automatically via {@code META-INF/spring.factories}.
+     */
+    public static class ExecutionListener extends AbstractTestExecutionListener {
+
+        /**
+         * After {@link TestTimings.ExecutionListener} which loads the context (so migrations are committed before),
+         * and before {@link TestIsolationExecutionListener} which may create databases in the container.
+         */
+        public static final int ORDER = TestTimings.ExecutionListener.ORDER + 100;
+
+        @Override
+        public int getOrder() {
+            return ORDER;
+        }
+
+        @Override
+        public void beforeTestClass(TestContext testContext) {
+            markUsed(testContext);
+        }
+
+        @Override
+        public void beforeTestMethod(TestContext testContext) {
+            markUsed(testContext);
+        }
+
+        private void markUsed(TestContext testContext) {
+            testContext.getApplicationContext()
+                    .getBeanProvider(Committer.class)
+                    .forEach(Committer::markUsed);
+        }
+
+    }
+
+}
@@ -1,46 +1,162 @@
 package guru.nicks.test;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.test.util.TestPropertyValues;
-import org.springframework.context.ApplicationContextInitializer;
+import com.github.dockerjava.api.command.InspectContainerResponse;
 import org.springframework.context.support.GenericApplicationContext;
 import org.testcontainers.containers.MongoDBContainer;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
- * Runs MySQL (version {@value #MONGO_IMAGE}) via TestContainers and sets Spring datasource properties accordingly: URL,
- * driver name etc. (DB name and credentials are generated by the container). Stops container bean when Spring context
- * gets closed.
+ * Runs MongoDB (version {@value #MONGO_IMAGE}) via TestContainers and sets Spring properties accordingly: URL etc. (DB
+ * name is generated by the container). The container is shared by all Spring contexts via {@link ContainerRegistry}.
+ * If the container is shared between forks, each fork gets its own database: {@code test_fork<slot>}.
+ * <p>
+ * Unless {@value #READINESS_PROBE_PROPERTY} is {@code false}, readiness is checked with {@code hello} commands polled
+ * with exponential backoff (see {@link ReadinessProbe}, the maximum interval is taken from
+ * {@value #READINESS_PROBE_MAX_INTERVAL_PROPERTY}), and the replica set is initiated via the wire protocol rather than
+ * {@code mongosh} run in the container, which takes seconds.
+ * <p>
+ * In lazy mode (see {@link AbstractContainerRunner#LAZY_START_PROPERTY}), a synchronous {@code MongoClient} (see
+ * {@link LazyMongoClient}) is registered in place of the auto-configured one. Lazy mode requires the synchronous
+ * MongoDB driver on the classpath and is not supported if the container is shared between forks: until the container
+ * starts, Spring Data sees Spring Boot's default URI, whose database ({@code test}) is that of a non-shared container.
  */
-@Slf4j
-public class MongoContainerRunner implements ApplicationContextInitializer<GenericApplicationContext> {
+public class MongoContainerRunner extends AbstractContainerRunner<MongoDBContainer> {
 
     public static final String MONGO_IMAGE = "mongo:7.0.15";
 
+    /**
+     * Prefix of settings read by {@link AbstractContainerRunner}.
+     */
+    static final String PROPERTY_PREFIX = "guru.nicks.test.mongo";
+
+    public static final String READINESS_PROBE_PROPERTY = PROPERTY_PREFIX + READINESS_PROBE_ENABLED_SUFFIX;
+    public static final String READINESS_PROBE_MAX_INTERVAL_PROPERTY =
+            PROPERTY_PREFIX + READINESS_PROBE_MAX_INTERVAL_SUFFIX;
+
+    static final int MONGO_PORT = 27017;
+
+    /**
+     * Properties which don't depend on the container.
+     */
+    private static final List<String> STATIC_PROPERTIES = List.of(
+            "spring.test.database.replace=none",
+            // without this, index annotations aren't applied, see
+            // https://docs.spring.io/spring-data/mongodb/docs/current/reference/html/#new-features.3.0
+            "spring.data.mongodb.auto-index-creation=true");
+
+    @Override
+    protected String getPropertyPrefix() {
+        return PROPERTY_PREFIX;
+    }
+
+    @Override
+    public String getContainerKey() {
+        return MONGO_IMAGE;
+    }
+
+    @Override
+    protected MongoDBContainer createContainer() {
+        return (getReadinessProbeMaxInterval() == null)
+                ? new MongoDBContainer(MONGO_IMAGE)
+                : new ProbedMongoContainer(getReadinessProbeMaxInterval());
+    }
+
+    @Override
+    protected Class<? super MongoDBContainer> getContainerBeanClass() {
+        return MongoDBContainer.class;
+    }
+
+    /**
+     * Drops the database of this fork, which may hold data left in the slot by a crashed fork (MongoDB creates
+     * databases on first write).
+     *
+     * @param container started container
+     */
+    @Override
+    protected void provision(MongoDBContainer container) {
+        if (getForkSlot() == 0) {
+            return;
+        }
+
+        try (var client = new MongoWireClient(container.getHost(), container.getMappedPort(MONGO_PORT),
+                Duration.ofSeconds(10))) {
+            client.runCommand(getForkDatabaseName(), Map.of("dropDatabase", 1));
+        }
+    }
+
+    @Override
+    protected List<String> getLazyPropertyNames() {
+        return (isSharedBetweenForks() || !LazyMongoClient.isSupported())
+                ? List.of()
+                : List.of("spring.data.mongodb.uri");
+    }
+
+    @Override
+    protected List<String> getStaticTestProperties() {
+        return STATIC_PROPERTIES;
+    }
+
     @Override
-    public void initialize(GenericApplicationContext applicationContext) {
-        MongoDBContainer container = createAndStartContainer(applicationContext);
+    boolean registerLazyBeans(GenericApplicationContext applicationContext,
+            LazyContainer<MongoDBContainer> lazyContainer) {
+        LazyMongoClient.register(applicationContext, lazyContainer);
+        return true;
+    }
 
-        // the only reason to register bean is to stop DB container when app context is closed
-        applicationContext.registerBean(MongoDBContainer.class,
-                () -> container,
-                beanDefinition -> beanDefinition.setDestroyMethodName("stop"));
+    @Override
+    protected List<String> getTestProperties(MongoDBContainer container) {
+        List<String> properties = new ArrayList<>(STATIC_PROPERTIES);
+        properties.add("spring.data.mongodb.uri=" + ((getForkSlot() == 0)
+                ? container.getReplicaSetUrl()
+                : container.getReplicaSetUrl(getForkDatabaseName())));
+        return properties;
     }
 
-    private MongoDBContainer createAndStartContainer(GenericApplicationContext applicationContext) {
-        var container = new MongoDBContainer(MONGO_IMAGE);
-        container.start();
+    private String getForkDatabaseName() {
+        return "test_fork" + getForkSlot();
+    }
+
+    /**
+     * MongoDB container which waits for {@code hello} instead of a log message and initiates the single-node replica
+     * set (named {@code docker-rs}, as configured by {@link MongoDBContainer}) without {@code mongosh}.
+     */
+    private static class ProbedMongoContainer extends MongoDBContainer {
+
+        private static final Duration PRIMARY_TIMEOUT = Duration.ofSeconds(60);
+
+        private final Duration maxInterval;
+
+        ProbedMongoContainer(Duration maxInterval) {
+            super(MONGO_IMAGE);
+            this.maxInterval = maxInterval;
+            waitingFor(ReadinessProbe.mongoHello(MONGO_PORT, maxInterval));
+        }
+
+        @Override
+        protected void containerIsStarted(InspectContainerResponse containerInfo, boolean reused) {
+            if (!reused) {
+                Map<String, Object> config = new LinkedHashMap<>();
+                config.put("_id", "docker-rs");
+                config.put("members", List.of(Map.of(
+                        "_id", 0,
+                        "host", containerInfo.getConfig().getHostName() + ":" + MONGO_PORT)));
+
+                Map<String, Object> command = new LinkedHashMap<>();
+                command.put("replSetInitiate", config);
 
-        TestPropertyValues testProps = TestPropertyValues.of(
-                "spring.test.database.replace=none",
-                // without this, index annotations aren't applied, see
-                // https://docs.spring.io/spring-data/mongodb/docs/current/reference/html/#new-features.3.0
-                "spring.data.mongodb.auto-index-creation=true",
-                "spring.data.mongodb.uri=" + container.getReplicaSetUrl());
+                try (var client = new MongoWireClient(getHost(), getMappedPort(MONGO_PORT), Duration.ofSeconds(10))) {
+                    client.runCommand("admin", command);
+                }
+            }
 
-        log.debug("Assigning application properties for running tests: {}", testProps);
-        testProps.applyTo(applicationContext);
+            ReadinessProbe.awaitMongoPrimary(getHost(), getMappedPort(MONGO_PORT), PRIMARY_TIMEOUT, maxInterval);
+        }
 
-        return container;
     }
 
 }
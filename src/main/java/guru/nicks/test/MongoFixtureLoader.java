@@ -0,0 +1,187 @@
+package guru.nicks.test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Streams NDJSON classpath fixtures (optionally gzipped) into a MongoDB collection via unordered {@code insert}
+ * commands, each carrying up to {@value #BATCH_BYTES} bytes of BSON (at most {@value #BATCH_DOCUMENTS} documents),
+ * which saves a round trip per document. Indexes, if any, are created after the load, which is faster than
+ * maintaining them on each insert.
+ * <p>
+ * Documents are plain JSON: numbers become 32/64-bit integers or doubles, Extended JSON ({@code $oid}, {@code $date},
+ * etc.) is not interpreted. Documents without {@code _id} get one from the server.
+ */
+@Slf4j
+public final class MongoFixtureLoader {
+
+    /**
+     * Encoded BSON bytes of the documents per batch, leaving room for the rest of the command within the 16 MB command
+     * size limit. A single document larger than this is sent alone.
+     */
+    public static final int BATCH_BYTES = 15 * 1024 * 1024;
+
+    /**
+     * MongoDB limit of documents per write command.
+     */
+    public static final int BATCH_DOCUMENTS = 100_000;
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private static final ObjectReader DOCUMENT_READER = new ObjectMapper()
+            .readerFor(new TypeReference<LinkedHashMap<String, Object>>() {
+            });
+
+    private MongoFixtureLoader() {
+    }
+
+    /**
+     * Loads the fixture into the collection, then creates the indexes.
+     *
+     * @param container  container
+     * @param database   database
+     * @param collection collection
+     * @param path       path to the fixture ('classpath:' is prepended automatically)
+     * @param indexKeys  key of each index to create, such as {@code Map.of("customerId", 1)} (use an ordered map for
+     *                   compound indexes)
+     * @return number of documents inserted
+     * @throws IllegalStateException error reading the fixture or writing to the database
+     */
+    public static long load(MongoDBContainer container, String database, String collection, String path,
+            List<Map<String, Object>> indexKeys) {
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.FIXTURE_LOAD,
+                path + " -> " + database + "." + collection);
+        long documentCount = 0;
+
+        try (BufferedReader reader = FixtureLoader.openReader(path);
+                var client = new MongoWireClient(container.getHost(),
+                        container.getMappedPort(MongoContainerRunner.MONGO_PORT), TIMEOUT)) {
+            List<Object> batch = new ArrayList<>();
+            long batchBytes = 0;
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                Object document = normalize(DOCUMENT_READER.readValue(line));
+                // as an element of the 'documents' array
+                int documentBytes = MongoWireClient.elementSize(String.valueOf(batch.size()), document);
+
+                if (!batch.isEmpty() && (batchBytes + documentBytes > BATCH_BYTES)) {
+                    documentCount += insert(client, database, collection, batch);
+                    batchBytes = 0;
+                    documentBytes = MongoWireClient.elementSize("0", document);
+                }
+
+                batch.add(document);
+                batchBytes += documentBytes;
+
+                if (batch.size() >= BATCH_DOCUMENTS) {
+                    documentCount += insert(client, database, collection, batch);
+                    batchBytes = 0;
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                documentCount += insert(client, database, collection, batch);
+            }
+
+            if (!indexKeys.isEmpty()) {
+                createIndexes(client, database, collection, indexKeys);
+            }
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            throw new IllegalStateException("Failed to load MongoDB fixture '" + path + "': " + e.getMessage(), e);
+        }
+
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(timer.stop()));
+        log.info("Inserted {} documents into '{}.{}' from '{}' in {} ms ({} documents/s)", documentCount, database,
+                collection, path, millis, documentCount * 1000 / millis);
+        return documentCount;
+    }
+
+    private static int insert(MongoWireClient client, String database, String collection, List<Object> batch) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("insert", collection);
+        command.put("documents", batch);
+        command.put("ordered", false);
+
+        Map<String, Object> reply = client.runCommand(database, command);
+        if (reply.get("writeErrors") instanceof List<?> writeErrors && !writeErrors.isEmpty()) {
+            throw new IllegalStateException(writeErrors.size() + " documents not inserted, first error: "
+                    + writeErrors.getFirst());
+        }
+
+        int count = batch.size();
+        batch.clear();
+        return count;
+    }
+
+    private static void createIndexes(MongoWireClient client, String database, String collection,
+            List<Map<String, Object>> indexKeys) {
+        List<Object> indexes = new ArrayList<>(indexKeys.size());
+
+        for (Map<String, Object> key : indexKeys) {
+            Map<String, Object> index = new LinkedHashMap<>();
+            index.put("key", key);
+            // same as MongoDB default names
+            index.put("name", key.entrySet()
+                    .stream()
+                    .map(entry -> entry.getKey() + "_" + entry.getValue())
+                    .collect(Collectors.joining("_")));
+            indexes.add(index);
+        }
+
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("createIndexes", collection);
+        command.put("indexes", indexes);
+
+        long start = System.nanoTime();
+        client.runCommand(database, command);
+        log.debug("Created {} indexes on '{}.{}' in {} ms", indexes.size(), database, collection,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Converts Jackson number types to those {@link MongoWireClient} can encode.
+     *
+     * @param value parsed JSON value
+     * @return BSON-compatible value
+     */
+    static Object normalize(Object value) {
+        return switch (value) {
+            case BigInteger bigInteger -> (bigInteger.bitLength() < 64)
+                    ? (Object) bigInteger.longValue()
+                    : (Object) bigInteger.doubleValue();
+            case BigDecimal bigDecimal -> bigDecimal.doubleValue();
+            case Float f -> f.doubleValue();
+            case Short s -> s.intValue();
+            case Map<?, ?> map -> {
+                Map<String, Object> document = new LinkedHashMap<>();
+                map.forEach((key, mapValue) -> document.put(String.valueOf(key), normalize(mapValue)));
+                yield document;
+            }
+            case List<?> list -> list.stream()
+                    .map(MongoFixtureLoader::normalize)
+                    .toList();
+            case null, default -> value;
+        };
+    }
+
+}
@@ -0,0 +1,327 @@
+package guru.nicks.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal MongoDB client sending commands as {@code OP_MSG} over a plain socket: enough for readiness checks and
+ * replica set initiation without depending on the MongoDB driver and without running {@code mongosh} in the container
+ * (which takes about a second per call). Not thread-safe.
+ * <p>
+ * BSON values are mapped as follows: documents - {@link Map} (insertion-ordered), arrays - {@link List}, strings -
+ * {@link String}, 32/64-bit integers - {@link Integer}/{@link Long}, doubles - {@link Double}, booleans -
+ * {@link Boolean}. Other types are skipped when reading (mapped to {@code null}) and not supported when writing.
+ */
+final class MongoWireClient implements Closeable {
+
+    private static final int OP_MSG = 2013;
+    private static final int HEADER_SIZE = 16;
+    private static final AtomicInteger REQUEST_ID = new AtomicInteger();
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final DataInputStream in;
+
+    /**
+     * Connects to MongoDB.
+     *
+     * @param host    host
+     * @param port    port
+     * @param timeout connect and read timeout
+     * @throws UncheckedIOException error connecting
+     */
+    MongoWireClient(String host, int port, Duration timeout) {
+        socket = new Socket();
+
+        try {
+            socket.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+            socket.setSoTimeout((int) timeout.toMillis());
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = new DataInputStream(socket.getInputStream());
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException("Failed to connect to MongoDB at " + host + ":" + port + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs the command.
+     *
+     * @param database database
+     * @param command  command (the first key is the command name)
+     * @return reply
+     * @throws IllegalStateException command failed ({@code ok} is not 1)
+     * @throws UncheckedIOException  I/O error
+     */
+    Map<String, Object> runCommand(String database, Map<String, Object> command) {
+        Map<String, Object> body = new LinkedHashMap<>(command);
+        body.put("$db", database);
+        byte[] document = encodeDocument(body);
+
+        ByteBuffer message = ByteBuffer.allocate(HEADER_SIZE + 4 + 1 + document.length)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(HEADER_SIZE + 4 + 1 + document.length)
+                .putInt(REQUEST_ID.incrementAndGet())
+                // responseTo
+                .putInt(0)
+                .putInt(OP_MSG)
+                // flag bits
+                .putInt(0)
+                // section kind 0: body
+                .put((byte) 0)
+                .put(document);
+
+        Map<String, Object> reply;
+        try {
+            out.write(message.array());
+            out.flush();
+            reply = readReply();
+        } catch (IOException e) {
+            throw new UncheckedIOException("MongoDB I/O error: " + e.getMessage(), e);
+        }
+
+        if (!(reply.get("ok") instanceof Number ok) || (ok.doubleValue() != 1)) {
+            throw new IllegalStateException("MongoDB command failed: " + reply.get("errmsg"));
+        }
+
+        return reply;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly();
+    }
+
+    private Map<String, Object> readReply() throws IOException {
+        byte[] lengthBytes = new byte[4];
+        in.readFully(lengthBytes);
+        int length = ByteBuffer.wrap(lengthBytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+
+        byte[] rest = new byte[length - 4];
+        in.readFully(rest);
+        ByteBuffer buffer = ByteBuffer.wrap(rest).order(ByteOrder.LITTLE_ENDIAN);
+
+        // requestID, responseTo
+        buffer.position(8);
+        int opCode = buffer.getInt();
+        if (opCode != OP_MSG) {
+            throw new IllegalStateException("Unexpected MongoDB reply opcode: " + opCode);
+        }
+
+        // flag bits
+        buffer.getInt();
+        byte sectionKind = buffer.get();
+        if (sectionKind != 0) {
+            throw new IllegalStateException("Unexpected MongoDB reply section kind: " + sectionKind);
+        }
+
+        return decodeDocument(buffer);
+    }
+
+    private void closeQuietly() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    static byte[] encodeDocument(Map<String, ?> document) {
+        var elements = new ByteArrayOutputStream();
+        document.forEach((name, value) -> encodeElement(elements, name, value));
+
+        return ByteBuffer.allocate(4 + elements.size() + 1)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(4 + elements.size() + 1)
+                .put(elements.toByteArray())
+                .put((byte) 0)
+                .array();
+    }
+
+    /**
+     * Computes the size of a document element (type, name and value) without encoding it.
+     *
+     * @param name  element name
+     * @param value element value
+     * @return size in bytes
+     * @throws IllegalArgumentException unsupported value type
+     */
+    static int elementSize(String name, Object value) {
+        int valueSize = switch (value) {
+            case null -> 0;
+            case Double d -> 8;
+            case String s -> 4 + s.getBytes(StandardCharsets.UTF_8).length + 1;
+            case Map<?, ?> map -> {
+                int size = 4 + 1;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    size += elementSize(String.valueOf(entry.getKey()), entry.getValue());
+                }
+                yield size;
+            }
+            case List<?> list -> {
+                int size = 4 + 1;
+                for (int i = 0; i < list.size(); i++) {
+                    size += elementSize(String.valueOf(i), list.get(i));
+                }
+                yield size;
+            }
+            case Boolean b -> 1;
+            case Integer i -> 4;
+            case Long l -> 8;
+            default -> throw new IllegalArgumentException("Unsupported BSON value type: " + value.getClass());
+        };
+
+        return 1 + name.getBytes(StandardCharsets.UTF_8).length + 1 + valueSize;
+    }
+
+    private static void encodeElement(ByteArrayOutputStream out, String name, Object value) {
+        byte[] valueBytes;
+        byte type;
+
+        switch (value) {
+            case null -> {
+                type = 0x0A;
+                valueBytes = new byte[0];
+            }
+
+            case Double d -> {
+                type = 0x01;
+                valueBytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(d).array();
+            }
+
+            case String s -> {
+                type = 0x02;
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                valueBytes = ByteBuffer.allocate(4 + bytes.length + 1).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(bytes.length + 1)
+                        .put(bytes)
+                        .put((byte) 0)
+                        .array();
+            }
+
+            case Map<?, ?> map -> {
+                type = 0x03;
+                Map<String, Object> document = new LinkedHashMap<>();
+                map.forEach((key, mapValue) -> document.put(String.valueOf(key), mapValue));
+                valueBytes = encodeDocument(document);
+            }
+
+            case List<?> list -> {
+                type = 0x04;
+                Map<String, Object> document = new LinkedHashMap<>();
+                for (int i = 0; i < list.size(); i++) {
+                    document.put(String.valueOf(i), list.get(i));
+                }
+                valueBytes = encodeDocument(document);
+            }
+
+            case Boolean b -> {
+                type = 0x08;
+                valueBytes = new byte[]{(byte) (b ? 1 : 0)};
+            }
+
+            case Integer i -> {
+                type = 0x10;
+                valueBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(i).array();
+            }
+
+            case Long l -> {
+                type = 0x12;
+                valueBytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(l).array();
+            }
+
+            default -> throw new IllegalArgumentException("Unsupported BSON value type: " + value.getClass());
+        }
+
+        out.write(type);
+        out.writeBytes(name.getBytes(StandardCharsets.UTF_8));
+        out.write(0);
+        out.writeBytes(valueBytes);
+    }
+
+    static Map<String, Object> decodeDocument(ByteBuffer buffer) {
+        int end = buffer.position() + buffer.getInt() - 1;
+        Map<String, Object> document = new LinkedHashMap<>();
+
+        while (buffer.position() < end) {
+            byte type = buffer.get();
+            String name = readCString(buffer);
+            document.put(name, decodeValue(buffer, type));
+        }
+
+        // terminating zero
+        buffer.get();
+        return document;
+    }
+
+    private static Object decodeValue(ByteBuffer buffer, byte type) {
+        return switch (type) {
+            case 0x01 -> buffer.getDouble();
+            case 0x02 -> {
+                byte[] bytes = new byte[buffer.getInt() - 1];
+                buffer.get(bytes);
+                buffer.get();
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+            case 0x03 -> decodeDocument(buffer);
+            case 0x04 -> new ArrayList<>(decodeDocument(buffer).values());
+            case 0x08 -> buffer.get() != 0;
+            case 0x10 -> buffer.getInt();
+            case 0x12 -> buffer.getLong();
+            default -> {
+                skipValue(buffer, type);
+                yield null;
+            }
+        };
+    }
+
+    private static void skipValue(ByteBuffer buffer, byte type) {
+        switch (type) {
+            // binary: length, subtype, bytes
+            case 0x05 -> buffer.position(buffer.position() + buffer.getInt() + 1);
+            // undefined, null, min key, max key
+            case 0x06, 0x0A, (byte) 0xFF, 0x7F -> {
+            }
+            // ObjectId
+            case 0x07 -> buffer.position(buffer.position() + 12);
+            // datetime, timestamp
+            case 0x09, 0x11 -> buffer.position(buffer.position() + 8);
+            // regex: pattern, options
+            case 0x0B -> {
+                readCString(buffer);
+                readCString(buffer);
+            }
+            // decimal128
+            case 0x13 -> buffer.position(buffer.position() + 16);
+            default -> throw new IllegalStateException("Unsupported BSON type: " + type);
+        }
+    }
+
+    private static String readCString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // find the terminating zero
+        }
+
+        return new String(buffer.array(), buffer.arrayOffset() + start, buffer.position() - start - 1,
+                StandardCharsets.UTF_8);
+    }
+
+}
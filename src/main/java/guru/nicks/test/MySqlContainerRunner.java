@@ -1,47 +1,330 @@
 package guru.nicks.test;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.test.util.TestPropertyValues;
-import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.Environment;
 import org.testcontainers.containers.JdbcDatabaseContainer;
-import org.testcontainers.containers.MySQLContainerProvider;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Runs MySQL (version {@value #MYSQL_VERSION}) via TestContainers and sets Spring datasource properties accordingly:
- * URL, driver name etc. (DB name and credentials are generated by the container). Stops container bean when Spring
- * context gets closed.
+ * URL, driver name etc. (DB name and credentials are generated by the container). The container is shared by all Spring
+ * contexts via {@link ContainerRegistry}.
+ * <p>
+ * If {@value #FAST_MODE_PROPERTY} is {@code true}, durability is traded for speed: data directory is on tmpfs (size:
+ * {@value #FAST_MODE_TMPFS_SIZE_PROPERTY}), redo log isn't flushed on commit, binary log and doublewrite buffer are
+ * off, buffer pool size is taken from {@value #FAST_MODE_BUFFER_POOL_SIZE_PROPERTY}.
+ * <p>
+ * If {@value #MIGRATED_IMAGE_CACHE_PROPERTY} is {@code true} (ignored in fast mode), the container migrated by
+ * Flyway/Liquibase is committed to a local image tagged with the checksum of migration scripts, and later runs start
+ * from that image. Locations of migration scripts are set in {@code guru.nicks.test.migrated-image-cache.locations}
+ * (comma-separated resource patterns, Flyway and Liquibase defaults are used if not set).
+ * <p>
+ * Readiness is checked with {@code SELECT 1} polled with exponential backoff (see {@link ReadinessProbe}) unless
+ * {@value #READINESS_PROBE_PROPERTY} is {@code false}, the maximum interval is taken from
+ * {@value #READINESS_PROBE_MAX_INTERVAL_PROPERTY}.
+ * <p>
+ * If {@value #STATEMENT_STATISTICS_PROPERTY} is {@code true}, {@code performance_schema} statement digests are enabled,
+ * and the container user may read them, so tests can inspect the SQL they run with {@link QueryGuard}.
+ * <p>
+ * If the container is shared between forks, each fork gets its own database named after the container one plus
+ * {@code _fork<slot>}.
+ * <p>
+ * In lazy mode (see {@link AbstractContainerRunner#LAZY_START_PROPERTY}), which is not supported together with the
+ * migrated image cache, a {@link LazyDataSource} is registered, so the container starts when the database is first
+ * used.
  */
 @Slf4j
-public class MySqlContainerRunner implements ApplicationContextInitializer<GenericApplicationContext> {
+public class MySqlContainerRunner extends AbstractContainerRunner<JdbcDatabaseContainer<?>> {
 
     public static final String MYSQL_VERSION = "9.3.0";
 
+    public static final String FAST_MODE_PROPERTY = "guru.nicks.test.mysql.fast-mode.enabled";
+    public static final String FAST_MODE_TMPFS_SIZE_PROPERTY = "guru.nicks.test.mysql.fast-mode.tmpfs-size";
+    public static final String FAST_MODE_BUFFER_POOL_SIZE_PROPERTY =
+            "guru.nicks.test.mysql.fast-mode.innodb-buffer-pool-size";
+
+    public static final String MIGRATED_IMAGE_CACHE_PROPERTY = "guru.nicks.test.mysql.migrated-image-cache.enabled";
+
+    /**
+     * Prefix of settings read by {@link AbstractContainerRunner}.
+     */
+    static final String PROPERTY_PREFIX = "guru.nicks.test.mysql";
+
+    public static final String READINESS_PROBE_PROPERTY = PROPERTY_PREFIX + READINESS_PROBE_ENABLED_SUFFIX;
+    public static final String READINESS_PROBE_MAX_INTERVAL_PROPERTY =
+            PROPERTY_PREFIX + READINESS_PROBE_MAX_INTERVAL_SUFFIX;
+
+    public static final String STATEMENT_STATISTICS_PROPERTY = "guru.nicks.test.mysql.statement-statistics.enabled";
+
+    public static final String DATA_DIRECTORY = "/var/lib/mysql";
+
+    /**
+     * Data directory for containers to be committed as images: outside {@link #DATA_DIRECTORY} which is a volume, and
+     * volumes are not committed.
+     */
+    public static final String CACHEABLE_DATA_DIRECTORY = "/var/lib/mysql-migrated";
+
+    private boolean fastMode;
+    private String tmpfsSize;
+    private String bufferPoolSize;
+    private boolean statementStatistics;
+
+    /**
+     * {@code null} means migrated images are not cached.
+     */
+    private String migrationsChecksum;
+
+    @Override
+    protected void configure(Environment environment) {
+        fastMode = environment.getProperty(FAST_MODE_PROPERTY, Boolean.class, false);
+        tmpfsSize = environment.getProperty(FAST_MODE_TMPFS_SIZE_PROPERTY, "2g");
+        bufferPoolSize = environment.getProperty(FAST_MODE_BUFFER_POOL_SIZE_PROPERTY, "256M");
+        statementStatistics = environment.getProperty(STATEMENT_STATISTICS_PROPERTY, Boolean.class, false);
+
+        migrationsChecksum = null;
+        if (environment.getProperty(MIGRATED_IMAGE_CACHE_PROPERTY, Boolean.class, false)) {
+            if (fastMode) {
+                log.warn("Migrated image cache is not supported in fast mode (tmpfs is not committed to images)");
+            } else {
+                migrationsChecksum = MigratedImageCache.computeChecksum(environment.getProperty(
+                        MigratedImageCache.LOCATIONS_PROPERTY, MigratedImageCache.DEFAULT_LOCATIONS));
+            }
+        }
+    }
+
+    @Override
+    protected String getPropertyPrefix() {
+        return PROPERTY_PREFIX;
+    }
+
+    @Override
+    public String getContainerKey() {
+        String key = getBaseImage().asCanonicalNameString();
+
+        if (fastMode) {
+            key += ";fast-mode,tmpfs=" + tmpfsSize + ",innodb_buffer_pool_size=" + bufferPoolSize;
+        }
+
+        if (statementStatistics) {
+            key += ";statement-digests";
+        }
+
+        if (migrationsChecksum != null) {
+            key += ";migrations=" + migrationsChecksum;
+        }
+
+        return key;
+    }
+
+    @Override
+    protected JdbcDatabaseContainer<?> createContainer() {
+        if (migrationsChecksum != null) {
+            DockerImageName cachedImage = MigratedImageCache.getCachedImage(getBaseImage(), migrationsChecksum);
+
+            if (MigratedImageCache.exists(cachedImage)) {
+                log.info("Starting migrated database from image '{}'", cachedImage.asCanonicalNameString());
+                // same data directory as the image command has
+                return withServerSettings(newContainer(cachedImage.asCompatibleSubstituteFor("mysql")),
+                        List.of("--datadir=" + CACHEABLE_DATA_DIRECTORY));
+            }
+        }
+
+        JdbcDatabaseContainer<?> container = newContainer(getBaseImage());
+        // the entrypoint passes arguments starting with '-' to mysqld
+        List<String> command = new ArrayList<>();
+
+        if (migrationsChecksum != null) {
+            command.add("--datadir=" + CACHEABLE_DATA_DIRECTORY);
+        }
+
+        if (fastMode) {
+            container.withTmpFs(Map.of(DATA_DIRECTORY, "rw,size=" + tmpfsSize));
+            command.addAll(List.of(
+                    "--innodb-flush-log-at-trx-commit=0",
+                    "--sync-binlog=0",
+                    "--skip-log-bin",
+                    "--innodb-doublewrite=0",
+                    // the default (O_DIRECT) is not supported by tmpfs
+                    "--innodb-flush-method=fsync",
+                    "--innodb-buffer-pool-size=" + bufferPoolSize));
+        }
+
+        return withServerSettings(container, command);
+    }
+
+    @Override
+    protected Class<? super JdbcDatabaseContainer<?>> getContainerBeanClass() {
+        return JdbcDatabaseContainer.class;
+    }
+
     @Override
-    public void initialize(GenericApplicationContext applicationContext) {
-        JdbcDatabaseContainer<?> container = createAndStartContainer(applicationContext);
+    protected void registerBeans(GenericApplicationContext applicationContext, JdbcDatabaseContainer<?> container) {
+        super.registerBeans(applicationContext, container);
 
-        // the only reason to register bean is to stop DB container when app context is closed
-        applicationContext.registerBean(JdbcDatabaseContainer.class,
-                () -> container,
-                beanDefinition -> beanDefinition.setDestroyMethodName("stop"));
+        if (migrationsChecksum != null) {
+            DockerImageName cachedImage = MigratedImageCache.getCachedImage(getBaseImage(), migrationsChecksum);
+
+            if (!MigratedImageCache.exists(cachedImage)) {
+                // InnoDB recovers from its redo log on startup
+                applicationContext.registerBean(MigratedImageCache.Committer.class,
+                        () -> new MigratedImageCache.Committer(container, cachedImage, () -> {
+                        }));
+            }
+        }
+    }
+
+    @Override
+    protected List<String> getLazyPropertyNames() {
+        // migrated image cache needs the container at context startup
+        return (migrationsChecksum != null)
+                ? List.of()
+                : LazyDataSource.PROPERTY_NAMES;
+    }
+
+    @Override
+    protected List<String> getStaticTestProperties() {
+        return LazyDataSource.STATIC_PROPERTIES;
+    }
+
+    @Override
+    boolean registerLazyBeans(GenericApplicationContext applicationContext,
+            LazyContainer<JdbcDatabaseContainer<?>> lazyContainer) {
+        applicationContext.registerBean(DataSource.class, () -> new LazyDataSource(lazyContainer));
+        return true;
     }
 
-    private JdbcDatabaseContainer<?> createAndStartContainer(GenericApplicationContext applicationContext) {
-        JdbcDatabaseContainer<?> container = new MySQLContainerProvider().newInstance(MYSQL_VERSION);
-        container.start();
+    @Override
+    protected void provision(JdbcDatabaseContainer<?> container) {
+        if (getForkSlot() != 0) {
+            recreateForkDatabase(container);
+        }
 
-        TestPropertyValues testProps = TestPropertyValues.of(
+        if (statementStatistics) {
+            grantStatementStatistics(container);
+        }
+    }
+
+    @Override
+    protected List<String> getTestProperties(JdbcDatabaseContainer<?> container) {
+        return List.of(
                 "spring.test.database.replace=none",
-                "spring.datasource.url=" + container.getJdbcUrl(),
+                "spring.datasource.url=" + JdbcContainers.getJdbcUrl(container, getDatabaseName(container)),
                 "spring.datasource.username=" + container.getUsername(),
                 "spring.datasource.password=" + container.getPassword(),
                 "spring.datasource.driver-class-name=" + container.getDriverClassName());
+    }
+
+    /**
+     * Returns the database of this fork, created by {@link #recreateForkDatabase(JdbcDatabaseContainer)}.
+     *
+     * @param container container
+     * @return container database name if the container is not shared between forks
+     */
+    private String getDatabaseName(JdbcDatabaseContainer<?> container) {
+        int forkSlot = getForkSlot();
+        return (forkSlot == 0)
+                ? container.getDatabaseName()
+                : container.getDatabaseName() + "_fork" + forkSlot;
+    }
 
-        log.debug("Assigning application properties for running tests: {}", testProps);
-        testProps.applyTo(applicationContext);
+    /**
+     * Creates the database of this fork, dropping the one left in the slot by a crashed fork.
+     *
+     * @param container container
+     */
+    private void recreateForkDatabase(JdbcDatabaseContainer<?> container) {
+        String database = getDatabaseName(container);
+
+        // the container user can't create databases, root has the same password
+        try (Connection connection = JdbcContainers.openConnection(container, container.getDatabaseName(),
+                "root", container.getPassword());
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS `" + database + "`");
+            statement.execute("CREATE DATABASE `" + database + "`");
+            statement.execute("GRANT ALL PRIVILEGES ON `" + database + "`.* TO '" + container.getUsername() + "'@'%'");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create fork database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lets the container user read statement digests (granted by root, which has the same password).
+     *
+     * @param container container
+     */
+    private static void grantStatementStatistics(JdbcDatabaseContainer<?> container) {
+        try (Connection connection = JdbcContainers.openConnection(container, container.getDatabaseName(),
+                "root", container.getPassword());
+                Statement statement = connection.createStatement()) {
+            statement.execute("GRANT SELECT ON performance_schema.* TO '" + container.getUsername() + "'@'%'");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to grant access to performance_schema: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sets mysqld options, adding those of statement statistics if enabled.
+     *
+     * @param container container
+     * @param options   other options
+     * @return container passed
+     */
+    private JdbcDatabaseContainer<?> withServerSettings(JdbcDatabaseContainer<?> container, List<String> options) {
+        List<String> command = new ArrayList<>(options);
+
+        if (statementStatistics) {
+            command.addAll(List.of(
+                    "--performance-schema=ON",
+                    "--performance-schema-consumer-statements-digest=ON",
+                    "--performance-schema-digests-size=10000"));
+        }
+
+        if (!command.isEmpty()) {
+            container.withCommand(command.toArray(String[]::new));
+        }
 
         return container;
     }
 
+    private JdbcDatabaseContainer<?> newContainer(DockerImageName image) {
+        if (getReadinessProbeMaxInterval() == null) {
+            return new MySQLContainer<>(image);
+        }
+
+        var container = new ProbedMySqlContainer(image);
+        container.waitingFor(ReadinessProbe.jdbc(container, getReadinessProbeMaxInterval()));
+        return container;
+    }
+
+    private static DockerImageName getBaseImage() {
+        return DockerImageName.parse("mysql").withTag(MYSQL_VERSION);
+    }
+
+    /**
+     * MySQL container which waits for its wait strategy instead of polling {@code SELECT 1} every 100 ms via
+     * Testcontainers' rate-limited connection retries.
+     */
+    private static class ProbedMySqlContainer extends MySQLContainer<ProbedMySqlContainer> {
+
+        ProbedMySqlContainer(DockerImageName image) {
+            super(image);
+        }
+
+        @Override
+        protected void waitUntilContainerStarted() {
+            getWaitStrategy().waitUntilReady(this);
+        }
+
+    }
+
 }
@@ -1,47 +1,348 @@
 package guru.nicks.test;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.test.util.TestPropertyValues;
-import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.Environment;
 import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Runs PostgreSQL (TimescaleDB-HA version {@value TimescaleDbContainerProvider#DEFAULT_TAG}) via TestContainers and
  * sets Spring datasource properties accordingly: URL, driver name, etc. (DB name and credentials are generated by the
- * container dynamically). Stops container bean when Spring context gets closed.
+ * container dynamically). The container is shared by all Spring contexts via {@link ContainerRegistry}.
+ * <p>
+ * If {@value #TEMPLATE_DATABASE_SCOPE_PROPERTY} is set to {@code CLASS} or {@code METHOD}, each test class or method
+ * gets a fresh database cloned with {@code CREATE DATABASE ... TEMPLATE} from a copy of the one migrated at context
+ * startup (the datasource is switched to the clone by {@link TestIsolationExecutionListener}, old clones are dropped in
+ * background, see {@link TemplateDatabaseDataSource}).
+ * <p>
+ * If {@value #FAST_MODE_PROPERTY} is {@code true}, durability is traded for speed: data directory is on tmpfs
+ * (size: {@value #FAST_MODE_TMPFS_SIZE_PROPERTY}), {@code synchronous_commit} and {@code full_page_writes} are off
+ * ({@code fsync} is off regardless of this setting), memory settings are taken from
+ * {@value #FAST_MODE_SHARED_BUFFERS_PROPERTY} and {@value #FAST_MODE_WORK_MEM_PROPERTY}.
+ * <p>
+ * If {@value #MIGRATED_IMAGE_CACHE_PROPERTY} is {@code true} (ignored in fast mode), the container migrated by
+ * Flyway/Liquibase is committed to a local image tagged with the checksum of migration scripts, and later runs start
+ * from that image. Locations of migration scripts are set in {@code guru.nicks.test.migrated-image-cache.locations}
+ * (comma-separated resource patterns, Flyway and Liquibase defaults are used if not set).
+ * <p>
+ * Readiness is checked with {@code SELECT 1} polled with exponential backoff (see {@link ReadinessProbe}) unless
+ * {@value #READINESS_PROBE_PROPERTY} is {@code false}, the maximum interval is taken from
+ * {@value #READINESS_PROBE_MAX_INTERVAL_PROPERTY}.
+ * <p>
+ * If {@value #STATEMENT_STATISTICS_PROPERTY} is {@code true}, {@code pg_stat_statements} is preloaded (tracking nested
+ * statements too) and its extension is created in the {@value JdbcContainers#POSTGRES_ADMIN_DATABASE} database (not in
+ * the application one, whose schema stays as migrated), so tests can inspect the SQL they run with
+ * {@link QueryGuard}.
+ * <p>
+ * If the container is shared between forks, each fork gets its own database named after the container one plus
+ * {@code _fork<slot>} (template databases are cloned from it).
+ * <p>
+ * In lazy mode (see {@link AbstractContainerRunner#LAZY_START_PROPERTY}), which is not supported together with template
+ * databases and the migrated image cache, a {@link LazyDataSource} is registered, so the container starts when the
+ * database is first used.
  *
  * @see <a href="https://github.com/timescale/timescaledb-docker-ha/">TimescaleDB-HA at Github</a>
  */
 @Slf4j
-public class PostgreSqlContainerRunner implements ApplicationContextInitializer<GenericApplicationContext> {
+public class PostgreSqlContainerRunner extends AbstractContainerRunner<JdbcDatabaseContainer<?>> {
+
+    public static final String TEMPLATE_DATABASE_SCOPE_PROPERTY = "guru.nicks.test.postgres.template-database.scope";
+
+    public static final String FAST_MODE_PROPERTY = "guru.nicks.test.postgres.fast-mode.enabled";
+    public static final String FAST_MODE_TMPFS_SIZE_PROPERTY = "guru.nicks.test.postgres.fast-mode.tmpfs-size";
+    public static final String FAST_MODE_SHARED_BUFFERS_PROPERTY = "guru.nicks.test.postgres.fast-mode.shared-buffers";
+    public static final String FAST_MODE_WORK_MEM_PROPERTY = "guru.nicks.test.postgres.fast-mode.work-mem";
+
+    public static final String MIGRATED_IMAGE_CACHE_PROPERTY =
+            "guru.nicks.test.postgres.migrated-image-cache.enabled";
+
+    /**
+     * Prefix of settings read by {@link AbstractContainerRunner}.
+     */
+    static final String PROPERTY_PREFIX = "guru.nicks.test.postgres";
+
+    public static final String READINESS_PROBE_PROPERTY = PROPERTY_PREFIX + READINESS_PROBE_ENABLED_SUFFIX;
+    public static final String READINESS_PROBE_MAX_INTERVAL_PROPERTY =
+            PROPERTY_PREFIX + READINESS_PROBE_MAX_INTERVAL_SUFFIX;
+
+    public static final String STATEMENT_STATISTICS_PROPERTY =
+            "guru.nicks.test.postgres.statement-statistics.enabled";
+
+    /**
+     * Parent of {@code PGDATA} in TimescaleDB-HA image.
+     */
+    public static final String DATA_DIRECTORY = "/home/postgres/pgdata";
+
+    /**
+     * {@code PGDATA} for containers to be committed as images: outside {@link #DATA_DIRECTORY} which is a volume, and
+     * volumes are not committed.
+     */
+    public static final String CACHEABLE_DATA_DIRECTORY = "/home/postgres/pgdata-migrated/data";
+
+    /**
+     * {@code null} means template databases are not used.
+     */
+    private TestIsolation.Scope templateDatabaseScope;
+
+    private boolean fastMode;
+    private String tmpfsSize;
+    private String sharedBuffers;
+    private String workMem;
+    private boolean statementStatistics;
+
+    /**
+     * {@code null} means migrated images are not cached.
+     */
+    private String migrationsChecksum;
 
     @Override
-    public void initialize(GenericApplicationContext applicationContext) {
-        JdbcDatabaseContainer<?> container = createAndStartContainer(applicationContext);
+    protected void configure(Environment environment) {
+        templateDatabaseScope = environment.getProperty(TEMPLATE_DATABASE_SCOPE_PROPERTY, TestIsolation.Scope.class);
+        fastMode = environment.getProperty(FAST_MODE_PROPERTY, Boolean.class, false);
+        tmpfsSize = environment.getProperty(FAST_MODE_TMPFS_SIZE_PROPERTY, "2g");
+        sharedBuffers = environment.getProperty(FAST_MODE_SHARED_BUFFERS_PROPERTY, "256MB");
+        workMem = environment.getProperty(FAST_MODE_WORK_MEM_PROPERTY, "16MB");
+        statementStatistics = environment.getProperty(STATEMENT_STATISTICS_PROPERTY, Boolean.class, false);
 
-        // the only reason to register bean is to stop DB container when app context is closed
-        applicationContext.registerBean(JdbcDatabaseContainer.class,
-                () -> container,
-                beanDefinition -> beanDefinition.setDestroyMethodName("stop"));
+        migrationsChecksum = null;
+        if (environment.getProperty(MIGRATED_IMAGE_CACHE_PROPERTY, Boolean.class, false)) {
+            if (fastMode) {
+                log.warn("Migrated image cache is not supported in fast mode (tmpfs is not committed to images)");
+            } else {
+                migrationsChecksum = MigratedImageCache.computeChecksum(environment.getProperty(
+                        MigratedImageCache.LOCATIONS_PROPERTY, MigratedImageCache.DEFAULT_LOCATIONS));
+            }
+        }
     }
 
-    private JdbcDatabaseContainer<?> createAndStartContainer(GenericApplicationContext applicationContext) {
-        JdbcDatabaseContainer<?> container = new TimescaleDbContainerProvider().newInstance(
-                TimescaleDbContainerProvider.DEFAULT_TAG);
-        container.start();
+    @Override
+    protected String getPropertyPrefix() {
+        return PROPERTY_PREFIX;
+    }
+
+    @Override
+    public String getContainerKey() {
+        String key = getBaseImage().asCanonicalNameString();
+
+        if (fastMode) {
+            key += ";fast-mode,tmpfs=" + tmpfsSize + ",shared_buffers=" + sharedBuffers + ",work_mem=" + workMem;
+        }
+
+        if (statementStatistics) {
+            key += ";pg_stat_statements";
+        }
+
+        if (migrationsChecksum != null) {
+            key += ";migrations=" + migrationsChecksum;
+        }
+
+        return key;
+    }
+
+    @Override
+    protected JdbcDatabaseContainer<?> createContainer() {
+        if (migrationsChecksum != null) {
+            DockerImageName cachedImage = MigratedImageCache.getCachedImage(getBaseImage(), migrationsChecksum);
+
+            if (MigratedImageCache.exists(cachedImage)) {
+                log.info("Starting migrated database from image '{}'", cachedImage.asCanonicalNameString());
+                return withServerSettings(withReadinessProbe(new PostgreSQLContainer<>(
+                        cachedImage.asCompatibleSubstituteFor("postgres"))));
+            }
+        }
+
+        JdbcDatabaseContainer<?> container = withReadinessProbe(new TimescaleDbContainerProvider().newInstance(
+                TimescaleDbContainerProvider.DEFAULT_TAG));
+
+        if (migrationsChecksum != null) {
+            container.withEnv("PGDATA", CACHEABLE_DATA_DIRECTORY);
+        }
+
+        if (fastMode) {
+            container.withTmpFs(Map.of(DATA_DIRECTORY, "rw,size=" + tmpfsSize));
+        }
+
+        return withServerSettings(container);
+    }
+
+    @Override
+    protected Class<? super JdbcDatabaseContainer<?>> getContainerBeanClass() {
+        return JdbcDatabaseContainer.class;
+    }
+
+    @Override
+    protected void registerBeans(GenericApplicationContext applicationContext, JdbcDatabaseContainer<?> container) {
+        super.registerBeans(applicationContext, container);
+
+        if (templateDatabaseScope != null) {
+            String database = getDatabaseName(container);
+            applicationContext.registerBean(TemplateDatabaseDataSource.PostProcessor.class,
+                    () -> new TemplateDatabaseDataSource.PostProcessor(container, database, templateDatabaseScope));
+        }
 
-        TestPropertyValues testProps = TestPropertyValues.of(
+        if (migrationsChecksum != null) {
+            DockerImageName cachedImage = MigratedImageCache.getCachedImage(getBaseImage(), migrationsChecksum);
+
+            if (!MigratedImageCache.exists(cachedImage)) {
+                applicationContext.registerBean(MigratedImageCache.Committer.class,
+                        () -> new MigratedImageCache.Committer(container, cachedImage, () -> checkpoint(container)));
+            }
+        }
+    }
+
+    @Override
+    protected void provision(JdbcDatabaseContainer<?> container) {
+        if (getForkSlot() != 0) {
+            recreateForkDatabase(container);
+        }
+
+        if (!statementStatistics) {
+            return;
+        }
+
+        try (Connection connection = JdbcContainers.openConnection(container,
+                JdbcContainers.POSTGRES_ADMIN_DATABASE, container.getUsername(), container.getPassword());
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pg_stat_statements");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create pg_stat_statements extension: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected List<String> getLazyPropertyNames() {
+        // template databases and migrated image cache need the container at context startup
+        return ((templateDatabaseScope != null) || (migrationsChecksum != null))
+                ? List.of()
+                : LazyDataSource.PROPERTY_NAMES;
+    }
+
+    @Override
+    protected List<String> getStaticTestProperties() {
+        return LazyDataSource.STATIC_PROPERTIES;
+    }
+
+    @Override
+    boolean registerLazyBeans(GenericApplicationContext applicationContext,
+            LazyContainer<JdbcDatabaseContainer<?>> lazyContainer) {
+        applicationContext.registerBean(DataSource.class, () -> new LazyDataSource(lazyContainer));
+        return true;
+    }
+
+    @Override
+    protected List<String> getTestProperties(JdbcDatabaseContainer<?> container) {
+        return List.of(
                 "spring.test.database.replace=none",
-                "spring.datasource.url=" + container.getJdbcUrl(),
+                "spring.datasource.url=" + JdbcContainers.getJdbcUrl(container, getDatabaseName(container)),
                 "spring.datasource.username=" + container.getUsername(),
                 "spring.datasource.password=" + container.getPassword(),
                 "spring.datasource.driver-class-name=" + container.getDriverClassName());
+    }
 
-        log.debug("Assigning application properties for running tests: {}", testProps);
-        testProps.applyTo(applicationContext);
+    /**
+     * Returns the database of this fork, created by {@link #recreateForkDatabase(JdbcDatabaseContainer)}.
+     *
+     * @param container container
+     * @return container database name if the container is not shared between forks
+     */
+    private String getDatabaseName(JdbcDatabaseContainer<?> container) {
+        int forkSlot = getForkSlot();
+        return (forkSlot == 0)
+                ? container.getDatabaseName()
+                : container.getDatabaseName() + "_fork" + forkSlot;
+    }
+
+    /**
+     * Creates the database of this fork, dropping the one left in the slot by a crashed fork.
+     *
+     * @param container container
+     */
+    private void recreateForkDatabase(JdbcDatabaseContainer<?> container) {
+        String database = getDatabaseName(container);
+
+        try (Connection connection = container.createConnection("");
+                Statement statement = connection.createStatement()) {
+            // FORCE terminates sessions of the crashed fork the server hasn't noticed yet
+            statement.execute("DROP DATABASE IF EXISTS \"" + database + "\" WITH (FORCE)");
+            statement.execute("CREATE DATABASE \"" + database + "\"");
+            log.info("Created database '{}' for fork slot {}", database, getForkSlot());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create fork database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the default wait strategy (two 'ready to accept connections' log messages, the first one is logged by
+     * the server initializing the database) with {@link ReadinessProbe#jdbc(JdbcDatabaseContainer, Duration)}. The
+     * initializing server doesn't listen on TCP, so the probe can't be fooled by it.
+     *
+     * @param container container
+     * @return container passed
+     */
+    private JdbcDatabaseContainer<?> withReadinessProbe(JdbcDatabaseContainer<?> container) {
+        if (getReadinessProbeMaxInterval() != null) {
+            container.waitingFor(ReadinessProbe.jdbc(container, getReadinessProbeMaxInterval()));
+        }
 
         return container;
     }
 
+    /**
+     * Sets server settings of fast mode and statement statistics, if enabled.
+     *
+     * @param container container
+     * @return container passed
+     */
+    private JdbcDatabaseContainer<?> withServerSettings(JdbcDatabaseContainer<?> container) {
+        // same as the Testcontainers default
+        List<String> command = new ArrayList<>(List.of("postgres", "-c", "fsync=off"));
+
+        if (fastMode) {
+            command.addAll(List.of(
+                    "-c", "synchronous_commit=off",
+                    "-c", "full_page_writes=off",
+                    "-c", "shared_buffers=" + sharedBuffers,
+                    "-c", "work_mem=" + workMem));
+        }
+
+        if (statementStatistics) {
+            command.addAll(List.of(
+                    "-c", "shared_preload_libraries=timescaledb,pg_stat_statements",
+                    "-c", "pg_stat_statements.track=all",
+                    "-c", "pg_stat_statements.max=10000"));
+        }
+
+        container.withCommand(command.toArray(String[]::new));
+        return container;
+    }
+
+    private static DockerImageName getBaseImage() {
+        return TimescaleDbContainerProvider.DEFAULT_IMAGE.withTag(TimescaleDbContainerProvider.DEFAULT_TAG);
+    }
+
+    /**
+     * Flushes all data files, so the committed image needs no crash recovery on startup.
+     *
+     * @param container container
+     */
+    private static void checkpoint(JdbcDatabaseContainer<?> container) {
+        try (Connection connection = container.createConnection("");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CHECKPOINT");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Checkpoint failed: " + e.getMessage(), e);
+        }
+    }
+
 }
@@ -0,0 +1,314 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JUnit extension which snapshots statement statistics of the application {@link DataSource} database before and after
+ * each test method, so tests can assert on the SQL they run: number of calls, rows and mean execution time per
+ * normalized statement (see {@link #statements()}, {@link #calls(String)}, etc.). A report of statements run by each
+ * test, most expensive first, is written to {@value #DEFAULT_REPORT_DIRECTORY} (or {@value #REPORT_DIRECTORY_PROPERTY}
+ * system property).
+ * <p>
+ * Statistics are read from {@code pg_stat_statements} for PostgreSQL (see
+ * {@link PostgreSqlContainerRunner#STATEMENT_STATISTICS_PROPERTY}) and from {@code performance_schema} statement
+ * digests for MySQL (see {@link MySqlContainerRunner#STATEMENT_STATISTICS_PROPERTY}). Rows are those returned or
+ * affected in PostgreSQL and those examined in MySQL. Statistics are collected per database, so tests running in
+ * parallel against the same database see each other's statements. PostgreSQL statistics are read from the database
+ * where the runner has created the extension, via the container bean; without one (database not run by
+ * {@link PostgreSqlContainerRunner}), the extension must exist in the application database.
+ * <p>
+ * Usage: {@code @ExtendWith(QueryGuard.class)} after the Spring extension (which {@code @SpringBootTest} registers).
+ */
+@Slf4j
+public class QueryGuard implements BeforeEachCallback, AfterEachCallback {
+
+    public static final String REPORT_DIRECTORY_PROPERTY = "guru.nicks.test.query-guard.report-directory";
+    public static final String DEFAULT_REPORT_DIRECTORY = "target/query-reports";
+
+    private static final InheritableThreadLocal<Guard> CURRENT_GUARD = new InheritableThreadLocal<>();
+
+    /**
+     * Returns statements run since the current test started.
+     *
+     * @return statements, most expensive (by total time) first
+     * @throws IllegalStateException called outside a test, error reading statistics
+     */
+    public static List<StatementStatistics> statements() {
+        Guard guard = CURRENT_GUARD.get();
+        if (guard == null) {
+            throw new IllegalStateException("No current test - is QueryGuard extension registered?");
+        }
+
+        return guard.statementsSinceStart();
+    }
+
+    /**
+     * Returns the number of calls of statements containing the fragment (case-insensitive), since the current test
+     * started.
+     *
+     * @param statementFragment statement fragment, such as table name ('' for all statements)
+     * @return number of calls
+     */
+    public static long calls(String statementFragment) {
+        return matching(statementFragment).stream()
+                .mapToLong(StatementStatistics::calls)
+                .sum();
+    }
+
+    /**
+     * Returns the number of rows processed by statements containing the fragment (case-insensitive), since the current
+     * test started.
+     *
+     * @param statementFragment statement fragment, such as table name ('' for all statements)
+     * @return number of rows
+     */
+    public static long rows(String statementFragment) {
+        return matching(statementFragment).stream()
+                .mapToLong(StatementStatistics::rows)
+                .sum();
+    }
+
+    /**
+     * Returns the mean execution time of statements containing the fragment (case-insensitive), since the current test
+     * started.
+     *
+     * @param statementFragment statement fragment, such as table name ('' for all statements)
+     * @return mean time in milliseconds, 0 if there were no calls
+     */
+    public static double meanTimeMillis(String statementFragment) {
+        List<StatementStatistics> statements = matching(statementFragment);
+        long calls = statements.stream().mapToLong(StatementStatistics::calls).sum();
+
+        return (calls == 0)
+                ? 0
+                : statements.stream().mapToDouble(StatementStatistics::totalTimeMillis).sum() / calls;
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        ApplicationContext applicationContext = SpringExtension.getApplicationContext(context);
+        var guard = new Guard(applicationContext.getBean(DataSource.class),
+                applicationContext.getBeanProvider(JdbcDatabaseContainer.class).getIfAvailable());
+        guard.start();
+        CURRENT_GUARD.set(guard);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        Guard guard = CURRENT_GUARD.get();
+        CURRENT_GUARD.remove();
+
+        if (guard == null) {
+            return;
+        }
+
+        List<StatementStatistics> statements = guard.statementsSinceStart();
+        String testName = context.getRequiredTestClass().getName() + "." + context.getDisplayName().replace("()", "");
+        log.info("{}: {} statements, {} calls", testName, statements.size(),
+                statements.stream().mapToLong(StatementStatistics::calls).sum());
+        writeReport(testName, statements);
+    }
+
+    private static List<StatementStatistics> matching(String statementFragment) {
+        String fragment = statementFragment.toLowerCase(Locale.ROOT);
+
+        return statements().stream()
+                .filter(statement -> statement.statement().toLowerCase(Locale.ROOT).contains(fragment))
+                .toList();
+    }
+
+    private static void writeReport(String testName, List<StatementStatistics> statements) {
+        var report = new StringBuilder(String.format(Locale.ROOT, "%10s %12s %12s %10s  %s%n",
+                "calls", "rows", "total ms", "mean ms", "statement"));
+
+        for (StatementStatistics statement : statements) {
+            report.append(String.format(Locale.ROOT, "%10d %12d %12.3f %10.3f  %s%n", statement.calls(),
+                    statement.rows(), statement.totalTimeMillis(), statement.meanTimeMillis(),
+                    statement.statement().replaceAll("\\s+", " ")));
+        }
+
+        Path file = Path.of(System.getProperty(REPORT_DIRECTORY_PROPERTY, DEFAULT_REPORT_DIRECTORY))
+                .resolve(testName.replaceAll("[^A-Za-z0-9._-]", "_") + ".txt");
+
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, report, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Failed to write query report '{}': {}", file, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Computes statistics of statements run between two snapshots.
+     *
+     * @param before statistics by statement ID at the beginning
+     * @param after  statistics by statement ID at the end
+     * @return statements called in between (statistics reset in between are ignored), most expensive (by total time)
+     *         first
+     */
+    static List<StatementStatistics> diff(Map<String, StatementStatistics> before,
+            Map<String, StatementStatistics> after) {
+        List<StatementStatistics> statements = new ArrayList<>();
+
+        after.forEach((key, current) -> {
+            StatementStatistics previous = before.get(key);
+            long calls = current.calls() - ((previous == null) ? 0 : previous.calls());
+
+            if (calls > 0) {
+                statements.add(new StatementStatistics(current.statement(), calls,
+                        current.rows() - ((previous == null) ? 0 : previous.rows()),
+                        current.totalTimeMillis() - ((previous == null) ? 0 : previous.totalTimeMillis())));
+            }
+        });
+
+        statements.sort(Comparator.comparingDouble(StatementStatistics::totalTimeMillis).reversed());
+        return statements;
+    }
+
+    /**
+     * Combines statistics of entries having the same statement ID, such as top-level and nested calls in PostgreSQL.
+     *
+     * @param first  first entry
+     * @param second second entry
+     * @return combined entry (with the statement text of the first one)
+     */
+    static StatementStatistics combine(StatementStatistics first, StatementStatistics second) {
+        return new StatementStatistics(first.statement(), first.calls() + second.calls(),
+                first.rows() + second.rows(), first.totalTimeMillis() + second.totalTimeMillis());
+    }
+
+    /**
+     * Statistics of a normalized statement (literals replaced with placeholders).
+     *
+     * @param statement       statement text
+     * @param calls           number of calls
+     * @param rows            rows returned or affected (PostgreSQL), rows examined (MySQL)
+     * @param totalTimeMillis total execution time
+     */
+    public record StatementStatistics(String statement, long calls, long rows, double totalTimeMillis) {
+
+        public double meanTimeMillis() {
+            return (calls == 0) ? 0 : (totalTimeMillis / calls);
+        }
+
+    }
+
+    /**
+     * Statistics snapshots of a test.
+     */
+    private static final class Guard {
+
+        /**
+         * Statements reading statistics are excluded.
+         */
+        private static final String POSTGRESQL_QUERY = """
+                SELECT queryid, query, calls, rows, total_exec_time
+                FROM pg_stat_statements
+                WHERE dbid = (SELECT oid FROM pg_database WHERE datname = ?)
+                    AND query NOT LIKE '%pg_stat_statements%'""";
+
+        /**
+         * Statements reading statistics are excluded. Timers are in picoseconds.
+         */
+        private static final String MYSQL_QUERY = """
+                SELECT DIGEST, DIGEST_TEXT, COUNT_STAR, SUM_ROWS_EXAMINED, SUM_TIMER_WAIT / 1000000000
+                FROM performance_schema.events_statements_summary_by_digest
+                WHERE SCHEMA_NAME = DATABASE()
+                    AND DIGEST_TEXT NOT LIKE '%performance_schema%'""";
+
+        private final DataSource dataSource;
+
+        /**
+         * {@code null} means the database is not run by a container runner.
+         */
+        private final JdbcDatabaseContainer<?> container;
+
+        private Map<String, StatementStatistics> baseline = Map.of();
+
+        Guard(DataSource dataSource, JdbcDatabaseContainer<?> container) {
+            this.dataSource = dataSource;
+            this.container = container;
+        }
+
+        void start() {
+            baseline = snapshot();
+        }
+
+        List<StatementStatistics> statementsSinceStart() {
+            return diff(baseline, snapshot());
+        }
+
+        /**
+         * Reads statement statistics.
+         *
+         * @return statistics by statement ID
+         */
+        private Map<String, StatementStatistics> snapshot() {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                    return read(connection, MYSQL_QUERY, null);
+                }
+
+                if (container == null) {
+                    return read(connection, POSTGRESQL_QUERY, connection.getCatalog());
+                }
+
+                // the runner has created the extension there
+                try (Connection adminConnection = JdbcContainers.openConnection(container,
+                        JdbcContainers.POSTGRES_ADMIN_DATABASE, container.getUsername(), container.getPassword())) {
+                    return read(adminConnection, POSTGRESQL_QUERY, connection.getCatalog());
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to read statement statistics (is "
+                        + PostgreSqlContainerRunner.STATEMENT_STATISTICS_PROPERTY + " or "
+                        + MySqlContainerRunner.STATEMENT_STATISTICS_PROPERTY + " enabled?): " + e.getMessage(), e);
+            }
+        }
+
+        private static Map<String, StatementStatistics> read(Connection connection, String query, String database)
+                throws SQLException {
+            Map<String, StatementStatistics> statistics = new HashMap<>();
+
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                if (database != null) {
+                    statement.setString(1, database);
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        statistics.merge(String.valueOf(resultSet.getString(1)),
+                                new StatementStatistics(resultSet.getString(2), resultSet.getLong(3),
+                                        resultSet.getLong(4), resultSet.getDouble(5)),
+                                QueryGuard::combine);
+                    }
+                }
+            }
+
+            return statistics;
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.ContainerLaunchException;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.wait.strategy.AbstractWaitStrategy;
+import org.testcontainers.containers.wait.strategy.WaitStrategyTarget;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protocol-level readiness check polled with exponential backoff (from {@value #INITIAL_INTERVAL_MILLIS} ms up to the
+ * given maximum interval), replacing default wait strategies which poll logs or ports with fixed sleeps. The time to
+ * readiness is logged.
+ */
+@Slf4j
+public final class ReadinessProbe extends AbstractWaitStrategy {
+
+    public static final long DEFAULT_MAX_INTERVAL_MILLIS = 200;
+
+    private static final long INITIAL_INTERVAL_MILLIS = 5;
+
+    private final String name;
+    private final Check check;
+    private final Duration maxInterval;
+
+    private ReadinessProbe(String name, Check check, Duration maxInterval) {
+        this.name = name;
+        this.check = check;
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Creates a probe which runs {@code SELECT 1} on a fresh connection (bypassing Testcontainers' connection retries
+     * and rate limiting).
+     *
+     * @param container   container
+     * @param maxInterval maximum interval between attempts
+     * @return probe
+     */
+    public static ReadinessProbe jdbc(JdbcDatabaseContainer<?> container, Duration maxInterval) {
+        return new ReadinessProbe("JDBC", target -> {
+            try (Connection connection = JdbcContainers.openConnection(container, container.getDatabaseName(),
+                    container.getUsername(), container.getPassword());
+                    Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+        }, maxInterval);
+    }
+
+    /**
+     * Creates a probe which sends Redis {@code PING}.
+     *
+     * @param port        container (not mapped) port
+     * @param maxInterval maximum interval between attempts
+     * @return probe
+     */
+    public static ReadinessProbe redisPing(int port, Duration maxInterval) {
+        return new ReadinessProbe("Redis PING", target -> {
+            try (var client = new RespClient(target.getHost(), target.getMappedPort(port), Duration.ofSeconds(1))) {
+                // error replies, such as LOADING, are thrown
+                client.execute("PING");
+            }
+        }, maxInterval);
+    }
+
+    /**
+     * Creates a probe which sends MongoDB {@code hello}: the server is ready to accept commands (but not necessarily a
+     * replica set primary, see {@link #awaitMongoPrimary(String, int, Duration, Duration)}).
+     *
+     * @param port        container (not mapped) port
+     * @param maxInterval maximum interval between attempts
+     * @return probe
+     */
+    public static ReadinessProbe mongoHello(int port, Duration maxInterval) {
+        return new ReadinessProbe("MongoDB hello", target -> {
+            try (var client = new MongoWireClient(target.getHost(), target.getMappedPort(port),
+                    Duration.ofSeconds(1))) {
+                client.runCommand("admin", Map.of("hello", 1));
+            }
+        }, maxInterval);
+    }
+
+    /**
+     * Waits until the MongoDB node becomes the writable primary of its replica set.
+     *
+     * @param host        host
+     * @param port        mapped port
+     * @param timeout     timeout
+     * @param maxInterval maximum interval between attempts
+     * @throws ContainerLaunchException timeout
+     */
+    static void awaitMongoPrimary(String host, int port, Duration timeout, Duration maxInterval) {
+        await("MongoDB replica set primary", null, target -> {
+            try (var client = new MongoWireClient(host, port, Duration.ofSeconds(1))) {
+                Map<String, Object> reply = client.runCommand("admin", Map.of("hello", 1));
+
+                if (!Boolean.TRUE.equals(reply.get("isWritablePrimary"))) {
+                    throw new IllegalStateException("Not a writable primary yet");
+                }
+            }
+        }, timeout, maxInterval);
+    }
+
+    @Override
+    protected void waitUntilReady() {
+        await(name, waitStrategyTarget, check, startupTimeout, maxInterval);
+    }
+
+    private static void await(String name, WaitStrategyTarget target, Check check, Duration timeout,
+            Duration maxInterval) {
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.READINESS, name);
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long intervalMillis = INITIAL_INTERVAL_MILLIS;
+        int attempts = 0;
+
+        while (true) {
+            attempts++;
+
+            try {
+                check.run(target);
+                log.info("{} ready in {} ms ({} attempts)", name, TimeUnit.NANOSECONDS.toMillis(timer.stop()),
+                        attempts);
+                return;
+            } catch (Exception e) {
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMillis) > deadline) {
+                    throw new ContainerLaunchException("Timed out waiting for " + name + " after " + attempts
+                            + " attempts: " + e.getMessage(), e);
+                }
+
+                log.trace("{} not ready: {}", name, e.getMessage());
+            }
+
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ContainerLaunchException("Interrupted waiting for " + name, e);
+            }
+
+            intervalMillis = Math.min(2 * intervalMillis, maxInterval.toMillis());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Check {
+
+        /**
+         * Checks readiness.
+         *
+         * @param target container being started ({@code null} if not applicable)
+         * @throws Exception not ready
+         */
+        void run(WaitStrategyTarget target) throws Exception;
+
+    }
+
+}
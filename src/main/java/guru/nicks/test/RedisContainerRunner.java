@@ -1,47 +1,222 @@
 package guru.nicks.test;
 
 import com.redis.testcontainers.RedisContainer;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.test.util.TestPropertyValues;
-import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Runs Redis (version {@value #IMAGE_TAG}) via TestContainers and sets Spring properties accordingly: host, port
- * (generated by the container dynamically), password, etc. Stops container bean when Spring context gets closed.
+ * (generated by the container dynamically), password, etc. The container is shared by all Spring contexts via
+ * {@link ContainerRegistry}.
+ * <p>
+ * Each context leases a {@link RedisPartition} (registered as a bean): a logical database of its own or, once they're
+ * exhausted, a key prefix, which is published as {@value #KEY_PREFIX_PROPERTY} (empty if there's no prefix) and
+ * {@code spring.cache.redis.key-prefix}. If the container is shared between forks, each fork gets its own database
+ * (the one numbered as the fork slot, flushed when the fork leases it first), and contexts of the fork get key
+ * prefixes in it; there are databases for up to {@code DATABASE_COUNT - 1} forks, more fail to start.
+ * <p>
+ * If {@value #RESET_SCOPE_PROPERTY} is set to {@code CLASS} or {@code METHOD}, the partition is cleaned before each
+ * test class or method (see {@link RedisPartition#reset()}).
+ * <p>
+ * Readiness is checked with {@code PING} polled with exponential backoff (see {@link ReadinessProbe}) unless
+ * {@value #READINESS_PROBE_PROPERTY} is {@code false}, the maximum interval is taken from
+ * {@value #READINESS_PROBE_MAX_INTERVAL_PROPERTY}.
+ * <p>
+ * In lazy mode (see {@link AbstractContainerRunner#LAZY_START_PROPERTY}), a {@code RedisConnectionFactory} (see
+ * {@link LazyRedisConnectionFactory}) is registered in place of the auto-configured one, and the partition is leased
+ * when the container starts; the {@link RedisPartition} bean starts the container too. Lazy mode requires Spring Data
+ * Redis and Lettuce on the classpath and is not supported if the reset scope is set (a partition which the context
+ * hasn't accessed directly would not be reset).
  */
-@Slf4j
-public class RedisContainerRunner implements ApplicationContextInitializer<GenericApplicationContext> {
+public class RedisContainerRunner extends AbstractContainerRunner<RedisContainer> {
 
     public static final String IMAGE_TAG = "redis:8.0.2-alpine";
 
+    /**
+     * Number of databases in default Redis configuration.
+     */
+    public static final int DATABASE_COUNT = 16;
+
+    public static final String RESET_SCOPE_PROPERTY = "guru.nicks.test.redis.reset.scope";
+    public static final String KEY_PREFIX_PROPERTY = "guru.nicks.test.redis.key-prefix";
+
+    /**
+     * Prefix of settings read by {@link AbstractContainerRunner}.
+     */
+    static final String PROPERTY_PREFIX = "guru.nicks.test.redis";
+
+    public static final String READINESS_PROBE_PROPERTY = PROPERTY_PREFIX + READINESS_PROBE_ENABLED_SUFFIX;
+    public static final String READINESS_PROBE_MAX_INTERVAL_PROPERTY =
+            PROPERTY_PREFIX + READINESS_PROBE_MAX_INTERVAL_SUFFIX;
+
+    /**
+     * Properties which don't depend on the container.
+     */
+    private static final List<String> STATIC_PROPERTIES = List.of(
+            "spring.redis.scheme=redis",
+            "spring.redis.trustAnyCertificate=true",
+            "spring.redis.connectionMinimumIdleSize=3",
+            "spring.redis.password=");
+
+    /**
+     * {@code null} means data is not reset automatically.
+     */
+    private TestIsolation.Scope resetScope;
+
+    /**
+     * Partition leased to the context: when the container is bound or, in lazy mode, when it starts.
+     */
+    private volatile RedisPartition partition;
+
     @Override
-    public void initialize(GenericApplicationContext applicationContext) {
-        RedisContainer container = createAndStartContainer(applicationContext);
+    protected void configure(Environment environment) {
+        resetScope = environment.getProperty(RESET_SCOPE_PROPERTY, TestIsolation.Scope.class);
+    }
 
-        // the only reason to register bean is to stop DB container when app context is closed
-        applicationContext.registerBean(RedisContainer.class,
-                () -> container,
-                beanDefinition -> beanDefinition.setDestroyMethodName("stop"));
+    @Override
+    protected String getPropertyPrefix() {
+        return PROPERTY_PREFIX;
     }
 
-    private RedisContainer createAndStartContainer(GenericApplicationContext applicationContext) {
-        RedisContainer container = new RedisContainer(IMAGE_TAG);
-        container.start();
+    @Override
+    public String getContainerKey() {
+        return IMAGE_TAG;
+    }
 
-        TestPropertyValues testProps = TestPropertyValues.of(
-                "spring.redis.scheme=redis",
-                "spring.redis.trustAnyCertificate=true",
-                "spring.redis.connectionMinimumIdleSize=3",
-                "spring.redis.database=0",
-                "spring.redis.host=" + container.getHost(),
-                "spring.redis.port=" + container.getRedisPort(),
-                "spring.redis.password=");
+    @Override
+    protected RedisContainer createContainer() {
+        var container = new RedisContainer(IMAGE_TAG);
 
-        log.debug("Assigning application properties for running tests: {}", testProps);
-        testProps.applyTo(applicationContext);
+        if (getReadinessProbeMaxInterval() != null) {
+            container.waitingFor(ReadinessProbe.redisPing(RedisContainer.REDIS_PORT, getReadinessProbeMaxInterval()));
+        }
 
         return container;
     }
 
+    @Override
+    protected Class<? super RedisContainer> getContainerBeanClass() {
+        return RedisContainer.class;
+    }
+
+    @Override
+    List<String> bindContainer(GenericApplicationContext applicationContext, RedisContainer container) {
+        RedisPartition leasedPartition = leasePartition(container);
+        partition = leasedPartition;
+
+        try {
+            applicationContext.registerBean(RedisPartition.class, () -> leasedPartition);
+
+            List<String> properties = new ArrayList<>(super.bindContainer(applicationContext, container));
+            properties.addAll(getPartitionProperties(leasedPartition));
+            return properties;
+        } catch (RuntimeException e) {
+            unbindContainer();
+            throw e;
+        }
+    }
+
+    @Override
+    void unbindContainer() {
+        RedisPartition leasedPartition = partition;
+
+        if (leasedPartition != null) {
+            leasedPartition.close();
+            partition = null;
+        }
+    }
+
+    @Override
+    protected List<String> getLazyPropertyNames() {
+        return ((resetScope == null) && LazyRedisConnectionFactory.isSupported())
+                ? List.of("spring.redis.host", "spring.redis.port", "spring.redis.database", KEY_PREFIX_PROPERTY,
+                        "spring.cache.redis.key-prefix")
+                : List.of();
+    }
+
+    @Override
+    protected List<String> getStaticTestProperties() {
+        return STATIC_PROPERTIES;
+    }
+
+    @Override
+    boolean registerLazyBeans(GenericApplicationContext applicationContext,
+            LazyContainer<RedisContainer> lazyContainer) {
+        // empty destroy method name: the lease is returned by unbindLazyContainer(), even if the bean was never created
+        applicationContext.registerBean(RedisPartition.class,
+                () -> {
+                    lazyContainer.get();
+                    return partition;
+                },
+                beanDefinition -> {
+                    beanDefinition.setLazyInit(true);
+                    beanDefinition.setDestroyMethodName("");
+                });
+
+        LazyRedisConnectionFactory.register(applicationContext, lazyContainer);
+        return true;
+    }
+
+    @Override
+    protected List<String> bindLazyContainer(RedisContainer container) {
+        partition = leasePartition(container);
+
+        List<String> properties = new ArrayList<>(getTestProperties(container));
+        properties.addAll(getPartitionProperties(partition));
+        return properties;
+    }
+
+    @Override
+    protected void unbindLazyContainer() {
+        unbindContainer();
+    }
+
+    /**
+     * Returns properties of the container as a whole; those of the partition are added by
+     * {@link #getPartitionProperties(RedisPartition)}.
+     */
+    @Override
+    protected List<String> getTestProperties(RedisContainer container) {
+        List<String> properties = new ArrayList<>(STATIC_PROPERTIES);
+        properties.add("spring.redis.host=" + container.getHost());
+        properties.add("spring.redis.port=" + container.getRedisPort());
+        return properties;
+    }
+
+    private static List<String> getPartitionProperties(RedisPartition partition) {
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.redis.database=" + partition.getDatabase(),
+                KEY_PREFIX_PROPERTY + "=" + ((partition.getKeyPrefix() == null) ? "" : partition.getKeyPrefix())));
+
+        if (partition.getKeyPrefix() != null) {
+            properties.add("spring.cache.redis.key-prefix=" + partition.getKeyPrefix());
+        }
+
+        return properties;
+    }
+
+    /**
+     * Leases a partition.
+     *
+     * @param container container
+     * @return partition
+     * @throws IllegalStateException fork slot has no database of its own
+     */
+    private RedisPartition leasePartition(RedisContainer container) {
+        int forkSlot = getForkSlot();
+
+        // a database shared by two forks would be flushed by one of them while the other one is using it
+        if (forkSlot >= DATABASE_COUNT) {
+            throw new IllegalStateException("Fork slot " + forkSlot + " has no Redis database of its own: at most "
+                    + (DATABASE_COUNT - 1) + " forks can share the container, lower forkCount or set "
+                    + ForkSharedContainers.ENABLED_PROPERTY + "=false");
+        }
+
+        return RedisPartition.lease(container.getHost(), container.getRedisPort(), DATABASE_COUNT,
+                (forkSlot == 0) ? null : forkSlot, resetScope);
+    }
+
 }
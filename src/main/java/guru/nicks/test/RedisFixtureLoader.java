@@ -0,0 +1,324 @@
+package guru.nicks.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams classpath fixtures into a {@link RedisPartition}, sending commands in pipelines of {@value #PIPELINE_SIZE}
+ * (one round trip per pipeline instead of per command). Fixture formats, recognized by file extension (optionally
+ * followed by {@code .gz}):
+ * <ul>
+ *     <li>{@code .ndjson}, {@code .jsonl} - key dump, an object per line: {@code key}, {@code value} and optional
+ *         {@code ttl} (seconds). Objects are stored with {@code HSET}, arrays with {@code RPUSH}, other values with
+ *         {@code SET}.</li>
+ *     <li>any other - commands, one per line, in {@code redis-cli} syntax: arguments separated by spaces, either
+ *         double-quoted (with {@code \"}, {@code \\}, {@code \n}, {@code \r}, {@code \t} and {@code \xHH} escapes, the
+ *         latter being a raw byte) or single-quoted (literal). Empty lines and lines starting with '#' are skipped.
+ *         Commands reaching outside the partition ({@code SELECT}, {@code SWAPDB}, {@code MOVE}, {@code FLUSHALL},
+ *         {@code MIGRATE}) are rejected.</li>
+ * </ul>
+ * If the partition has a key prefix, it's prepended to the keys: in a command file, to the first argument of each
+ * command, so only commands whose only key is the first argument are allowed there. Others - multi-key ones (such as
+ * {@code MSET}, {@code RENAME}, {@code SUNIONSTORE}, {@code DEL a b}) and those whose first argument is not a key
+ * (such as {@code FLUSHDB}, {@code EVAL}, {@code BITOP}) - are rejected.
+ */
+@Slf4j
+public final class RedisFixtureLoader {
+
+    public static final int PIPELINE_SIZE = 10_000;
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Commands which would reach data outside the partition.
+     */
+    private static final Set<String> ESCAPING_COMMANDS = Set.of("SELECT", "SWAPDB", "MOVE", "FLUSHALL", "MIGRATE");
+
+    /**
+     * Commands the key prefix can be applied to: their first argument is their only key.
+     */
+    private static final Set<String> SINGLE_KEY_COMMANDS = Set.of(
+            // strings
+            "SET", "SETNX", "SETEX", "PSETEX", "GET", "GETSET", "GETDEL", "GETEX", "APPEND", "STRLEN", "SETRANGE",
+            "GETRANGE", "INCR", "INCRBY", "INCRBYFLOAT", "DECR", "DECRBY", "SETBIT", "GETBIT", "BITCOUNT", "BITPOS",
+            "BITFIELD",
+            // keys
+            "EXPIRE", "PEXPIRE", "EXPIREAT", "PEXPIREAT", "PERSIST", "TTL", "PTTL", "TYPE", "DUMP", "RESTORE",
+            // hashes
+            "HSET", "HSETNX", "HMSET", "HGET", "HMGET", "HDEL", "HEXISTS", "HGETALL", "HKEYS", "HVALS", "HLEN",
+            "HSTRLEN", "HINCRBY", "HINCRBYFLOAT",
+            // lists
+            "LPUSH", "RPUSH", "LPUSHX", "RPUSHX", "LPOP", "RPOP", "LSET", "LINSERT", "LREM", "LTRIM", "LRANGE",
+            "LINDEX", "LLEN", "LPOS",
+            // sets
+            "SADD", "SREM", "SMEMBERS", "SISMEMBER", "SMISMEMBER", "SCARD", "SPOP", "SRANDMEMBER",
+            // sorted sets
+            "ZADD", "ZREM", "ZINCRBY", "ZSCORE", "ZMSCORE", "ZCARD", "ZCOUNT", "ZRANK", "ZREVRANK", "ZRANGE",
+            "ZRANGEBYSCORE", "ZREVRANGE", "ZREMRANGEBYRANK", "ZREMRANGEBYSCORE", "ZPOPMIN", "ZPOPMAX",
+            // streams, HyperLogLog, geo
+            "XADD", "XDEL", "XTRIM", "XLEN", "XRANGE", "XREVRANGE", "PFADD", "GEOADD", "GEOPOS", "GEODIST",
+            "GEOHASH");
+
+    /**
+     * Commands taking any number of keys, allowed with the key prefix when given exactly one.
+     */
+    private static final Set<String> VARIADIC_KEY_COMMANDS = Set.of("DEL", "UNLINK", "EXISTS", "TOUCH", "PFCOUNT");
+
+    private RedisFixtureLoader() {
+    }
+
+    /**
+     * Loads the fixture into the partition.
+     *
+     * @param partition partition
+     * @param path      path to the fixture ('classpath:' is prepended automatically)
+     * @return number of commands sent
+     * @throws IllegalArgumentException invalid fixture line
+     * @throws IllegalStateException    error reading the fixture or error reply
+     */
+    public static long load(RedisPartition partition, String path) {
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.FIXTURE_LOAD, path + " -> Redis " + partition);
+        boolean keyDump = FixtureLoader.isNdjson(path);
+        String keyPrefix = (partition.getKeyPrefix() == null) ? "" : partition.getKeyPrefix();
+        long commandCount = 0;
+
+        try (BufferedReader reader = FixtureLoader.openReader(path);
+                var client = new RespClient(partition.getHost(), partition.getPort(), TIMEOUT)) {
+            client.execute("SELECT", String.valueOf(partition.getDatabase()));
+            List<byte[][]> pipeline = new ArrayList<>(PIPELINE_SIZE + 1);
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (keyDump) {
+                    parseKeyDumpEntry(line, keyPrefix, pipeline);
+                } else {
+                    parseCommand(line, keyPrefix, pipeline);
+                }
+
+                if (pipeline.size() >= PIPELINE_SIZE) {
+                    client.executePipelinedBinary(pipeline);
+                    commandCount += pipeline.size();
+                    pipeline.clear();
+                }
+            }
+
+            if (!pipeline.isEmpty()) {
+                client.executePipelinedBinary(pipeline);
+                commandCount += pipeline.size();
+            }
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            throw new IllegalStateException("Failed to load Redis fixture '" + path + "': " + e.getMessage(), e);
+        }
+
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(timer.stop()));
+        log.info("Sent {} commands to Redis partition {} from '{}' in {} ms ({} commands/s)", commandCount, partition,
+                path, millis, commandCount * 1000 / millis);
+        return commandCount;
+    }
+
+    private static void parseKeyDumpEntry(String line, String keyPrefix, List<byte[][]> pipeline) throws IOException {
+        if (line.isBlank()) {
+            return;
+        }
+
+        JsonNode entry = OBJECT_MAPPER.readTree(line);
+        JsonNode value = entry.path("value");
+        if (!entry.path("key").isTextual() || value.isMissingNode() || value.isNull()) {
+            throw new IllegalArgumentException("Key dump entry must have 'key' and 'value': " + line);
+        }
+
+        String key = keyPrefix + entry.get("key").asText();
+        List<String> command = new ArrayList<>();
+
+        if (value.isObject()) {
+            command.add("HSET");
+            command.add(key);
+            value.fields().forEachRemaining(field -> {
+                command.add(field.getKey());
+                command.add(toText(field.getValue()));
+            });
+        } else if (value.isArray()) {
+            command.add("RPUSH");
+            command.add(key);
+            value.forEach(element -> command.add(toText(element)));
+        } else {
+            command.add("SET");
+            command.add(key);
+            command.add(value.asText());
+        }
+
+        pipeline.add(toBytes(command));
+
+        if (entry.path("ttl").canConvertToLong()) {
+            pipeline.add(toBytes(List.of("EXPIRE", key, String.valueOf(entry.get("ttl").asLong()))));
+        }
+    }
+
+    private static byte[][] toBytes(List<String> command) {
+        return command.stream()
+                .map(arg -> arg.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
+
+    private static String toText(JsonNode node) {
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+
+    /**
+     * Parses a command line, prepending the key prefix to the first argument (the only key, otherwise the command is
+     * rejected).
+     *
+     * @param line      line
+     * @param keyPrefix key prefix, '' for none
+     * @param pipeline  where to add the command (nothing is added for empty lines and comments)
+     * @throws IllegalArgumentException invalid line, command not allowed
+     */
+    static void parseCommand(String line, String keyPrefix, List<byte[][]> pipeline) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return;
+        }
+
+        List<byte[]> args = splitArguments(trimmed);
+        String name = new String(args.getFirst(), StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+
+        if (ESCAPING_COMMANDS.contains(name)) {
+            throw new IllegalArgumentException("Command reaches outside the partition: " + line);
+        }
+
+        if (!keyPrefix.isEmpty()) {
+            boolean singleKey = SINGLE_KEY_COMMANDS.contains(name)
+                    || (VARIADIC_KEY_COMMANDS.contains(name) && (args.size() == 2));
+            if (!singleKey || (args.size() < 2)) {
+                throw new IllegalArgumentException("Key prefix can't be applied to command (only single-key commands "
+                        + "are allowed with a key prefix): " + line);
+            }
+
+            byte[] prefix = keyPrefix.getBytes(StandardCharsets.UTF_8);
+            byte[] key = args.get(1);
+            byte[] prefixedKey = new byte[prefix.length + key.length];
+            System.arraycopy(prefix, 0, prefixedKey, 0, prefix.length);
+            System.arraycopy(key, 0, prefixedKey, prefix.length, key.length);
+            args.set(1, prefixedKey);
+        }
+
+        pipeline.add(args.toArray(byte[][]::new));
+    }
+
+    /**
+     * Splits a command line in {@code redis-cli} syntax into arguments.
+     *
+     * @param line non-empty line
+     * @return arguments: characters UTF-8-encoded, {@code \xHH} escapes as raw bytes
+     * @throws IllegalArgumentException unterminated quote, invalid escape
+     */
+    static List<byte[]> splitArguments(String line) {
+        List<byte[]> args = new ArrayList<>();
+        var arg = new ByteArrayOutputStream();
+        int i = 0;
+
+        while (i < line.length()) {
+            char c = line.charAt(i);
+
+            if (c == ' ') {
+                i++;
+                continue;
+            }
+
+            arg.reset();
+
+            if (c == '"') {
+                i = readDoubleQuoted(line, i + 1, arg);
+            } else if (c == '\'') {
+                int end = line.indexOf('\'', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated single quote: " + line);
+                }
+
+                arg.writeBytes(line.substring(i + 1, end).getBytes(StandardCharsets.UTF_8));
+                i = end + 1;
+            } else {
+                int end = line.indexOf(' ', i);
+                end = (end < 0) ? line.length() : end;
+                arg.writeBytes(line.substring(i, end).getBytes(StandardCharsets.UTF_8));
+                i = end;
+            }
+
+            args.add(arg.toByteArray());
+        }
+
+        return args;
+    }
+
+    /**
+     * Reads a double-quoted argument.
+     *
+     * @param line  line
+     * @param start index after the opening quote
+     * @param arg   where to write the unescaped argument
+     * @return index after the closing quote
+     */
+    private static int readDoubleQuoted(String line, int start, ByteArrayOutputStream arg) {
+        int literalStart = start;
+
+        for (int i = start; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if ((c != '"') && (c != '\\')) {
+                continue;
+            }
+
+            // characters before the quote or escape, UTF-8-encoded
+            arg.writeBytes(line.substring(literalStart, i).getBytes(StandardCharsets.UTF_8));
+
+            if (c == '"') {
+                return i + 1;
+            }
+
+            if (i + 1 >= line.length()) {
+                break;
+            }
+
+            char escaped = line.charAt(++i);
+
+            switch (escaped) {
+                case 'n' -> arg.write('\n');
+                case 'r' -> arg.write('\r');
+                case 't' -> arg.write('\t');
+                case 'x' -> {
+                    if (i + 2 >= line.length()) {
+                        throw new IllegalArgumentException("Invalid \\x escape: " + line);
+                    }
+
+                    try {
+                        arg.write(Integer.parseInt(line, i + 1, i + 3, 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid \\x escape: " + line, e);
+                    }
+
+                    i += 2;
+                }
+                default -> arg.writeBytes(String.valueOf(escaped).getBytes(StandardCharsets.UTF_8));
+            }
+
+            literalStart = i + 1;
+        }
+
+        throw new IllegalArgumentException("Unterminated double quote: " + line);
+    }
+
+}
@@ -0,0 +1,189 @@
+package guru.nicks.test;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Part of a shared Redis container leased to one Spring context, so contexts (and test classes running in parallel)
+ * don't see each other's data. Each context gets a logical database of its own (1 to 15), flushed when leased, since
+ * the previous lessee may have left data there. Once they're exhausted, or if the container is shared between forks,
+ * contexts share a database, and each gets a key prefix. Redis can't apply the prefix by itself: only keys written by
+ * {@link RedisFixtureLoader}, Spring cache (which reads it from {@code spring.cache.redis.key-prefix}) and code
+ * prepending {@value RedisContainerRunner#KEY_PREFIX_PROPERTY} are isolated, therefore falling back to a prefix is
+ * logged as a warning.
+ * <p>
+ * {@link #reset()} removes data of this partition only: {@code FLUSHDB} for a database of its own, pipelined
+ * {@code SCAN}/{@code UNLINK} by key prefix otherwise. If the scope is set, it's called before each test class or
+ * method by {@link TestIsolationExecutionListener}. The lease is returned when the context is closed.
+ */
+@Getter
+@Slf4j
+public final class RedisPartition implements TestIsolation, AutoCloseable {
+
+    /**
+     * Database where partitions having a key prefix live, never leased as a whole.
+     */
+    public static final int SHARED_DATABASE = 0;
+
+    private static final int SCAN_COUNT = 1000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Leased databases for each container address.
+     */
+    private static final Map<String, Set<Integer>> LEASED_DATABASES = new ConcurrentHashMap<>();
+    private static final AtomicInteger PREFIX_COUNTER = new AtomicInteger();
+
+    private final String host;
+    private final int port;
+    private final int database;
+
+    /**
+     * {@code null} means the whole database belongs to this partition.
+     */
+    private final String keyPrefix;
+
+    /**
+     * {@code null} means data is not reset automatically.
+     */
+    private final Scope scope;
+
+    private RedisPartition(String host, int port, int database, String keyPrefix, Scope scope) {
+        this.host = host;
+        this.port = port;
+        this.database = database;
+        this.keyPrefix = keyPrefix;
+        this.scope = scope;
+    }
+
+    /**
+     * Leases a partition.
+     *
+     * @param host          Redis host
+     * @param port          Redis port
+     * @param databaseCount number of logical databases
+     * @param forkDatabase  database of this fork if the container is shared between forks, otherwise {@code null}
+     * @param scope         how often data is reset automatically, {@code null} for never
+     * @return partition
+     */
+    static RedisPartition lease(String host, int port, int databaseCount, Integer forkDatabase, Scope scope) {
+        Set<Integer> leased = LEASED_DATABASES.computeIfAbsent(host + ":" + port, k -> ConcurrentHashMap.newKeySet());
+
+        if (forkDatabase != null) {
+            // the first context of the fork removes what a previous fork having the same slot has left
+            if (leased.add(forkDatabase)) {
+                new RedisPartition(host, port, forkDatabase, null, null).reset();
+            }
+
+            return new RedisPartition(host, port, forkDatabase, nextKeyPrefix(), scope);
+        }
+
+        RedisPartition partition = IntStream.range(0, databaseCount)
+                .filter(i -> (i != SHARED_DATABASE) && leased.add(i))
+                .mapToObj(i -> new RedisPartition(host, port, i, null, scope))
+                .findFirst()
+                .orElse(null);
+
+        if (partition != null) {
+            partition.reset();
+            return partition;
+        }
+
+        partition = new RedisPartition(host, port, SHARED_DATABASE, nextKeyPrefix(), scope);
+        log.warn("All {} Redis databases are leased, falling back to partition {}: only keys prefixed with '{}' "
+                        + "(property {}) are isolated from other contexts; consider lowering "
+                        + "spring.test.context.cache.maxSize so that closed contexts return their databases",
+                databaseCount - 1, partition, partition.getKeyPrefix(), RedisContainerRunner.KEY_PREFIX_PROPERTY);
+        return partition;
+    }
+
+    /**
+     * Removes all data of this partition.
+     */
+    public void reset() {
+        long start = System.nanoTime();
+
+        try (var client = new RespClient(host, port, TIMEOUT)) {
+            client.execute("SELECT", String.valueOf(database));
+
+            if (keyPrefix == null) {
+                client.execute("FLUSHDB");
+            } else {
+                unlinkByPrefix(client);
+            }
+        }
+
+        log.debug("Reset Redis partition {} in {} ms", this, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void isolate() {
+        reset();
+    }
+
+    @Override
+    public void close() {
+        if (keyPrefix == null) {
+            LEASED_DATABASES.get(host + ":" + port).remove(database);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "db" + database + ((keyPrefix == null) ? "" : ("/" + keyPrefix));
+    }
+
+    /**
+     * Scans keys having the prefix, unlinking each batch in the same round trip as fetching the next one.
+     *
+     * @param client Redis client
+     */
+    @SuppressWarnings("unchecked")
+    private void unlinkByPrefix(RespClient client) {
+        String pattern = keyPrefix.replaceAll("([*?\\[\\]\\\\])", "\\\\$1") + "*";
+        String[] scan = {"SCAN", "0", "MATCH", pattern, "COUNT", String.valueOf(SCAN_COUNT)};
+        List<Object> scanReply = (List<Object>) client.execute(scan);
+
+        while (true) {
+            String cursor = (String) scanReply.getFirst();
+            List<Object> keys = (List<Object>) scanReply.get(1);
+            List<String[]> commands = new ArrayList<>(2);
+
+            if (!keys.isEmpty()) {
+                List<String> unlink = new ArrayList<>(keys.size() + 1);
+                unlink.add("UNLINK");
+                keys.forEach(key -> unlink.add((String) key));
+                commands.add(unlink.toArray(String[]::new));
+            }
+
+            if ("0".equals(cursor)) {
+                if (!commands.isEmpty()) {
+                    client.executePipelined(commands);
+                }
+
+                return;
+            }
+
+            scan[1] = cursor;
+            commands.add(scan.clone());
+            List<Object> replies = client.executePipelined(commands);
+            scanReply = (List<Object>) replies.getLast();
+        }
+    }
+
+    private static String nextKeyPrefix() {
+        // unique across JVMs sharing the container
+        return "test:" + ProcessHandle.current().pid() + ":" + PREFIX_COUNTER.incrementAndGet() + ":";
+    }
+
+}
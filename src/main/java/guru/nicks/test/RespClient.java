@@ -0,0 +1,214 @@
+package guru.nicks.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal Redis client speaking RESP2 over a plain socket: enough for resetting and seeding test data without
+ * depending on a particular Redis client library (the application may use Lettuce, Jedis or Redisson). Not
+ * thread-safe.
+ * <p>
+ * Replies are mapped as follows: simple and bulk strings - {@link String} ({@code null} for nil), integers -
+ * {@link Long}, arrays - {@link List}. Error replies are thrown as {@link IllegalStateException}.
+ */
+final class RespClient implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final InputStream in;
+
+    /**
+     * Connects to Redis.
+     *
+     * @param host    host
+     * @param port    port
+     * @param timeout connect and read timeout
+     * @throws UncheckedIOException error connecting
+     */
+    RespClient(String host, int port, Duration timeout) {
+        socket = new Socket();
+
+        try {
+            socket.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+            socket.setSoTimeout((int) timeout.toMillis());
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new BufferedInputStream(socket.getInputStream());
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException("Failed to connect to Redis at " + host + ":" + port + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends the command and reads its reply.
+     *
+     * @param args command name and arguments
+     * @return reply
+     * @throws IllegalStateException error reply
+     * @throws UncheckedIOException  I/O error
+     */
+    Object execute(String... args) {
+        return executePipelined(List.of(args)).getFirst();
+    }
+
+    /**
+     * Sends all the commands at once, then reads their replies, saving a round trip per command.
+     *
+     * @param commands commands: name and arguments of each
+     * @return replies, in command order
+     * @throws IllegalStateException error reply (the remaining replies are read anyway, so the client stays usable)
+     * @throws UncheckedIOException  I/O error
+     */
+    List<Object> executePipelined(List<String[]> commands) {
+        List<byte[][]> binaryCommands = new ArrayList<>(commands.size());
+
+        for (String[] command : commands) {
+            byte[][] binaryCommand = new byte[command.length][];
+            for (int i = 0; i < command.length; i++) {
+                binaryCommand[i] = command[i].getBytes(StandardCharsets.UTF_8);
+            }
+
+            binaryCommands.add(binaryCommand);
+        }
+
+        return executePipelinedBinary(binaryCommands);
+    }
+
+    /**
+     * Same as {@link #executePipelined(List)}, but arguments are sent as is rather than UTF-8-encoded, so they may
+     * contain arbitrary bytes.
+     *
+     * @param commands commands: name and arguments of each
+     * @return replies, in command order
+     * @throws IllegalStateException error reply (the remaining replies are read anyway, so the client stays usable)
+     * @throws UncheckedIOException  I/O error
+     */
+    List<Object> executePipelinedBinary(List<byte[][]> commands) {
+        try {
+            for (byte[][] command : commands) {
+                write(command);
+            }
+            out.flush();
+
+            List<Object> replies = new ArrayList<>(commands.size());
+            IllegalStateException error = null;
+
+            for (int i = 0; i < commands.size(); i++) {
+                try {
+                    replies.add(read());
+                } catch (IllegalStateException e) {
+                    error = (error == null) ? e : error;
+                }
+            }
+
+            if (error != null) {
+                throw error;
+            }
+
+            return replies;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Redis I/O error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly();
+    }
+
+    private void write(byte[][] args) throws IOException {
+        writeLine('*', args.length);
+
+        for (byte[] arg : args) {
+            writeLine('$', arg.length);
+            out.write(arg);
+            out.write(CRLF);
+        }
+    }
+
+    private void writeLine(char type, int value) throws IOException {
+        out.write(type);
+        out.write(Integer.toString(value).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private Object read() throws IOException {
+        int type = in.read();
+        String line = readLine();
+
+        return switch (type) {
+            case '+' -> line;
+            case '-' -> throw new IllegalStateException("Redis error: " + line);
+            case ':' -> Long.parseLong(line);
+            case '$' -> readBulkString(Integer.parseInt(line));
+            case '*' -> readArray(Integer.parseInt(line));
+            case -1 -> throw new EOFException("Connection closed by Redis");
+            default -> throw new IOException("Unexpected RESP type '" + (char) type + "'");
+        };
+    }
+
+    private String readBulkString(int length) throws IOException {
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = in.readNBytes(length);
+        readLine();
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Object> readArray(int length) throws IOException {
+        if (length < 0) {
+            return null;
+        }
+
+        List<Object> elements = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            elements.add(read());
+        }
+
+        return elements;
+    }
+
+    private String readLine() throws IOException {
+        var line = new ByteArrayOutputStream();
+
+        for (int b = in.read(); b != '\r'; b = in.read()) {
+            if (b == -1) {
+                throw new EOFException("Connection closed by Redis");
+            }
+
+            line.write(b);
+        }
+
+        // '\n'
+        in.read();
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private void closeQuietly() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+}
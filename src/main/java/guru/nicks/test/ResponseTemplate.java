@@ -0,0 +1,336 @@
+package guru.nicks.test;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Response body rendered per request, see {@link WireMockCommand.Response.ResponseBuilder#templatedBody(String)}.
+ * Unlike WireMock global templating, the template is parsed once, and rendering only appends literals and variable
+ * values to a presized buffer. Variables:
+ * <ul>
+ *     <li>{@code ${path[N]}} - N-th segment of the URL path (0-based)</li>
+ *     <li>{@code ${query.NAME}} - first value of the query parameter</li>
+ *     <li>{@code ${header.NAME}} - first value of the request header</li>
+ *     <li>{@code ${body.A.B}} - field of the JSON request body, numeric segments are array indexes (objects and arrays
+ *         are rendered as JSON)</li>
+ *     <li>{@code ${now}} - current time, ISO-8601</li>
+ * </ul>
+ * Missing values are rendered as empty strings. Values are inserted as is unless the template is compiled with
+ * {@link Escaping#JSON}, which escapes them for JSON string literals (quotes, backslashes, control characters), so a
+ * value containing {@code "} doesn't break a JSON body like <code>{"name": "${body.name}"}</code>. Rendering is done
+ * by {@link Transformer}, which is registered by {@link WireMockServerCustomizer}.
+ */
+public final class ResponseTemplate {
+
+    private static final String TEMPLATE_PARAMETER = "guru.nicks.template";
+    private static final String ESCAPING_PARAMETER = "guru.nicks.template.escaping";
+
+    /**
+     * Average variable value length assumed when presizing the buffer.
+     */
+    private static final int EXPECTED_VALUE_LENGTH = 16;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Getter
+    private final String source;
+
+    @Getter
+    private final Escaping escaping;
+
+    /**
+     * Literals surrounding variables: {@code literals[i]} precedes {@code variables[i]}, the last literal has no
+     * variable after it.
+     */
+    private final String[] literals;
+    private final Variable[] variables;
+
+    private final int expectedLength;
+    private final boolean usesPath;
+    private final boolean usesBody;
+
+    private ResponseTemplate(String source, Escaping escaping, List<String> literals, List<Variable> variables) {
+        this.source = source;
+        this.escaping = escaping;
+        this.literals = literals.toArray(String[]::new);
+        this.variables = variables.toArray(Variable[]::new);
+
+        expectedLength = literals.stream().mapToInt(String::length).sum()
+                + EXPECTED_VALUE_LENGTH * variables.size();
+        usesPath = variables.stream().anyMatch(variable -> variable.type() == VariableType.PATH);
+        usesBody = variables.stream().anyMatch(variable -> variable.type() == VariableType.BODY);
+    }
+
+    /**
+     * Parses the template, values will be inserted as is.
+     *
+     * @param source template
+     * @return compiled template
+     * @throws IllegalArgumentException unclosed, unknown or invalid (such as a negative path segment index) variable
+     */
+    public static ResponseTemplate compile(String source) {
+        return compile(source, Escaping.NONE);
+    }
+
+    /**
+     * Parses the template.
+     *
+     * @param source   template
+     * @param escaping how values are escaped
+     * @return compiled template
+     * @throws IllegalArgumentException unclosed, unknown or invalid (such as a negative path segment index) variable
+     */
+    public static ResponseTemplate compile(String source, Escaping escaping) {
+        List<String> literals = new ArrayList<>();
+        List<Variable> variables = new ArrayList<>();
+        int position = 0;
+
+        for (int start = source.indexOf("${"); start >= 0; start = source.indexOf("${", position)) {
+            int end = source.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed variable at position " + start + " of template");
+            }
+
+            literals.add(source.substring(position, start));
+            variables.add(Variable.parse(source.substring(start + 2, end)));
+            position = end + 1;
+        }
+
+        literals.add(source.substring(position));
+        return new ResponseTemplate(source, escaping, literals, variables);
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param request request to take variable values from
+     * @return rendered body
+     */
+    public String render(Request request) {
+        var out = new StringBuilder(expectedLength);
+        String[] pathSegments = usesPath ? getPathSegments(request.getUrl()) : null;
+        JsonNode body = usesBody ? parseBody(request) : null;
+
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            String value = variables[i].getValue(request, pathSegments, body);
+
+            if (value != null) {
+                escaping.append(out, value);
+            }
+        }
+
+        return out.append(literals[variables.length]).toString();
+    }
+
+    /**
+     * Applies the template to the response.
+     *
+     * @param response     response definition
+     * @param transformers transformer names to add {@link Transformer#NAME} to
+     */
+    void applyTo(ResponseDefinitionBuilder response, Collection<String> transformers) {
+        // the server in this JVM reuses the compiled template, a remote one compiles it once per distinct template
+        Transformer.TEMPLATES.putIfAbsent(new Transformer.Key(source, escaping), this);
+
+        transformers.add(Transformer.NAME);
+        response.withBody("")
+                .withTransformerParameter(TEMPLATE_PARAMETER, source)
+                .withTransformerParameter(ESCAPING_PARAMETER, escaping.name());
+    }
+
+    private static String[] getPathSegments(String url) {
+        int queryStart = url.indexOf('?');
+        String path = (queryStart < 0) ? url : url.substring(0, queryStart);
+
+        return path.startsWith("/")
+                ? path.substring(1).split("/")
+                : path.split("/");
+    }
+
+    private static JsonNode parseBody(Request request) {
+        try {
+            byte[] body = request.getBody();
+            return ((body == null) || (body.length == 0))
+                    ? null
+                    : OBJECT_MAPPER.readTree(body);
+        } catch (IOException e) {
+            // not JSON - body fields are rendered as empty strings
+            return null;
+        }
+    }
+
+    /**
+     * How variable values are escaped.
+     */
+    public enum Escaping {
+
+        /**
+         * Inserted as is.
+         */
+        NONE {
+            @Override
+            void append(StringBuilder out, String value) {
+                out.append(value);
+            }
+        },
+
+        /**
+         * Escaped for use inside a JSON string literal; the quotes around the variable belong to the template.
+         */
+        JSON {
+            @Override
+            void append(StringBuilder out, String value) {
+                JsonStringEncoder.getInstance().quoteAsString(value, out);
+            }
+        };
+
+        abstract void append(StringBuilder out, String value);
+
+    }
+
+    private enum VariableType {
+
+        PATH,
+        QUERY,
+        HEADER,
+        BODY,
+        NOW
+
+    }
+
+    /**
+     * Template variable.
+     *
+     * @param type        variable type
+     * @param name        query parameter or header name
+     * @param index       path segment index
+     * @param jsonPointer request body field
+     */
+    private record Variable(VariableType type, String name, int index, JsonPointer jsonPointer) {
+
+        static Variable parse(String expression) {
+            try {
+                if (expression.equals("now")) {
+                    return new Variable(VariableType.NOW, null, 0, null);
+                } else if (expression.startsWith("path[") && expression.endsWith("]")) {
+                    int index = Integer.parseInt(expression.substring(5, expression.length() - 1));
+                    if (index < 0) {
+                        throw new IllegalArgumentException("path segment index must not be negative");
+                    }
+
+                    return new Variable(VariableType.PATH, null, index, null);
+                } else if (expression.startsWith("query.")) {
+                    return new Variable(VariableType.QUERY, expression.substring(6), 0, null);
+                } else if (expression.startsWith("header.")) {
+                    return new Variable(VariableType.HEADER, expression.substring(7), 0, null);
+                } else if (expression.startsWith("body.")) {
+                    return new Variable(VariableType.BODY, null, 0,
+                            JsonPointer.compile("/" + expression.substring(5).replace('.', '/')));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid template variable '" + expression + "': "
+                        + e.getMessage(), e);
+            }
+
+            throw new IllegalArgumentException("Unknown template variable '" + expression + "'");
+        }
+
+        /**
+         * Returns the value of the variable.
+         *
+         * @return {@code null} if it's missing
+         */
+        String getValue(Request request, String[] pathSegments, JsonNode body) {
+            return switch (type) {
+                case PATH -> (index < pathSegments.length) ? pathSegments[index] : null;
+
+                case QUERY -> {
+                    QueryParameter parameter = request.queryParameter(name);
+                    yield parameter.isPresent() ? parameter.firstValue() : null;
+                }
+
+                case HEADER -> {
+                    HttpHeader header = request.header(name);
+                    yield header.isPresent() ? header.firstValue() : null;
+                }
+
+                case BODY -> {
+                    JsonNode field = (body == null) ? null : body.at(jsonPointer);
+                    yield ((field == null) || field.isMissingNode() || field.isNull())
+                            ? null
+                            : (field.isValueNode() ? field.asText() : field.toString());
+                }
+
+                case NOW -> Instant.now().toString();
+            };
+        }
+
+    }
+
+    /**
+     * Renders bodies of stubs having a {@link ResponseTemplate}.
+     */
+    static class Transformer implements ResponseDefinitionTransformerV2 {
+
+        public static final String NAME = "guru-nicks-response-template";
+
+        /**
+         * Compiled templates; keyed by source rather than by stub, so the map doesn't grow as stubs come and go.
+         */
+        private static final Map<Key, ResponseTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public boolean applyGlobally() {
+            return false;
+        }
+
+        @Override
+        public ResponseDefinition transform(ServeEvent serveEvent) {
+            ResponseDefinition responseDefinition = serveEvent.getResponseDefinition();
+            Parameters parameters = serveEvent.getTransformerParameters();
+
+            if ((parameters == null) || !parameters.containsKey(TEMPLATE_PARAMETER)) {
+                return responseDefinition;
+            }
+
+            // absent if the stub was defined by hand rather than by WireMockCommand
+            var key = new Key(parameters.getString(TEMPLATE_PARAMETER),
+                    Escaping.valueOf(parameters.getString(ESCAPING_PARAMETER, Escaping.NONE.name())));
+            ResponseTemplate template = TEMPLATES.computeIfAbsent(key, k -> compile(k.source(), k.escaping()));
+
+            return ResponseDefinitionBuilder.like(responseDefinition)
+                    .withBody(template.render(serveEvent.getRequest()))
+                    .build();
+        }
+
+        private record Key(String source, Escaping escaping) {
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.LauncherSessionListener;
+
+/**
+ * Logs statistics collected during the test run when JUnit launcher session closes: hits and latencies of WireMock
+ * stubs (see {@link StubStatistics}) and where test infrastructure time went (see {@link TestTimings}). Registered
+ * automatically via {@link java.util.ServiceLoader}, does nothing if there are no statistics.
+ */
+@Slf4j
+public class SessionReportListener implements LauncherSessionListener {
+
+    @Override
+    public void launcherSessionClosed(LauncherSession session) {
+        String stubReport = StubStatistics.getReport();
+
+        if (StringUtils.isNotEmpty(stubReport)) {
+            log.info("WireMock stubs:\n{}", stubReport);
+        }
+
+        String timingReport = TestTimings.getReport();
+
+        if (StringUtils.isNotEmpty(timingReport)) {
+            log.info("Test infrastructure timings:\n{}", timingReport);
+        }
+    }
+
+}
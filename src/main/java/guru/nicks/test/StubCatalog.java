@@ -0,0 +1,332 @@
+package guru.nicks.test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads stub mapping files, such as {@code classpath*:wiremock/**}{@code /*.json}, and registers them in one batch
+ * (see {@link WireMockCommand#mockAll(java.util.Collection)}). A file holds a mapping or an array of mappings
+ * mirroring {@link WireMockCommand}:
+ * <pre>
+ *  {
+ *      "request": {"httpMethod": "GET", "path": "/users/1"},
+ *      "response": {
+ *          "httpStatus": 200,
+ *          "headers": {"Content-Type": "application/json"},
+ *          "body": {"id": 1}
+ *      }
+ *  }
+ * </pre>
+ * Instead of {@code body} (a string or any JSON value), {@code bodyFromClasspath} or {@code bodyFile} can be set, same
+ * as in {@link WireMockCommand.Response.ResponseBuilder}.
+ * <p>
+ * Files are read and parsed in parallel (on the common fork-join pool), and all of them are validated before any stub
+ * is sent. Parsed mappings are cached by file checksum in memory and in {@value #DEFAULT_CACHE_DIRECTORY} (system
+ * property {@value #CACHE_DIRECTORY_PROPERTY}), so unchanged files are not parsed again in this or the next run. Each
+ * location pattern has its own cache file, so loading one pattern doesn't evict mappings of another.
+ */
+@Slf4j
+public final class StubCatalog {
+
+    public static final String CACHE_DIRECTORY_PROPERTY = "guru.nicks.test.wiremock.catalog-cache.directory";
+    public static final String DEFAULT_CACHE_DIRECTORY = "target/wiremock-catalog-cache";
+
+    private static final String CACHE_FILE_PREFIX = "catalog-";
+    private static final String CACHE_FILE_SUFFIX = ".ser";
+
+    private static final ResourcePatternResolver RESOURCE_RESOLVER = new PathMatchingResourcePatternResolver(
+            MethodHandles.lookup().lookupClass().getClassLoader());
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader MAPPINGS_READER = OBJECT_MAPPER
+            .readerForListOf(Mapping.class)
+            .with(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
+
+    /**
+     * Parsed mappings by file checksum. Filled from the cache file of each pattern on its first load.
+     */
+    private static final Map<String, List<Mapping>> PARSED = new ConcurrentHashMap<>();
+
+    /**
+     * Cache files already read into {@link #PARSED}. Guarded by {@link #PARSED}.
+     */
+    private static final Set<Path> READ_CACHE_FILES = new HashSet<>();
+
+    private static final AtomicLong PARSED_FILES = new AtomicLong();
+
+    private StubCatalog() {
+    }
+
+    /**
+     * Returns the number of files parsed, i.e. not found in the cache.
+     *
+     * @return parsed file count
+     */
+    public static long getParsedFileCount() {
+        return PARSED_FILES.get();
+    }
+
+    /**
+     * Removes parsed mappings from memory and resets the counter. Cache files are kept, so they're read again by the
+     * next {@link #load(String)}.
+     */
+    public static void clear() {
+        synchronized (PARSED) {
+            PARSED.clear();
+            READ_CACHE_FILES.clear();
+        }
+
+        PARSED_FILES.set(0);
+    }
+
+    /**
+     * Loads mapping files and mocks them.
+     *
+     * @param locationPattern Spring resource pattern, such as {@code classpath*:wiremock/**}{@code /*.json}
+     * @return commands mocked
+     * @throws IllegalArgumentException error reading, parsing or validating a file (no stubs are sent then)
+     */
+    public static List<WireMockCommand> load(String locationPattern) {
+        Resource[] resources;
+        try {
+            resources = RESOURCE_RESOLVER.getResources(locationPattern);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error resolving '" + locationPattern + "': " + e.getMessage(), e);
+        }
+
+        Path cacheFile = Path.of(System.getProperty(CACHE_DIRECTORY_PROPERTY, DEFAULT_CACHE_DIRECTORY))
+                .resolve(CACHE_FILE_PREFIX + sha256(locationPattern.getBytes(StandardCharsets.UTF_8))
+                        + CACHE_FILE_SUFFIX);
+        readCacheFile(cacheFile);
+
+        AtomicInteger parsedFileCount = new AtomicInteger();
+        Map<String, List<Mapping>> mappingsByChecksum = new ConcurrentHashMap<>();
+
+        List<WireMockCommand> commands = Arrays.stream(resources)
+                .parallel()
+                .flatMap(resource -> {
+                    byte[] content = read(resource);
+                    String checksum = sha256(content);
+
+                    List<Mapping> mappings = PARSED.computeIfAbsent(checksum, key -> {
+                        parsedFileCount.incrementAndGet();
+                        PARSED_FILES.incrementAndGet();
+                        return parse(resource, content);
+                    });
+                    mappingsByChecksum.put(checksum, mappings);
+
+                    return mappings.stream().map(mapping -> toCommand(resource, mapping));
+                })
+                .toList();
+
+        if (parsedFileCount.get() > 0) {
+            writeCacheFile(cacheFile, mappingsByChecksum);
+        }
+
+        WireMockCommand.mockAll(commands);
+        log.info("Loaded {} stubs from {} files matching '{}' ({} files parsed, others cached)", commands.size(),
+                resources.length, locationPattern, parsedFileCount.get());
+        return commands;
+    }
+
+    private static byte[] read(Resource resource) {
+        try {
+            return resource.getContentAsByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error reading " + resource.getDescription() + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static List<Mapping> parse(Resource resource, byte[] content) {
+        try {
+            List<Mapping> mappings = MAPPINGS_READER.readValue(content);
+            return mappings.stream()
+                    .map(Mapping::withTextBody)
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error parsing " + resource.getDescription() + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static WireMockCommand toCommand(Resource resource, Mapping mapping) {
+        try {
+            WireMockCommand command = mapping.toCommand();
+            command.validate();
+            return command;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid mapping in " + resource.getDescription() + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void readCacheFile(Path cacheFile) {
+        synchronized (PARSED) {
+            if (!READ_CACHE_FILES.add(cacheFile) || !Files.isRegularFile(cacheFile)) {
+                return;
+            }
+
+            try (var in = new ObjectInputStream(Files.newInputStream(cacheFile))) {
+                in.setObjectInputFilter(ObjectInputFilter.Config.createFilter(
+                        "guru.nicks.test.StubCatalog$*;java.base/*;!*"));
+                PARSED.putAll((Map<String, List<Mapping>>) in.readObject());
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                // stale format - the cache is rewritten after parsing
+                log.debug("Ignoring stub catalog cache '{}': {}", cacheFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes mappings of the files loaded by the pattern, so deleted files are evicted. The file is replaced atomically
+     * because parallel forks may write it at the same time.
+     */
+    private static void writeCacheFile(Path cacheFile, Map<String, List<Mapping>> mappingsByChecksum) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = Files.createTempFile(cacheFile.getParent(), CACHE_FILE_PREFIX, ".tmp");
+
+            try (OutputStream fileOut = Files.newOutputStream(tempFile);
+                    var out = new ObjectOutputStream(fileOut)) {
+                out.writeObject(new HashMap<>(mappingsByChecksum));
+            }
+
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to write stub catalog cache '{}': {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Mapping file entry.
+     *
+     * @param request  request
+     * @param response response
+     */
+    record Mapping(MappingRequest request, MappingResponse response) implements Serializable {
+
+        /**
+         * Converts non-string JSON bodies to text, so the mapping can be cached.
+         */
+        Mapping withTextBody() {
+            if ((response == null) || (response.body() == null) || (response.body() instanceof String)) {
+                return this;
+            }
+
+            try {
+                return new Mapping(request, new MappingResponse(response.httpStatus(), response.headers(),
+                        OBJECT_MAPPER.writeValueAsString(response.body()), response.bodyFromClasspath(),
+                        response.bodyFile()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        WireMockCommand toCommand() {
+            var responseBuilder = WireMockCommand.builder()
+                    .request()
+                    .httpMethod((request == null) || (request.httpMethod() == null)
+                            ? null
+                            : HttpMethod.valueOf(request.httpMethod()))
+                    .path((request == null) ? null : request.path())
+                    .and()
+                    .response();
+
+            if (response == null) {
+                return responseBuilder.and().build();
+            }
+
+            if (response.httpStatus() != null) {
+                responseBuilder.httpStatusCode(response.httpStatus());
+            }
+
+            if (response.headers() != null) {
+                response.headers().forEach((name, value) -> responseBuilder.header(new HttpHeader(name, value)));
+            }
+
+            if (response.body() != null) {
+                responseBuilder.body((String) response.body());
+            }
+
+            if (response.bodyFromClasspath() != null) {
+                if (response.body() != null) {
+                    throw new IllegalArgumentException("Only one of body, body from classpath can be set");
+                }
+
+                responseBuilder.bodyFromClasspath(response.bodyFromClasspath());
+            }
+
+            if (response.bodyFile() != null) {
+                responseBuilder.bodyFile(response.bodyFile());
+            }
+
+            return responseBuilder.and().build();
+        }
+
+    }
+
+    /**
+     * Request part of {@link Mapping}.
+     *
+     * @param httpMethod HTTP method
+     * @param path       URL path
+     */
+    record MappingRequest(String httpMethod, String path) implements Serializable {
+    }
+
+    /**
+     * Response part of {@link Mapping}.
+     *
+     * @param httpStatus        HTTP status, default is 200
+     * @param headers           headers
+     * @param body              body: string, or any JSON value (converted to a string after parsing)
+     * @param bodyFromClasspath fixture to read the body from
+     * @param bodyFile          file WireMock streams the body from
+     */
+    record MappingResponse(Integer httpStatus, Map<String, String> headers, Object body, String bodyFromClasspath,
+            String bodyFile) implements Serializable {
+    }
+
+}
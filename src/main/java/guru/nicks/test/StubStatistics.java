@@ -0,0 +1,234 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Lock-free hit counters and latency histograms of WireMock stubs, collected by {@link Listener} (registered by
+ * {@link WireMockServerCustomizer}) without keeping requests in memory, unlike the request journal. Stubs created by
+ * {@link WireMockCommand} are registered in advance, so the report lists stubs which were never hit as well.
+ * <p>
+ * Statistics of a stub are available via {@link WireMockCommand#getStatistics()}, the report of all stubs is logged by
+ * {@link SessionReportListener} at the end of the test run.
+ */
+public final class StubStatistics {
+
+    private static final Map<UUID, Stub> STUBS = new ConcurrentHashMap<>();
+
+    private StubStatistics() {
+    }
+
+    /**
+     * Returns statistics of the given stub.
+     *
+     * @param stubId stub ID
+     * @return statistics (empty if the stub is neither registered nor hit)
+     */
+    public static Optional<Stub> get(UUID stubId) {
+        return Optional.ofNullable(STUBS.get(stubId));
+    }
+
+    /**
+     * Resets statistics of all stubs.
+     */
+    public static void clear() {
+        STUBS.clear();
+    }
+
+    /**
+     * Formats statistics of all stubs: most hit first, never hit last.
+     *
+     * @return report, empty if there are no stubs
+     */
+    public static String getReport() {
+        return STUBS.values().stream()
+                .sorted(Comparator.comparingLong(Stub::getHitCount).reversed()
+                        .thenComparing(Stub::getDescription))
+                .map(Stub::toString)
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Registers the stub so it's reported even if it's never hit.
+     *
+     * @param stubId      stub ID
+     * @param description stub description, such as HTTP method and path
+     */
+    static void register(UUID stubId, String description) {
+        STUBS.computeIfAbsent(stubId, id -> new Stub(description));
+    }
+
+    /**
+     * Hit counter and latency histogram of a stub.
+     */
+    public static final class Stub {
+
+        @Getter
+        private final String description;
+
+        private final LongAdder hitCount = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private Stub(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Returns the number of requests served by the stub.
+         *
+         * @return hit count
+         */
+        public long getHitCount() {
+            return hitCount.sum();
+        }
+
+        /**
+         * Returns the latency percentile (approximate, within 1/{@value LatencyHistogram#SUB_BUCKETS} of the actual
+         * value).
+         *
+         * @param percentile percentile (0 to 100)
+         * @return latency in milliseconds, 0 if there were no hits
+         */
+        public long getLatencyPercentile(double percentile) {
+            return latencies.getPercentile(percentile);
+        }
+
+        /**
+         * Returns the maximum latency.
+         *
+         * @return latency in milliseconds, 0 if there were no hits
+         */
+        public long getMaxLatency() {
+            return latencies.getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-60s hits: %6d, latency ms: p50 %5d, p99 %5d, max %5d", description,
+                    getHitCount(), getLatencyPercentile(50), getLatencyPercentile(99), getMaxLatency());
+        }
+
+        private void record(Integer latencyMillis) {
+            hitCount.increment();
+
+            if (latencyMillis != null) {
+                latencies.record(latencyMillis);
+            }
+        }
+
+    }
+
+    /**
+     * HDR-style histogram: values are grouped by power of two, each group is split into {@value #SUB_BUCKETS} linear
+     * buckets, so the relative error is bounded regardless of magnitude.
+     */
+    static final class LatencyHistogram {
+
+        static final int SUB_BUCKETS = 8;
+
+        private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+        private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder totalCount = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long value) {
+            long nonNegativeValue = Math.max(0, value);
+            counts.incrementAndGet(getBucket(nonNegativeValue));
+            totalCount.increment();
+            max.accumulate(nonNegativeValue);
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        long getPercentile(double percentile) {
+            long total = totalCount.sum();
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                seen += counts.get(bucket);
+
+                if (seen >= rank) {
+                    return Math.min(getBucketLowerBound(bucket), getMax());
+                }
+            }
+
+            return getMax();
+        }
+
+        private static int getBucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+
+            int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+        }
+
+        private static long getBucketLowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+
+            int shift = bucket / SUB_BUCKETS - 1;
+            return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        }
+
+    }
+
+    /**
+     * Records each request served by a stub.
+     */
+    static class Listener implements ServeEventListener {
+
+        public static final String NAME = "guru-nicks-stub-statistics";
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
+            if (!serveEvent.getWasMatched()) {
+                return;
+            }
+
+            Integer latencyMillis = (serveEvent.getTiming() == null)
+                    ? null
+                    : serveEvent.getTiming().getTotalTime();
+
+            STUBS.computeIfAbsent(serveEvent.getStubMapping().getId(),
+                            id -> new Stub(describe(serveEvent.getStubMapping().getRequest())))
+                    .record(latencyMillis);
+        }
+
+        private static String describe(RequestPattern requestPattern) {
+            return requestPattern.getMethod() + " " + Optional.ofNullable(requestPattern.getUrlPath())
+                    .orElseGet(() -> String.valueOf(requestPattern.getUrlMatcher().getExpected()));
+        }
+
+    }
+
+}
@@ -0,0 +1,352 @@
+package guru.nicks.test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.util.ClassUtils;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Gives each test class or method (see {@link TestIsolation.Scope}) a fresh PostgreSQL database cloned with
+ * {@code CREATE DATABASE ... TEMPLATE}. The source is the database the wrapped {@link DataSource} points to:
+ * Flyway/Liquibase migrate it once, at context startup (contexts created later find it already migrated). Cloning is
+ * a file-level copy, which is much cheaper than truncating all tables and seeding them again.
+ * <p>
+ * PostgreSQL can't clone a database having connections, therefore the first {@link #isolate()} closes the wrapped
+ * connection pool and copies the migrated database, once per container, into {@code <database>_template} marked with
+ * {@code IS_TEMPLATE true, ALLOW_CONNECTIONS false}. Clones are made from that copy, so sessions of the source
+ * database (such as pools of other contexts) are never touched. Each clone gets its own pool of the same type as the
+ * wrapped one ({@code HikariCP} pools keep their settings). Previous clones are dropped asynchronously.
+ */
+@Slf4j
+class TemplateDatabaseDataSource implements DataSource, TestIsolation, AutoCloseable {
+
+    private static final AtomicInteger CLONE_COUNTER = new AtomicInteger();
+
+    private static final boolean HIKARI_PRESENT = ClassUtils.isPresent("com.zaxxer.hikari.HikariDataSource",
+            TemplateDatabaseDataSource.class.getClassLoader());
+
+    /**
+     * How long to wait for sessions of the source database to go away before copying it.
+     */
+    private static final long SOURCE_RELEASE_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * SQL state of 'source database is being accessed by other users'.
+     */
+    private static final String OBJECT_IN_USE = "55006";
+
+    /**
+     * Container ID plus template database name, for template databases created by this JVM. Templates found but not
+     * listed here are left over by a previous JVM (such as a fork having the same slot) and are recreated.
+     */
+    private static final Set<String> CREATED_TEMPLATES = ConcurrentHashMap.newKeySet();
+
+    private final DataSource templateDataSource;
+    private final JdbcDatabaseContainer<?> container;
+    private final String sourceDatabase;
+    private final String templateDatabase;
+    @Getter
+    private final Scope scope;
+
+    private volatile DataSource currentDataSource;
+    private String currentDatabase;
+
+    TemplateDatabaseDataSource(DataSource templateDataSource, JdbcDatabaseContainer<?> container,
+            String sourceDatabase, Scope scope) {
+        this.templateDataSource = templateDataSource;
+        this.container = container;
+        this.sourceDatabase = sourceDatabase;
+        templateDatabase = sourceDatabase + "_template";
+        this.scope = scope;
+        currentDataSource = templateDataSource;
+    }
+
+    @Override
+    public synchronized void isolate() {
+        if (currentDataSource == templateDataSource) {
+            closeDataSource(templateDataSource);
+            createTemplate();
+        }
+
+        // unique across JVMs sharing the container
+        String database = sourceDatabase + "_" + ProcessHandle.current().pid()
+                + "_" + CLONE_COUNTER.incrementAndGet();
+        long start = System.nanoTime();
+        cloneTemplate(database);
+
+        DataSource previousDataSource = currentDataSource;
+        String previousDatabase = currentDatabase;
+        currentDataSource = createDataSource(database);
+        currentDatabase = database;
+        log.debug("Cloned template database into '{}' in {} ms", database,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (previousDataSource != templateDataSource) {
+            disposeAsync(previousDataSource, previousDatabase);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeDataSource(templateDataSource);
+
+        if (currentDataSource != templateDataSource) {
+            disposeAsync(currentDataSource, currentDatabase);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return currentDataSource.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return currentDataSource.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return currentDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        currentDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return currentDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        currentDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return currentDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this)
+                ? iface.cast(this)
+                : currentDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || currentDataSource.isWrapperFor(iface);
+    }
+
+    /**
+     * Copies the migrated database into {@link #templateDatabase}, unless done already by this JVM. The copy accepts no
+     * connections, so it can be cloned at any time.
+     *
+     * @throws IllegalStateException the source database has sessions (such as pools of contexts not using template
+     *                               databases) which haven't gone away in {@value #SOURCE_RELEASE_TIMEOUT_MILLIS} ms
+     */
+    private void createTemplate() {
+        String key = container.getContainerId() + "/" + templateDatabase;
+
+        synchronized (CREATED_TEMPLATES) {
+            if (CREATED_TEMPLATES.contains(key)) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(SOURCE_RELEASE_TIMEOUT_MILLIS);
+
+            try (Connection connection = openAdminConnection();
+                    Statement statement = connection.createStatement()) {
+                dropTemplate(connection, statement);
+
+                while (true) {
+                    try {
+                        statement.execute("CREATE DATABASE \"" + templateDatabase + "\" TEMPLATE \""
+                                + sourceDatabase + "\"");
+                        break;
+                    } catch (SQLException e) {
+                        if (!OBJECT_IN_USE.equals(e.getSQLState()) || (System.nanoTime() > deadline)) {
+                            throw e;
+                        }
+
+                        // pools being closed release their connections asynchronously
+                        Thread.sleep(100);
+                    }
+                }
+
+                statement.execute("ALTER DATABASE \"" + templateDatabase
+                        + "\" WITH IS_TEMPLATE true ALLOW_CONNECTIONS false");
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to copy database '" + sourceDatabase + "' into template '"
+                        + templateDatabase + "': " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while creating template database", e);
+            }
+
+            CREATED_TEMPLATES.add(key);
+            log.info("Copied database '{}' into template '{}' in {} ms", sourceDatabase, templateDatabase,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Drops the template left over by a previous JVM, if any: it may have been created from another schema version.
+     *
+     * @param connection admin connection
+     * @param statement  statement of that connection
+     * @throws SQLException database error
+     */
+    private void dropTemplate(Connection connection, Statement statement) throws SQLException {
+        try (PreparedStatement existsStatement = connection.prepareStatement(
+                "SELECT 1 FROM pg_database WHERE datname = ?")) {
+            existsStatement.setString(1, templateDatabase);
+
+            try (ResultSet resultSet = existsStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return;
+                }
+            }
+        }
+
+        // templates can't be dropped
+        statement.execute("ALTER DATABASE \"" + templateDatabase + "\" WITH IS_TEMPLATE false");
+        statement.execute("DROP DATABASE \"" + templateDatabase + "\"");
+        log.info("Dropped stale template database '{}'", templateDatabase);
+    }
+
+    private void cloneTemplate(String database) {
+        try (Connection connection = openAdminConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE \"" + database + "\" TEMPLATE \"" + templateDatabase + "\"");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to clone template database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a pool for the clone, of the same type and with the same settings as the wrapped one if it's a
+     * {@code HikariCP} pool.
+     *
+     * @param database clone name
+     * @return data source
+     */
+    private DataSource createDataSource(String database) {
+        String url = JdbcContainers.getJdbcUrl(container, database);
+
+        DataSource dataSource = HIKARI_PRESENT
+                ? Hikari.copy(templateDataSource, url, database)
+                : null;
+
+        return (dataSource != null)
+                ? dataSource
+                : DataSourceBuilder.derivedFrom(templateDataSource)
+                        .url(url)
+                        .build();
+    }
+
+    private void disposeAsync(DataSource dataSource, String database) {
+        Thread.ofVirtual()
+                .name("template-database-drop-" + database)
+                .start(() -> {
+                    closeDataSource(dataSource);
+
+                    try (Connection connection = openAdminConnection();
+                            Statement statement = connection.createStatement()) {
+                        statement.execute("DROP DATABASE IF EXISTS \"" + database + "\" WITH (FORCE)");
+                    } catch (SQLException e) {
+                        log.warn("Failed to drop database '{}': {}", database, e.getMessage(), e);
+                    }
+                });
+    }
+
+    private Connection openAdminConnection() throws SQLException {
+        return JdbcContainers.openConnection(container, JdbcContainers.POSTGRES_ADMIN_DATABASE,
+                container.getUsername(), container.getPassword());
+    }
+
+    private static void closeDataSource(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close DataSource: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Wraps all {@link DataSource} beans in {@link TemplateDatabaseDataSource}.
+     */
+    @RequiredArgsConstructor
+    static class PostProcessor implements BeanPostProcessor {
+
+        private final JdbcDatabaseContainer<?> container;
+        private final String sourceDatabase;
+        private final Scope scope;
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if ((bean instanceof DataSource dataSource) && !(bean instanceof TemplateDatabaseDataSource)) {
+                log.info("DataSource '{}' will clone template database for each test {}", beanName, scope);
+                return new TemplateDatabaseDataSource(dataSource, container, sourceDatabase, scope);
+            }
+
+            return bean;
+        }
+
+    }
+
+    /**
+     * Isolates the {@code HikariCP} dependency: this class is loaded only if the pool is on the classpath.
+     */
+    private static final class Hikari {
+
+        /**
+         * Creates a pool with the same settings as the given one.
+         *
+         * @param dataSource pool to copy settings from
+         * @param url        JDBC URL of the new pool
+         * @param database   database name, to make the pool name unique
+         * @return pool, {@code null} if the given data source is not a {@code HikariCP} pool
+         */
+        static DataSource copy(DataSource dataSource, String url, String database) {
+            if (!(dataSource instanceof HikariDataSource source)) {
+                return null;
+            }
+
+            var config = new HikariConfig();
+            source.copyStateTo(config);
+            config.setJdbcUrl(url);
+            // pool names must be unique for JMX
+            config.setPoolName(source.getPoolName() + "-" + database);
+            return new HikariDataSource(config);
+        }
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package guru.nicks.test;
+
+/**
+ * Isolates tests sharing a container from each other: gives each test class or method a clean database, key space,
+ * etc. Beans implementing this interface are driven by {@link TestIsolationExecutionListener}.
+ */
+public interface TestIsolation {
+
+    /**
+     * Returns how often {@link #isolate()} is called.
+     *
+     * @return isolation scope
+     */
+    Scope getScope();
+
+    /**
+     * Prepares a clean resource for the next test class or method (depending on {@link #getScope()}).
+     */
+    void isolate();
+
+    enum Scope {
+
+        /**
+         * Each test class gets a clean resource, its methods share it.
+         */
+        CLASS,
+
+        /**
+         * Each test method gets a clean resource.
+         */
+        METHOD
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package guru.nicks.test;
+
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+import java.util.Arrays;
+
+/**
+ * Calls {@link TestIsolation#isolate()} on all {@link TestIsolation} beans before each test class or method, depending
+ * on their scope, except for lazy beans which haven't been created yet. Registered automatically via
+ * {@code META-INF/spring.factories}.
+ */
+public class TestIsolationExecutionListener extends AbstractTestExecutionListener {
+
+    /**
+     * Before {@link org.springframework.test.context.transaction.TransactionalTestExecutionListener} (4000) opens a
+     * transaction and {@link org.springframework.test.context.jdbc.SqlScriptsTestExecutionListener} (5000) runs
+     * scripts - they must already see the isolated resource.
+     */
+    public static final int ORDER = 3500;
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeTestClass(TestContext testContext) {
+        isolate(testContext, TestIsolation.Scope.CLASS);
+    }
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        isolate(testContext, TestIsolation.Scope.METHOD);
+    }
+
+    private void isolate(TestContext testContext, TestIsolation.Scope scope) {
+        var applicationContext = (ConfigurableApplicationContext) testContext.getApplicationContext();
+        ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
+
+        // lazy beans not created yet (such as partitions of containers not started yet) have nothing to isolate
+        Arrays.stream(beanFactory.getBeanNamesForType(TestIsolation.class, true, true))
+                .filter(name -> beanFactory.containsSingleton(name)
+                        || !beanFactory.containsBeanDefinition(name)
+                        || !beanFactory.getBeanDefinition(name).isLazyInit())
+                .map(name -> beanFactory.getBean(name, TestIsolation.class))
+                .sorted(AnnotationAwareOrderComparator.INSTANCE)
+                .filter(isolation -> isolation.getScope() == scope)
+                .forEach(TestIsolation::isolate);
+    }
+
+}
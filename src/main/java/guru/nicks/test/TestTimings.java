@@ -0,0 +1,325 @@
+package guru.nicks.test;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextBeforeModesTestExecutionListener;
+import org.springframework.util.ObjectUtils;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where test infrastructure time goes: container creation, image resolution, container start and time to ready,
+ * binding properties, Spring context loading, WireMock setup and stub registration, fixture loading. Each measurement
+ * is emitted as a JFR event ({@value TimingEvent#NAME}, recorded when the tests run with
+ * {@code -XX:StartFlightRecording}) and aggregated in memory. The summary (see {@link #getReport()}) is logged by
+ * {@link SessionReportListener} at the end of the test run.
+ */
+@Slf4j
+public final class TestTimings {
+
+    /**
+     * Number of slowest measurements reported per phase.
+     */
+    public static final int SLOWEST_COUNT = 5;
+
+    private static final Map<Phase, PhaseStatistics> PHASES = new EnumMap<>(Phase.class);
+
+    /**
+     * Container acquisition and property binding time by {@link #contextKey(ApplicationContext) context key}.
+     */
+    private static final Map<String, LongAdder> CONTAINER_NANOS_BY_CONTEXT = new ConcurrentHashMap<>();
+
+    /**
+     * Test class which has loaded the Spring context, by {@link #contextKey(ApplicationContext) context key}.
+     */
+    private static final Map<String, String> TEST_CLASS_BY_CONTEXT = new ConcurrentHashMap<>();
+
+    private static final LongAdder CONTEXTS_CREATED = new LongAdder();
+    private static final LongAdder CONTEXTS_REUSED = new LongAdder();
+
+    static {
+        for (Phase phase : Phase.values()) {
+            PHASES.put(phase, new PhaseStatistics());
+        }
+    }
+
+    private TestTimings() {
+    }
+
+    /**
+     * Formats the summary: total, count and maximum per phase, the slowest measurements of each phase, container time
+     * per Spring context (named after the test class which has loaded it), contexts created vs. reused.
+     *
+     * @return report, empty if nothing has been measured
+     */
+    public static String getReport() {
+        var report = new StringBuilder();
+
+        PHASES.forEach((phase, statistics) -> {
+            long count = statistics.count.sum();
+            if (count == 0) {
+                return;
+            }
+
+            report.append(String.format("%-20s count: %5d, total ms: %8d, max ms: %6d%n", phase, count,
+                    TimeUnit.NANOSECONDS.toMillis(statistics.totalNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(statistics.maxNanos.get())));
+
+            for (Measurement measurement : statistics.getSlowest()) {
+                report.append(String.format("    %8d ms  %s%n", TimeUnit.NANOSECONDS.toMillis(measurement.nanos()),
+                        measurement.name()));
+            }
+        });
+
+        if (!CONTAINER_NANOS_BY_CONTEXT.isEmpty()) {
+            report.append("Container time by context (test class loading it):\n");
+            CONTAINER_NANOS_BY_CONTEXT.entrySet()
+                    .stream()
+                    .sorted(Map.Entry.<String, LongAdder>comparingByValue(Comparator.comparingLong(LongAdder::sum))
+                            .reversed())
+                    .forEach(entry -> report.append(String.format("    %8d ms  %s%n",
+                            TimeUnit.NANOSECONDS.toMillis(entry.getValue().sum()),
+                            TEST_CLASS_BY_CONTEXT.getOrDefault(entry.getKey(), entry.getKey()))));
+        }
+
+        long contextsCreated = CONTEXTS_CREATED.sum();
+        long contextsReused = CONTEXTS_REUSED.sum();
+        if ((contextsCreated + contextsReused) > 0) {
+            report.append(String.format("Spring contexts: %d created, %d reused by test classes%n", contextsCreated,
+                    contextsReused));
+        }
+
+        return report.toString().stripTrailing();
+    }
+
+    /**
+     * Resets all statistics.
+     */
+    public static void clear() {
+        PHASES.values().forEach(PhaseStatistics::clear);
+        CONTAINER_NANOS_BY_CONTEXT.clear();
+        TEST_CLASS_BY_CONTEXT.clear();
+        CONTEXTS_CREATED.reset();
+        CONTEXTS_REUSED.reset();
+    }
+
+    /**
+     * Returns the key timings of the Spring context are recorded under. Unlike the display name, which may be
+     * customized, it's unique for each context instance.
+     *
+     * @param applicationContext Spring context
+     * @return key
+     */
+    static String contextKey(ApplicationContext applicationContext) {
+        return ObjectUtils.identityToString(applicationContext);
+    }
+
+    /**
+     * Starts measuring.
+     *
+     * @param phase phase
+     * @param name  what is being measured, such as container key, stub or fixture path
+     * @return timer to stop when the phase is over
+     */
+    static Timer start(Phase phase, String name) {
+        return start(phase, name, null);
+    }
+
+    /**
+     * Starts measuring on behalf of a Spring context.
+     *
+     * @param phase   phase
+     * @param name    what is being measured, such as container key, stub or fixture path
+     * @param context {@link #contextKey(ApplicationContext) Spring context key}, {@code null} if not applicable
+     * @return timer to stop when the phase is over
+     */
+    static Timer start(Phase phase, String name, String context) {
+        return new Timer(phase, name, context);
+    }
+
+    /**
+     * Phases of test infrastructure setup.
+     */
+    enum Phase {
+        CONTAINER_CREATE,
+        IMAGE_RESOLUTION,
+        /**
+         * Includes waiting until the container is ready.
+         */
+        CONTAINER_START,
+        READINESS,
+        /**
+         * Time a Spring context waits for the container - short if the container is already running.
+         */
+        CONTAINER_ACQUIRE,
+        PROPERTY_BINDING,
+        CONTEXT_LOAD,
+        WIREMOCK_SETUP,
+        STUB_REGISTRATION,
+        FIXTURE_LOAD
+    }
+
+    /**
+     * Measurement in progress, not thread-safe.
+     */
+    static final class Timer {
+
+        private final Phase phase;
+        private final String name;
+        private final String context;
+        private final TimingEvent event = new TimingEvent();
+        private final long startNanos;
+
+        private Timer(Phase phase, String name, String context) {
+            this.phase = phase;
+            this.name = name;
+            this.context = context;
+            event.begin();
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Records the measurement and emits the JFR event.
+         *
+         * @return elapsed time in nanoseconds
+         */
+        long stop() {
+            long nanos = System.nanoTime() - startNanos;
+            PHASES.get(phase).add(name, nanos);
+
+            if ((context != null)
+                    && ((phase == Phase.CONTAINER_ACQUIRE) || (phase == Phase.PROPERTY_BINDING))) {
+                CONTAINER_NANOS_BY_CONTEXT.computeIfAbsent(context, k -> new LongAdder()).add(nanos);
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.subject = name;
+                event.context = context;
+                event.commit();
+            }
+
+            log.trace("{} '{}' took {} ms", phase, name, TimeUnit.NANOSECONDS.toMillis(nanos));
+            return nanos;
+        }
+
+    }
+
+    /**
+     * Measures Spring context loading (caused by the first {@link TestContext#getApplicationContext()} of a test class)
+     * and counts contexts created and reused. Registered automatically via {@code META-INF/spring.factories}.
+     */
+    public static class ExecutionListener extends AbstractTestExecutionListener {
+
+        /**
+         * After {@link DirtiesContextBeforeModesTestExecutionListener}, which evicts contexts dirtied before the test
+         * class (if the context were loaded earlier, it would be loaded twice), and before all Spring listeners loading
+         * the context, so the context is loaded here.
+         */
+        public static final int ORDER = DirtiesContextBeforeModesTestExecutionListener.ORDER + 100;
+
+        @Override
+        public int getOrder() {
+            return ORDER;
+        }
+
+        @Override
+        public void beforeTestClass(TestContext testContext) {
+            if (testContext.hasApplicationContext()) {
+                CONTEXTS_REUSED.increment();
+                return;
+            }
+
+            Timer timer = start(Phase.CONTEXT_LOAD, testContext.getTestClass().getName());
+            ApplicationContext applicationContext = testContext.getApplicationContext();
+            timer.stop();
+            CONTEXTS_CREATED.increment();
+            TEST_CLASS_BY_CONTEXT.put(contextKey(applicationContext), testContext.getTestClass().getName());
+        }
+
+    }
+
+    @Name(TimingEvent.NAME)
+    @Label("Test Infrastructure Timing")
+    @Description("Phase of test infrastructure setup, such as container start or stub registration")
+    @Category("Testing")
+    static final class TimingEvent extends Event {
+
+        static final String NAME = "guru.nicks.test.Timing";
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Subject")
+        String subject;
+
+        @Label("Spring Context")
+        String context;
+
+    }
+
+    private record Measurement(String name, long nanos) {
+    }
+
+    private static final class PhaseStatistics {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Min-heap of the slowest measurements.
+         */
+        private final PriorityQueue<Measurement> slowest = new PriorityQueue<>(
+                Comparator.comparingLong(Measurement::nanos));
+
+        void add(String name, long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+
+            synchronized (slowest) {
+                slowest.add(new Measurement(name, nanos));
+                if (slowest.size() > SLOWEST_COUNT) {
+                    slowest.poll();
+                }
+            }
+        }
+
+        List<Measurement> getSlowest() {
+            synchronized (slowest) {
+                return slowest.stream()
+                        .sorted(Comparator.comparingLong(Measurement::nanos).reversed())
+                        .toList();
+            }
+        }
+
+        void clear() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+
+            synchronized (slowest) {
+                slowest.clear();
+            }
+        }
+
+    }
+
+}
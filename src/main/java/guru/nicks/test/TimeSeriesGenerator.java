@@ -0,0 +1,406 @@
+package guru.nicks.test;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates synthetic time series in a TimescaleDB hypertable, for testing chunking, compression, continuous
+ * aggregates and query plans at realistic data volumes. Rows are streamed via {@code COPY ... FROM STDIN} as they're
+ * generated (constant memory) and are deterministic: the same builder settings and {@link #seed} produce the same data.
+ * <p>
+ * Each timestamp from {@link #from} (inclusive) to {@link #to} (exclusive) with step {@link #interval} gets a row per
+ * series: {@link #timeColumn}, {@link #seriesColumn} (1 to {@link #seriesCount}) and a value per
+ * {@link #valueColumns} entry. Example:
+ * <pre>
+ * long rows = TimeSeriesGenerator.builder()
+ *         .table("metrics")
+ *         .seriesColumn("device_id")
+ *         .seriesCount(1000)
+ *         .from(Instant.parse("2025-01-01T00:00:00Z"))
+ *         .to(Instant.parse("2025-02-01T00:00:00Z"))
+ *         .interval(Duration.ofMinutes(1))
+ *         .valueColumn("temperature", TimeSeriesGenerator.Distribution.randomWalk(20, 0.1))
+ *         .valueColumn("load", TimeSeriesGenerator.Distribution.uniform(0, 1))
+ *         .chunkInterval(Duration.ofDays(1))
+ *         .compressAfter(Duration.ofDays(7))
+ *         .build()
+ *         .generate(dataSource);
+ * </pre>
+ */
+@Value
+@Builder
+@Slf4j
+public class TimeSeriesGenerator {
+
+    /**
+     * Hypertable name, optionally schema-qualified.
+     */
+    @NonNull
+    String table;
+
+    @NonNull
+    @Builder.Default
+    String timeColumn = "time";
+
+    @NonNull
+    @Builder.Default
+    String seriesColumn = "series_id";
+
+    /**
+     * Number of series (cardinality of {@link #seriesColumn}).
+     */
+    @Builder.Default
+    int seriesCount = 1;
+
+    @NonNull
+    Instant from;
+
+    @NonNull
+    Instant to;
+
+    @NonNull
+    Duration interval;
+
+    /**
+     * Value columns (of {@code DOUBLE PRECISION} type if the table is created) and their distributions.
+     */
+    @Singular
+    Map<String, Distribution> valueColumns;
+
+    @Builder.Default
+    long seed = 42;
+
+    /**
+     * If set, the table (if it doesn't exist yet) and the hypertable with this chunk interval are created. Otherwise,
+     * the hypertable must exist.
+     */
+    Duration chunkInterval;
+
+    /**
+     * If set, compression (segmented by {@link #seriesColumn}) and a compression policy are enabled after generation,
+     * and chunks older than this (counting back from {@link #to}, not from the current time) are compressed
+     * immediately - without waiting for the background job.
+     *
+     * @see #generate(DataSource)
+     */
+    Duration compressAfter;
+
+    /**
+     * If set, a retention policy is added after generation, and chunks older than this (counting back from
+     * {@link #to}, not from the current time) are dropped immediately.
+     *
+     * @see #generate(DataSource)
+     */
+    Duration retainFor;
+
+    /**
+     * Creates the hypertable (if {@link #chunkInterval} is set), generates rows, and applies policies. Policy jobs are
+     * left unscheduled, so that data doesn't depend on when the test runs; enable them with {@code alter_job} if
+     * needed. May be called again for the same table, for example to append another time range.
+     *
+     * @param dataSource data source
+     * @return number of rows generated
+     * @throws IllegalArgumentException invalid settings
+     * @throws IllegalStateException    database error
+     */
+    public long generate(DataSource dataSource) {
+        List<String> columns = new ArrayList<>();
+        columns.add(timeColumn);
+        columns.add(seriesColumn);
+        columns.addAll(valueColumns.keySet());
+        FixtureLoader.requireIdentifier(table);
+        columns.forEach(FixtureLoader::requireIdentifier);
+
+        if ((seriesCount < 1) || !from.isBefore(to) || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Series count must be positive, time range non-empty, "
+                    + "interval positive");
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            if (chunkInterval != null) {
+                createHypertable(connection);
+            }
+
+            TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.FIXTURE_LOAD,
+                    "time series -> " + table);
+            String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+            long rows = connection.unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn(sql, new RowRenderingReader());
+
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(timer.stop()));
+            log.info("Generated {} rows ({} series) in '{}' in {} ms ({} rows/s)", rows, seriesCount, table, millis,
+                    rows * 1000 / millis);
+
+            applyPolicies(connection);
+            return rows;
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException("Failed to generate time series in '" + table + "': " + e.getMessage(), e);
+        }
+    }
+
+    private void createHypertable(Connection connection) throws SQLException {
+        var ddl = new StringBuilder("CREATE TABLE IF NOT EXISTS ")
+                .append(table).append(" (")
+                .append(timeColumn).append(" TIMESTAMPTZ NOT NULL, ")
+                .append(seriesColumn).append(" INTEGER NOT NULL");
+        valueColumns.keySet().forEach(column -> ddl.append(", ").append(column).append(" DOUBLE PRECISION"));
+        ddl.append(')');
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(ddl.toString());
+        }
+
+        execute(connection, "SELECT create_hypertable(?::regclass, by_range(?, ?::interval), if_not_exists => TRUE)",
+                table, timeColumn, toInterval(chunkInterval));
+    }
+
+    private void applyPolicies(Connection connection) throws SQLException {
+        if (compressAfter != null) {
+            // can't be altered once chunks are compressed, which is the case when generating again
+            if (!isCompressionEnabled(connection)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ALTER TABLE " + table + " SET (timescaledb.compress, "
+                            + "timescaledb.compress_segmentby = '" + seriesColumn + "')");
+                }
+            }
+
+            execute(connection, "SELECT add_compression_policy(?::regclass, ?::interval, if_not_exists => TRUE)",
+                    table, toInterval(compressAfter));
+            execute(connection, "SELECT compress_chunk(c, if_not_compressed => TRUE) "
+                    + "FROM show_chunks(?::regclass, older_than => ?::timestamptz) c",
+                    table, to.minus(compressAfter).toString());
+        }
+
+        if (retainFor != null) {
+            execute(connection, "SELECT add_retention_policy(?::regclass, ?::interval, if_not_exists => TRUE)",
+                    table, toInterval(retainFor));
+            execute(connection, "SELECT drop_chunks(?::regclass, older_than => ?::timestamptz)",
+                    table, to.minus(retainFor).toString());
+        }
+
+        if ((compressAfter != null) || (retainFor != null)) {
+            // background jobs measure from the current time, which would change the data depending on when tests run
+            execute(connection, "SELECT alter_job(job_id, scheduled => FALSE) "
+                    + "FROM timescaledb_information.jobs "
+                    + "WHERE proc_name IN ('policy_compression', 'policy_retention') "
+                    + "AND format('%I.%I', hypertable_schema, hypertable_name)::regclass = ?::regclass", table);
+        }
+    }
+
+    private boolean isCompressionEnabled(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT compression_enabled "
+                + "FROM timescaledb_information.hypertables "
+                + "WHERE format('%I.%I', hypertable_schema, hypertable_name)::regclass = ?::regclass")) {
+            statement.setString(1, table);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql, String... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setString(i + 1, parameters[i]);
+            }
+
+            statement.execute();
+        }
+    }
+
+    private static String toInterval(Duration duration) {
+        return duration.toMillis() + " milliseconds";
+    }
+
+    /**
+     * Distribution of generated values.
+     */
+    public static final class Distribution {
+
+        private final Type type;
+        private final double first;
+        private final double second;
+
+        private Distribution(Type type, double first, double second) {
+            this.type = type;
+            this.first = first;
+            this.second = second;
+        }
+
+        public static Distribution constant(double value) {
+            return new Distribution(Type.CONSTANT, value, value);
+        }
+
+        /**
+         * Creates a uniform distribution.
+         *
+         * @param min minimum value (inclusive)
+         * @param max maximum value (exclusive)
+         * @return distribution
+         */
+        public static Distribution uniform(double min, double max) {
+            return new Distribution(Type.UNIFORM, min, max);
+        }
+
+        /**
+         * Creates a normal distribution.
+         *
+         * @param mean   mean
+         * @param stdDev standard deviation
+         * @return distribution
+         */
+        public static Distribution normal(double mean, double stdDev) {
+            return new Distribution(Type.NORMAL, mean, stdDev);
+        }
+
+        /**
+         * Creates a random walk: each series starts at the given value and changes by a uniformly distributed step,
+         * which is typical for sensor readings and prices.
+         *
+         * @param start   initial value
+         * @param maxStep maximum absolute change per interval
+         * @return distribution
+         */
+        public static Distribution randomWalk(double start, double maxStep) {
+            return new Distribution(Type.RANDOM_WALK, start, maxStep);
+        }
+
+        double sample(SplittableRandom random, double previous) {
+            return switch (type) {
+                case CONSTANT -> first;
+                case UNIFORM -> first + (second - first) * random.nextDouble();
+                case NORMAL -> first + second * nextGaussian(random);
+                case RANDOM_WALK -> (Double.isNaN(previous) ? first : previous)
+                        + second * (2 * random.nextDouble() - 1);
+            };
+        }
+
+        /**
+         * Marsaglia polar method, implemented here so that generated values don't depend on the JDK's algorithm.
+         */
+        private static double nextGaussian(SplittableRandom random) {
+            double x;
+            double y;
+            double s;
+
+            do {
+                x = 2 * random.nextDouble() - 1;
+                y = 2 * random.nextDouble() - 1;
+                s = x * x + y * y;
+            } while ((s >= 1) || (s == 0));
+
+            return x * Math.sqrt(-2 * Math.log(s) / s);
+        }
+
+        private enum Type {
+            CONSTANT,
+            UNIFORM,
+            NORMAL,
+            RANDOM_WALK
+        }
+
+    }
+
+    /**
+     * Renders rows as CSV, one row at a time, time-major (all series for a timestamp, then the next timestamp), which
+     * is how real data is ingested.
+     */
+    class RowRenderingReader extends Reader {
+
+        private final SplittableRandom random = new SplittableRandom(seed);
+        private final Distribution[] distributions = valueColumns.values().toArray(Distribution[]::new);
+
+        /**
+         * Previous values per series and value column, for random walks.
+         */
+        private final double[] previousValues = new double[seriesCount * distributions.length];
+
+        private final StringBuilder buffer = new StringBuilder();
+        private int position;
+
+        private Instant time = from;
+        private String renderedTime = from.toString();
+        private int series = 1;
+
+        RowRenderingReader() {
+            Arrays.fill(previousValues, Double.NaN);
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) {
+            if (position == buffer.length()) {
+                buffer.setLength(0);
+                position = 0;
+
+                // render many rows at once to make read calls cheap
+                while ((buffer.length() < 8192) && renderNextRow()) {
+                    // keep rendering
+                }
+
+                if (buffer.isEmpty()) {
+                    return -1;
+                }
+            }
+
+            int count = Math.min(length, buffer.length() - position);
+            buffer.getChars(position, position + count, target, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+
+        private boolean renderNextRow() {
+            if (series > seriesCount) {
+                time = time.plus(interval);
+                renderedTime = time.toString();
+                series = 1;
+            }
+
+            if (!time.isBefore(to)) {
+                return false;
+            }
+
+            buffer.append(renderedTime).append(',').append(series);
+            int offset = (series - 1) * distributions.length;
+
+            for (int i = 0; i < distributions.length; i++) {
+                double value = distributions[i].sample(random, previousValues[offset + i]);
+                previousValues[offset + i] = value;
+                buffer.append(',').append(value);
+            }
+
+            buffer.append('\n');
+            series++;
+            return true;
+        }
+
+    }
+
+}
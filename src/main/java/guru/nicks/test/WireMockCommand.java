@@ -1,33 +1,42 @@
 package guru.nicks.test;
 
 import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.ChunkedDribbleDelay;
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.http.HttpHeader;
 import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.stubbing.StubImport;
 import lombok.Builder;
+import lombok.Getter;
 import lombok.Singular;
 import lombok.Value;
 import lombok.experimental.NonFinal;
 import org.apache.commons.lang3.NotImplementedException;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 
-import java.io.IOException;
-import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.head;
+import static com.github.tomakehurst.wiremock.client.WireMock.importStubs;
 import static com.github.tomakehurst.wiremock.client.WireMock.options;
 import static com.github.tomakehurst.wiremock.client.WireMock.patch;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
@@ -54,18 +63,27 @@ import static java.util.Objects.requireNonNull;
  *      .and()
  *          .mock()
  * </pre>
+ * Many stubs are better registered at once with {@link #mockAll(Collection)}. Within {@link WireMockScope}, stubs are
+ * visible to the current test only.
+ * <p>
+ * Stubs are sent to the WireMock server of the current test's Spring context: {@link WireMockConfig.ExecutionListener}
+ * binds the client of that context to the test thread (and threads it starts). Without such binding (no
+ * {@link WireMockConfig}, or {@code @BeforeAll} of a class whose context is not loaded yet), the static WireMock client
+ * is used.
  *
  * @see #mock()
  */
 @Builder(buildMethodName = "_build", toBuilder = true) // rename default method to create custom build() method
 public class WireMockCommand {
 
-    private static final ResourcePatternResolver RESOURCE_RESOLVER = new PathMatchingResourcePatternResolver(
-            MethodHandles.lookup().lookupClass().getClassLoader());
-
     private static final List<HttpHeader> DEFAULT_RESPONSE_CONTENT_TYPE_HEADER = List.of(new HttpHeader(
             org.springframework.http.HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
 
+    /**
+     * Interval between chunks when emulating limited bandwidth.
+     */
+    private static final long BANDWIDTH_CHUNK_MILLIS = 10;
+
     private static final Map<HttpMethod, Function<String, MappingBuilder>> HTTP_METHOD_MAPPERS = Map.of(
             HttpMethod.GET, path -> get(urlPathEqualTo(path)),
             HttpMethod.POST, path -> post(urlPathEqualTo(path)),
@@ -76,9 +94,20 @@ public class WireMockCommand {
             HttpMethod.HEAD, path -> head(urlPathEqualTo(path))
     );
 
+    /**
+     * Client of the current test's Spring context, {@code null} means the static WireMock client is used.
+     */
+    private static final InheritableThreadLocal<WireMock> CURRENT_CLIENT = new InheritableThreadLocal<>();
+
     private final Request request;
     private final Response response;
 
+    /**
+     * Stub ID, generated by each {@link WireMockCommandBuilder#build()}.
+     */
+    @Getter
+    private final UUID id;
+
     /**
      * Builds command and sends it to WireMock server.
      *
@@ -86,27 +115,251 @@ public class WireMockCommand {
      *         the same URL is used, the new stub overwrites the previous one
      */
     public WireMockCommand mock() {
+        validate();
+        MappingBuilder mappingBuilder = toMappingBuilder();
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.STUB_REGISTRATION,
+                request.getHttpMethod() + " " + request.getPath());
+        WireMock wireMock = CURRENT_CLIENT.get();
+
+        if (wireMock == null) {
+            stubFor(mappingBuilder);
+        } else {
+            wireMock.register(mappingBuilder);
+        }
+
+        onSent(wireMock);
+        timer.stop();
+        return this;
+    }
+
+    /**
+     * Returns hit count and latencies of the stub (collected if WireMock is tuned by {@link WireMockServerCustomizer}).
+     *
+     * @return stub statistics
+     * @throws IllegalStateException the command has not been mocked
+     */
+    public StubStatistics.Stub getStatistics() {
+        return StubStatistics.get(id)
+                .orElseThrow(() -> new IllegalStateException("Command has not been mocked"));
+    }
+
+    /**
+     * Sends all commands to WireMock server in a single import request, after validating all of them (so nothing is
+     * sent if any command is invalid). Existing stubs are kept.
+     *
+     * @param commands commands (built, not mocked)
+     * @return commands passed
+     * @see #mockAll(Collection, boolean)
+     */
+    public static Collection<WireMockCommand> mockAll(Collection<WireMockCommand> commands) {
+        return mockAll(commands, false);
+    }
+
+    /**
+     * Sends all commands to WireMock server in a single import request, after validating all of them (so nothing is
+     * sent if any command is invalid). This is much faster than calling {@link #mock()} for each command: one admin
+     * request instead of one per stub (the server still adds stubs one by one).
+     * <p>
+     * For the same request, the command later in the collection wins, same as if {@link #mock()} were called for each
+     * one in order, and so do the commands over existing stubs.
+     *
+     * @param commands        commands (built, not mocked)
+     * @param replaceExisting if {@code true}, all existing stubs are removed, otherwise they're kept
+     * @return commands passed
+     */
+    public static Collection<WireMockCommand> mockAll(Collection<WireMockCommand> commands, boolean replaceExisting) {
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.STUB_REGISTRATION,
+                "import of " + commands.size() + " stubs");
+        commands.forEach(WireMockCommand::validate);
+        List<MappingBuilder> mappingBuilders = commands.stream()
+                .map(WireMockCommand::toMappingBuilder)
+                .collect(Collectors.toCollection(ArrayList::new));
+        // the server adds imported stubs in reverse order, so the first one ends up most recent, i.e. wins
+        Collections.reverse(mappingBuilders);
+
+        StubImport.Builder stubImport = StubImport.stubImport();
+        mappingBuilders.forEach(stubImport::stub);
+
+        if (replaceExisting) {
+            stubImport.deleteAllExistingStubsNotInImport();
+        } else {
+            stubImport.doNotDeleteExistingStubs();
+        }
+
+        WireMock wireMock = CURRENT_CLIENT.get();
+        if (wireMock == null) {
+            importStubs(stubImport);
+        } else {
+            wireMock.importStubMappings(stubImport);
+        }
+
+        commands.forEach(command -> command.onSent(wireMock));
+        timer.stop();
+        return commands;
+    }
+
+    /**
+     * Makes commands sent from the current thread (and threads it starts) use the given client.
+     *
+     * @param client client, {@code null} to use the static WireMock client
+     */
+    static void bindClient(WireMock client) {
+        if (client == null) {
+            CURRENT_CLIENT.remove();
+        } else {
+            CURRENT_CLIENT.set(client);
+        }
+    }
+
+    /**
+     * Returns the client set by {@link #bindClient(WireMock)}.
+     *
+     * @return {@code null} if the static WireMock client is to be used
+     */
+    static WireMock getClient() {
+        return CURRENT_CLIENT.get();
+    }
+
+    /**
+     * Removes the stub from WireMock server.
+     *
+     * @param stubId stub ID
+     * @param client client the stub was sent with, {@code null} for the static WireMock client
+     */
+    static void removeStub(UUID stubId, WireMock client) {
+        if (client == null) {
+            WireMock.removeStub(stubId);
+        } else {
+            client.removeStubMapping(stubId);
+        }
+    }
+
+    /**
+     * Checks that the command can be mocked.
+     *
+     * @throws NullPointerException     required field is missing
+     * @throws IllegalArgumentException conflicting fields are set, HTTP status code is not 3-digit, or bandwidth is
+     *                                  not positive or can't be limited
+     * @throws NotImplementedException  unsupported HTTP method
+     */
+    void validate() {
         requireNonNull(request, "request");
         requireNonNull(request.getHttpMethod(), "request -> HTTP method");
         requireNonNull(request.getPath(), "request -> path");
         requireNonNull(response, "response");
-        requireNonNull(response.getHttpStatus(), "response -> HTTP status");
+        if (response.getHttpStatusCode() == null) {
+            requireNonNull(response.getHttpStatus(), "response -> HTTP status");
+        } else if ((response.getHttpStatusCode() < 100) || (response.getHttpStatusCode() > 999)) {
+            throw new IllegalArgumentException("Response -> HTTP status code must be 3-digit: "
+                    + response.getHttpStatusCode());
+        }
 
-        Function<String, MappingBuilder> requestPathMapper = HTTP_METHOD_MAPPERS.get(request.getHttpMethod());
-        if (requestPathMapper == null) {
+        if (Stream.of(response.getBody(), response.getBinaryBody(), response.getBodyFile(), response.getBodyTemplate())
+                .filter(Objects::nonNull)
+                .count() > 1) {
+            throw new IllegalArgumentException(
+                    "Only one of response -> body, binary body, body file, body template can be set");
+        }
+
+        if ((response.getChunkedDribbleDelay() != null) && (response.getBandwidth() != null)) {
+            throw new IllegalArgumentException("Only one of response -> chunked dribble delay, bandwidth can be set");
+        }
+
+        if (response.getBandwidth() != null) {
+            if (response.getBandwidth() <= 0) {
+                throw new IllegalArgumentException("Response -> bandwidth must be positive: "
+                        + response.getBandwidth());
+            }
+
+            if ((response.getBodyFile() != null) || (response.getBodyTemplate() != null)) {
+                throw new IllegalArgumentException(
+                        "Bandwidth can't be limited for response -> body file, body template (size is unknown)");
+            }
+        }
+
+        if (!HTTP_METHOD_MAPPERS.containsKey(request.getHttpMethod())) {
             throw new NotImplementedException("Unsupported HTTP method: " + request.getHttpMethod());
         }
+    }
 
-        MappingBuilder httpMethodAndPath = requestPathMapper.apply(request.getPath());
+    /**
+     * Converts the (validated) command to a WireMock stub. Has no side effects, so nothing is tracked for commands
+     * which end up not sent.
+     *
+     * @return stub builder
+     */
+    private MappingBuilder toMappingBuilder() {
+        MappingBuilder httpMethodAndPath = HTTP_METHOD_MAPPERS.get(request.getHttpMethod())
+                .apply(request.getPath())
+                .withId(id);
+        WireMockScope.current()
+                .ifPresent(scopeId -> httpMethodAndPath.withHeader(WireMockScope.HEADER, equalTo(scopeId)));
         List<HttpHeader> responseHeaders = fixResponseHeaders();
 
-        stubFor(httpMethodAndPath.willReturn(
-                aResponse()
-                        .withStatus(response.getHttpStatus().value())
-                        .withHeaders(new HttpHeaders(responseHeaders))
-                        // WireMock throws exception if response body is null
-                        .withBody(Optional.ofNullable(response.getBody()).orElse(""))));
-        return this;
+        ResponseDefinitionBuilder responseDefinition = aResponse()
+                .withStatus(response.resolveHttpStatusCode())
+                .withHeaders(new HttpHeaders(responseHeaders));
+        // withTransformers() replaces the list, so names are collected first
+        List<String> transformers = new ArrayList<>();
+
+        if (response.getBodyTemplate() != null) {
+            response.getBodyTemplate().applyTo(responseDefinition, transformers);
+        } else if (response.getBodyFile() != null) {
+            responseDefinition.withBodyFile(response.getBodyFile());
+        } else if (response.getBinaryBody() != null) {
+            responseDefinition.withBody(response.getBinaryBody());
+        } else {
+            // WireMock throws exception if response body is null
+            responseDefinition.withBody(Optional.ofNullable(response.getBody()).orElse(""));
+        }
+
+        if (response.getDelay() != null) {
+            response.getDelay().applyTo(responseDefinition, transformers);
+        }
+
+        if (!transformers.isEmpty()) {
+            responseDefinition.withTransformers(transformers.toArray(String[]::new));
+        }
+
+        if (response.getChunkedDribbleDelay() != null) {
+            responseDefinition.withChunkedDribbleDelay(response.getChunkedDribbleDelay().getNumberOfChunks(),
+                    response.getChunkedDribbleDelay().getTotalDuration());
+        } else if (response.getBandwidth() != null) {
+            applyBandwidth(responseDefinition);
+        }
+
+        if (response.getFault() != null) {
+            responseDefinition.withFault(response.getFault());
+        }
+
+        return httpMethodAndPath.willReturn(responseDefinition);
+    }
+
+    /**
+     * Emulates limited bandwidth by sending the body in chunks spread over the time the body would take to transfer.
+     *
+     * @param responseDefinition response definition
+     */
+    private void applyBandwidth(ResponseDefinitionBuilder responseDefinition) {
+        long bodySize = (response.getBinaryBody() != null)
+                ? response.getBinaryBody().length
+                : Optional.ofNullable(response.getBody()).orElse("").getBytes(StandardCharsets.UTF_8).length;
+        long durationMillis = bodySize * 1000 / response.getBandwidth();
+
+        // a chunk per BANDWIDTH_CHUNK_MILLIS, but no more chunks than bytes
+        int chunks = (int) Math.max(1, Math.min(durationMillis / BANDWIDTH_CHUNK_MILLIS, bodySize));
+        responseDefinition.withChunkedDribbleDelay(chunks, (int) durationMillis);
+    }
+
+    /**
+     * Ties the stub to the current {@link WireMockScope} and registers it in {@link StubStatistics}, once the server
+     * has accepted it.
+     *
+     * @param client client the stub has been sent with, {@code null} for the static WireMock client
+     */
+    private void onSent(WireMock client) {
+        WireMockScope.track(id, client);
+        StubStatistics.register(id, request.getHttpMethod() + " " + request.getPath());
     }
 
     /**
@@ -154,6 +407,9 @@ public class WireMockCommand {
                 response(responseBuilder.build());
             }
 
+            // a new stub even if this builder comes from toBuilder()
+            id(UUID.randomUUID());
+
             // call Lombok builder
             return _build();
         }
@@ -185,6 +441,18 @@ public class WireMockCommand {
             return this;
         }
 
+        /**
+         * Called from {@link #build()} internally. The presence of a method with exactly this signature and logic is
+         * required by Lombok.
+         *
+         * @param id stub ID
+         * @return {@code this}
+         */
+        private WireMockCommandBuilder id(UUID id) {
+            this.id = id;
+            return this;
+        }
+
         /**
          * Creates a response builder or returns the existing one, therefore can be called multiple times. Contrary to
          * what the method name implies, creates a builder - to let configure the nested object and then return to the
@@ -260,6 +528,12 @@ public class WireMockCommand {
         @Builder.Default
         HttpStatus httpStatus = HttpStatus.OK;
 
+        /**
+         * HTTP status code to return instead of {@link #httpStatus}, for codes {@link HttpStatus} doesn't define (such
+         * as 299 seen in recorded traffic).
+         */
+        Integer httpStatusCode;
+
         @Singular
         List<HttpHeader> headers;
 
@@ -268,10 +542,57 @@ public class WireMockCommand {
          */
         String body;
 
+        /**
+         * Response body to return as is, without encoding (alternative to {@link #body}).
+         */
+        byte[] binaryBody;
+
+        /**
+         * Name of the file WireMock streams the response body from, relative to its files root ({@code __files} by
+         * default), so the body is not held in heap (alternative to {@link #body}).
+         */
+        String bodyFile;
+
+        /**
+         * Response body rendered per request from request data (alternative to {@link #body}), see
+         * {@link ResponseBuilder#templatedBody(String)}.
+         */
+        ResponseTemplate bodyTemplate;
+
+        /**
+         * Delay before responding, {@code null} means no delay.
+         */
+        DelayProfile delay;
+
+        /**
+         * Sends the body in chunks, spread over the given time, to emulate a slow upstream.
+         */
+        ChunkedDribbleDelay chunkedDribbleDelay;
+
+        /**
+         * Emulates limited bandwidth (bytes per second) by sending the body in chunks (alternative to
+         * {@link #chunkedDribbleDelay}).
+         */
+        Long bandwidth;
+
+        /**
+         * Breaks the connection instead of responding properly (HTTP status, headers and body are ignored).
+         */
+        Fault fault;
+
         public static <P> ResponseBuilder<P> builder(P parentBuilder) {
             return new ResponseBuilder<>(parentBuilder);
         }
 
+        /**
+         * Returns the HTTP status code to respond with.
+         *
+         * @return {@link #httpStatusCode} if set, otherwise the code of {@link #httpStatus}
+         */
+        int resolveHttpStatusCode() {
+            return (httpStatusCode != null) ? httpStatusCode : httpStatus.value();
+        }
+
         /**
          * Overridden Lombok-generated method to make it inaccessible.
          */
@@ -292,24 +613,51 @@ public class WireMockCommand {
             }
 
             /**
-             * Loads response body from the classpath.
+             * Loads response body from the classpath, decoding it as UTF-8. The content is cached in
+             * {@link FixtureCache}.
              *
              * @param path path to the response file ('classpath:' is prepended automatically)
              * @return {@code this}
              * @throws IllegalArgumentException error reading resource
              */
             public ResponseBuilder<P> bodyFromClasspath(String path) {
-                String content;
+                return body(FixtureCache.getText(path));
+            }
+
+            /**
+             * Loads response body from the classpath as is, for binary content. The content is cached in
+             * {@link FixtureCache}.
+             *
+             * @param path path to the response file ('classpath:' is prepended automatically)
+             * @return {@code this}
+             * @throws IllegalArgumentException error reading resource
+             */
+            public ResponseBuilder<P> binaryBodyFromClasspath(String path) {
+                return binaryBody(FixtureCache.getBytes(path));
+            }
 
-                try {
-                    content = RESOURCE_RESOLVER
-                            .getResource("classpath:" + path)
-                            .getContentAsString(StandardCharsets.UTF_8);
-                } catch (IOException e) {
-                    throw new IllegalArgumentException("Error reading resource: " + e.getMessage(), e);
-                }
+            /**
+             * Renders response body per request from request data, see {@link ResponseTemplate} for variables. The
+             * template is parsed here, once.
+             *
+             * @param template template, such as <code>{"id": "${path[1]}", "at": "${now}"}</code>
+             * @return {@code this}
+             * @throws IllegalArgumentException invalid template
+             */
+            public ResponseBuilder<P> templatedBody(String template) {
+                return bodyTemplate(ResponseTemplate.compile(template));
+            }
 
-                return body(content);
+            /**
+             * Same as {@link #templatedBody(String)}, but values are escaped for JSON string literals, so they can't
+             * break the JSON body.
+             *
+             * @param template template, such as <code>{"name": "${body.user.name}"}</code>
+             * @return {@code this}
+             * @throws IllegalArgumentException invalid template
+             */
+            public ResponseBuilder<P> templatedJsonBody(String template) {
+                return bodyTemplate(ResponseTemplate.compile(template, ResponseTemplate.Escaping.JSON));
             }
 
         }
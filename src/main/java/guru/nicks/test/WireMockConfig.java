@@ -1,12 +1,19 @@
 package guru.nicks.test;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
 import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.util.TestPropertyValues;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
 import org.springframework.stereotype.Component;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
 
 import java.util.List;
 import java.util.Set;
@@ -15,9 +22,14 @@ import java.util.stream.Collectors;
 /**
  * Overrides URL-related properties ({@link #PROPERTIES_TO_STUB_WITH_WIREMOCK}) using {@link #WIREMOCK_URL_PREFIX} with
  * the (random) WireMock port appended. WireMock must already be configured, for example with
- * {@code @AutoConfigureWireMock(port = Options.DYNAMIC_PORT)}.
+ * {@code @AutoConfigureWireMock(port = Options.DYNAMIC_PORT)}. The WireMock server is tuned by
+ * {@link WireMockServerCustomizer}.
+ * <p>
+ * Each Spring context has its own WireMock server (and port), therefore {@link WireMockCommand} sends stubs via the
+ * client of the current test's context, bound to the test thread by {@link ExecutionListener}.
  */
 @Component
+@Import(WireMockServerCustomizer.class)
 @RequiredArgsConstructor
 @Slf4j
 public class WireMockConfig {
@@ -43,20 +55,86 @@ public class WireMockConfig {
     @Value("${wiremock.server.port}")
     private int wiremockPort;
 
+    /**
+     * Client of the WireMock server of this context.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private WireMock client;
+
     @PostConstruct
     private void init() {
         if (wiremockPort == 0) {
             throw new IllegalStateException("Wiremock server not initialized");
         }
 
+        TestTimings.Timer timer = TestTimings.start(TestTimings.Phase.WIREMOCK_SETUP, "port " + wiremockPort,
+                TestTimings.contextKey(applicationContext));
+
         // append Wiremock URL to property names
         Set<String> mockedUrls = PROPERTIES_TO_STUB_WITH_WIREMOCK.stream()
                 .map(property -> property + "=" + WIREMOCK_URL_PREFIX + wiremockPort)
                 .collect(Collectors.toSet());
 
+        client = new WireMock(wiremockPort);
+
         log.info("Mocking URLs with Wiremock running on port {}: {}", wiremockPort, mockedUrls);
         TestPropertyValues testProps = TestPropertyValues.of(mockedUrls);
         testProps.applyTo(applicationContext);
+        timer.stop();
+    }
+
+    /**
+     * Binds the WireMock client of the test's Spring context (if it has {@link WireMockConfig}) to the test thread, so
+     * {@link WireMockCommand} sends stubs to the server of that context even if several cached contexts, each having
+     * its own server, are used by the test run. Registered automatically via {@code META-INF/spring.factories}.
+     * <p>
+     * Never loads the context itself: in {@link #beforeTestClass(TestContext)}, the client is bound only if the context
+     * has been loaded already (by a previous test class), otherwise after dependency injection.
+     */
+    public static class ExecutionListener extends AbstractTestExecutionListener {
+
+        /**
+         * After {@link DependencyInjectionTestExecutionListener} which loads the context.
+         */
+        public static final int ORDER = DependencyInjectionTestExecutionListener.ORDER + 100;
+
+        @Override
+        public int getOrder() {
+            return ORDER;
+        }
+
+        @Override
+        public void beforeTestClass(TestContext testContext) {
+            if (testContext.hasApplicationContext()) {
+                bindClient(testContext);
+            }
+        }
+
+        @Override
+        public void prepareTestInstance(TestContext testContext) {
+            bindClient(testContext);
+        }
+
+        /**
+         * Binds the client again because methods of the same instance may run on different threads.
+         */
+        @Override
+        public void beforeTestMethod(TestContext testContext) {
+            bindClient(testContext);
+        }
+
+        @Override
+        public void afterTestClass(TestContext testContext) {
+            WireMockCommand.bindClient(null);
+        }
+
+        private static void bindClient(TestContext testContext) {
+            WireMockConfig config = testContext.getApplicationContext()
+                    .getBeanProvider(WireMockConfig.class)
+                    .getIfAvailable();
+            WireMockCommand.bindClient((config == null) ? null : config.getClient());
+        }
+
     }
 
 }
@@ -0,0 +1,225 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.recording.RecordSpecBuilder;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records traffic proxied by WireMock to a real (usually local) service as classpath fixtures, and replays them as
+ * {@link WireMockCommand} stubs. A recording consists of:
+ * <ul>
+ *     <li>{@value #INDEX_FILE} - one line per stub: HTTP method, URL path, HTTP status, content type, body file, body
+ *         size (tab-separated)</li>
+ *     <li>{@value #BODIES_DIRECTORY}/{@code <SHA-256>.gz} - gzipped bodies, identical bodies are stored once</li>
+ * </ul>
+ * Query strings and request bodies are not recorded because {@link WireMockCommand} matches method and path only (the
+ * last response recorded for a method and path wins).
+ * <p>
+ * Usage: {@link #start(String)}, send requests to WireMock, {@link #stop(Path)} with a directory under
+ * {@code src/test/resources}; later runs call {@link #replay(String)} with the same directory relative to the
+ * classpath.
+ */
+@Slf4j
+public final class WireMockRecorder {
+
+    public static final String INDEX_FILE = "stubs.tsv";
+    public static final String BODIES_DIRECTORY = "bodies";
+
+    private static final String NO_VALUE = "-";
+
+    private WireMockRecorder() {
+    }
+
+    /**
+     * Starts proxying requests to the target and recording them.
+     *
+     * @param targetBaseUrl base URL of the service to record
+     */
+    public static void start(String targetBaseUrl) {
+        RecordSpecBuilder recordSpec = WireMock.recordSpec()
+                .forTarget(targetBaseUrl)
+                .makeStubsPersistent(false)
+                // keep bodies in stubs, they're written to files here
+                .extractTextBodiesOver(Long.MAX_VALUE)
+                .extractBinaryBodiesOver(Long.MAX_VALUE);
+
+        WireMock client = WireMockCommand.getClient();
+        if (client == null) {
+            WireMock.startRecording(recordSpec);
+        } else {
+            client.startStubRecording(recordSpec);
+        }
+
+        log.info("Recording requests proxied to '{}'", targetBaseUrl);
+    }
+
+    /**
+     * Stops recording, writes the recording and logs body sizes per endpoint, largest first.
+     *
+     * @param directory directory to write the recording to (created if needed, existing bodies are kept)
+     * @return stubs recorded
+     * @throws UncheckedIOException error writing files
+     */
+    public static List<RecordedStub> stop(Path directory) {
+        WireMock client = WireMockCommand.getClient();
+        List<StubMapping> stubMappings = (client == null)
+                ? WireMock.stopRecording().getStubMappings()
+                : client.stopStubRecording().getStubMappings();
+
+        // the last response for the same method and path wins
+        Map<String, RecordedStub> recordedStubs = new LinkedHashMap<>();
+
+        try {
+            Files.createDirectories(directory.resolve(BODIES_DIRECTORY));
+
+            for (StubMapping stubMapping : stubMappings) {
+                RecordedStub recordedStub = writeStub(stubMapping, directory);
+                recordedStubs.put(recordedStub.httpMethod() + " " + recordedStub.path(), recordedStub);
+            }
+
+            Files.write(directory.resolve(INDEX_FILE), recordedStubs.values().stream()
+                    .map(RecordedStub::toIndexLine)
+                    .toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write recording: " + e.getMessage(), e);
+        }
+
+        log.info("Recorded {} stubs to '{}', body sizes:\n{}", recordedStubs.size(), directory,
+                recordedStubs.values().stream()
+                        .sorted(Comparator.comparingLong(RecordedStub::bodySize).reversed())
+                        .map(stub -> String.format("%-60s %10d", stub.httpMethod() + " " + stub.path(),
+                                stub.bodySize()))
+                        .collect(Collectors.joining("\n")));
+
+        return List.copyOf(recordedStubs.values());
+    }
+
+    /**
+     * Registers stubs of the recording in one batch (see {@link WireMockCommand#mockAll(java.util.Collection)}).
+     *
+     * @param classpathDirectory recording directory relative to the classpath
+     * @return commands mocked
+     * @throws IllegalArgumentException error reading the recording
+     */
+    public static List<WireMockCommand> replay(String classpathDirectory) {
+        List<WireMockCommand> commands = new ArrayList<>();
+
+        for (String line : FixtureCache.getText(classpathDirectory + "/" + INDEX_FILE).split("\n")) {
+            if (!line.isBlank()) {
+                commands.add(RecordedStub.fromIndexLine(line).toCommand(classpathDirectory));
+            }
+        }
+
+        WireMockCommand.mockAll(commands);
+        log.info("Replayed {} stubs from '{}'", commands.size(), classpathDirectory);
+        return commands;
+    }
+
+    private static RecordedStub writeStub(StubMapping stubMapping, Path directory) throws IOException {
+        ResponseDefinition response = stubMapping.getResponse();
+        byte[] body = Optional.ofNullable(response.getByteBody()).orElseGet(() -> new byte[0]);
+        String bodyFile = NO_VALUE;
+
+        if (body.length > 0) {
+            bodyFile = BODIES_DIRECTORY + "/" + sha256(body) + ".gz";
+            Path bodyPath = directory.resolve(bodyFile);
+
+            if (!Files.exists(bodyPath)) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(bodyPath))) {
+                    out.write(body);
+                }
+            }
+        }
+
+        String contentType = Optional.ofNullable(response.getHeaders())
+                .map(headers -> headers.getHeader(org.springframework.http.HttpHeaders.CONTENT_TYPE))
+                .filter(HttpHeader::isPresent)
+                .map(HttpHeader::firstValue)
+                .orElse(NO_VALUE);
+        String url = Optional.ofNullable(stubMapping.getRequest().getUrl())
+                .orElseGet(() -> String.valueOf(stubMapping.getRequest().getUrlMatcher().getExpected()));
+
+        return new RecordedStub(stubMapping.getRequest().getMethod().getName(), url.split("\\?", 2)[0],
+                response.getStatus(), contentType, bodyFile, body.length);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Line of {@value #INDEX_FILE}.
+     *
+     * @param httpMethod  HTTP method
+     * @param path        URL path
+     * @param httpStatus  HTTP status
+     * @param contentType content type, {@value #NO_VALUE} if none
+     * @param bodyFile    body file relative to the recording directory, {@value #NO_VALUE} if the body is empty
+     * @param bodySize    body size (uncompressed)
+     */
+    public record RecordedStub(String httpMethod, String path, int httpStatus, String contentType,
+            String bodyFile, long bodySize) {
+
+        static RecordedStub fromIndexLine(String line) {
+            String[] fields = line.strip().split("\t");
+            if (fields.length != 6) {
+                throw new IllegalArgumentException("Malformed stub index line: '" + line + "'");
+            }
+
+            return new RecordedStub(fields[0], fields[1], Integer.parseInt(fields[2]), fields[3], fields[4],
+                    Long.parseLong(fields[5]));
+        }
+
+        String toIndexLine() {
+            return String.join("\t", httpMethod, path, String.valueOf(httpStatus), contentType, bodyFile,
+                    String.valueOf(bodySize));
+        }
+
+        WireMockCommand toCommand(String classpathDirectory) {
+            var response = WireMockCommand.builder()
+                    .request()
+                    .httpMethod(HttpMethod.valueOf(httpMethod))
+                    .path(path)
+                    .and()
+                    .response()
+                    .httpStatusCode(httpStatus);
+
+            if (!NO_VALUE.equals(contentType)) {
+                response.header(new HttpHeader(org.springframework.http.HttpHeaders.CONTENT_TYPE, contentType));
+            }
+
+            if (!NO_VALUE.equals(bodyFile)) {
+                response.binaryBody(FixtureCache.getGunzippedBytes(classpathDirectory + "/" + bodyFile));
+            }
+
+            return response.and().build();
+        }
+
+    }
+
+}
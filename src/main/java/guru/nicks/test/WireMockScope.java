@@ -0,0 +1,98 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JUnit extension which ties WireMock stubs created by {@link WireMockCommand} during a test method to that method, so
+ * test classes stubbing the same paths can run in parallel ({@code junit.jupiter.execution.parallel.enabled=true}).
+ * Stubs created within a scope match requests having the {@value #HEADER} header with the scope ID only, and are
+ * removed when the test method ends. Stubs created outside a scope (e.g. in {@code @BeforeAll}) match all requests.
+ * <p>
+ * HTTP clients calling WireMock must send the header, for example with {@link #interceptor()}. The scope is bound to
+ * the test thread and inherited by threads it starts.
+ * <p>
+ * Usage: {@code @ExtendWith(WireMockScope.class)}.
+ */
+@Slf4j
+public class WireMockScope implements BeforeEachCallback, AfterEachCallback {
+
+    public static final String HEADER = "X-WireMock-Scope";
+
+    private static final InheritableThreadLocal<Scope> CURRENT_SCOPE = new InheritableThreadLocal<>();
+
+    /**
+     * Returns the ID of the scope of the current test.
+     *
+     * @return scope ID, empty outside a scope
+     */
+    public static Optional<String> current() {
+        return Optional.ofNullable(CURRENT_SCOPE.get()).map(Scope::id);
+    }
+
+    /**
+     * Creates an interceptor which adds {@value #HEADER} to requests sent within a scope.
+     *
+     * @return interceptor for {@code RestTemplate}, {@code RestClient}, etc.
+     */
+    public static ClientHttpRequestInterceptor interceptor() {
+        return (request, body, execution) -> {
+            current().ifPresent(scopeId -> request.getHeaders().set(HEADER, scopeId));
+            return execution.execute(request, body);
+        };
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        CURRENT_SCOPE.set(new Scope(UUID.randomUUID().toString(), ConcurrentHashMap.newKeySet()));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        Scope scope = CURRENT_SCOPE.get();
+        CURRENT_SCOPE.remove();
+
+        if (scope != null) {
+            log.debug("Removing {} stubs of scope '{}'", scope.stubs().size(), scope.id());
+            scope.stubs().forEach(stub -> {
+                try {
+                    WireMockCommand.removeStub(stub.id(), stub.client());
+                } catch (RuntimeException e) {
+                    log.warn("Failed to remove stub '{}': {}", stub.id(), e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Remembers the stub (already sent) to remove it when the current scope ends. Does nothing outside a scope.
+     *
+     * @param stubId stub ID
+     * @param client client the stub has been sent with, {@code null} for the static WireMock client
+     */
+    static void track(UUID stubId, WireMock client) {
+        Scope scope = CURRENT_SCOPE.get();
+        if (scope != null) {
+            scope.stubs().add(new Stub(stubId, client));
+        }
+    }
+
+    private record Scope(String id, Set<Stub> stubs) {
+    }
+
+    /**
+     * Stub and the client to remove it with.
+     */
+    private record Stub(UUID id, WireMock client) {
+    }
+
+}
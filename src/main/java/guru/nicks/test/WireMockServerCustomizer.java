@@ -0,0 +1,86 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.common.Slf4jNotifier;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.contract.wiremock.WireMockConfigurationCustomizer;
+import org.springframework.core.env.Environment;
+
+/**
+ * Tunes the WireMock server started by {@code @AutoConfigureWireMock}. Imported by {@link WireMockConfig}. Registers
+ * extensions needed by {@link WireMockCommand} features: {@link DelayProfile.Transformer},
+ * {@link ResponseTemplate.Transformer} and {@link StubStatistics.Listener}.
+ * <p>
+ * If {@value #INDEXED_STUBS_PROPERTY} is {@code true}, stubs are kept in {@link IndexedStubMappingStore}, so request
+ * matching time doesn't grow with the number of exact-path stubs.
+ * <p>
+ * If {@value #LOAD_MODE_PROPERTY} is {@code true}, the server is tuned for load tests:
+ * <ul>
+ *     <li>request journal is disabled or, if {@value #LOAD_MODE_JOURNAL_SIZE_PROPERTY} is positive, bounded (the
+ *         oldest entries are dropped), so heap doesn't grow with the number of requests. Without the journal,
+ *         {@code verify()}, request counts and request lookups throw {@code RequestJournalDisabledException}; hit
+ *         counts are still available from {@link WireMockCommand#getStatistics()}, which doesn't need the journal</li>
+ *     <li>Jetty acceptors and worker threads are sized to CPU cores (workers:
+ *         {@value #LOAD_MODE_CONTAINER_THREADS_PROPERTY}, default is {@value #THREADS_PER_CORE} per core)</li>
+ *     <li>responses are sent asynchronously, so delayed responses don't hold worker threads</li>
+ *     <li>per-request logging is off</li>
+ * </ul>
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class WireMockServerCustomizer implements WireMockConfigurationCustomizer {
+
+    public static final String INDEXED_STUBS_PROPERTY = "guru.nicks.test.wiremock.indexed-stubs.enabled";
+
+    public static final String LOAD_MODE_PROPERTY = "guru.nicks.test.wiremock.load-mode.enabled";
+    public static final String LOAD_MODE_JOURNAL_SIZE_PROPERTY = "guru.nicks.test.wiremock.load-mode.journal-size";
+    public static final String LOAD_MODE_CONTAINER_THREADS_PROPERTY =
+            "guru.nicks.test.wiremock.load-mode.container-threads";
+
+    public static final int THREADS_PER_CORE = 4;
+
+    // DI
+    private final Environment environment;
+
+    @Override
+    public void customize(WireMockConfiguration config) {
+        config.extensions(new DelayProfile.Transformer(), new ResponseTemplate.Transformer(),
+                new StubStatistics.Listener());
+
+        if (environment.getProperty(INDEXED_STUBS_PROPERTY, Boolean.class, false)) {
+            log.info("WireMock stubs are indexed by HTTP method and URL path");
+            config.withStores(new IndexedStubMappingStore.Stores(config.filesRoot()));
+        }
+
+        if (environment.getProperty(LOAD_MODE_PROPERTY, Boolean.class, false)) {
+            applyLoadMode(config);
+        }
+    }
+
+    private void applyLoadMode(WireMockConfiguration config) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int journalSize = environment.getProperty(LOAD_MODE_JOURNAL_SIZE_PROPERTY, Integer.class, 0);
+        int containerThreads = environment.getProperty(LOAD_MODE_CONTAINER_THREADS_PROPERTY, Integer.class,
+                cores * THREADS_PER_CORE);
+
+        if (journalSize > 0) {
+            config.maxRequestJournalEntries(journalSize);
+        } else {
+            log.warn("WireMock request journal is disabled in load mode, verify() and request counts will fail - "
+                    + "use WireMockCommand statistics or set '{}'", LOAD_MODE_JOURNAL_SIZE_PROPERTY);
+            config.disableRequestJournal();
+        }
+
+        config.jettyAcceptors(Math.max(1, cores / 2))
+                .containerThreads(containerThreads)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(cores)
+                .stubRequestLoggingDisabled(true)
+                .notifier(new Slf4jNotifier(false));
+
+        log.info("WireMock load mode: request journal {}, {} container threads",
+                (journalSize > 0) ? ("of " + journalSize + " entries") : "disabled", containerThreads);
+    }
+
+}
@@ -0,0 +1,176 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link CompositeContainerRunner} and releasing containers by {@link AbstractContainerRunner} when the context
+ * fails to initialize.
+ */
+class CompositeContainerRunnerTest {
+
+    @Test
+    void givenBindingFails_whenInitialize_thenContainerReleased() {
+        var runner = new FakeRunner(false, true);
+
+        try (var applicationContext = new GenericApplicationContext()) {
+            assertThatThrownBy(() -> runner.initialize(applicationContext))
+                    .hasMessageContaining("binding failed");
+        }
+
+        assertThat(runner.acquired).isTrue();
+        assertThat(ContainerRegistry.getReferenceCount(runner.getContainerKey())).isZero();
+    }
+
+    @Test
+    void givenOneContainerFailsToStart_whenInitialize_thenOthersReleased() {
+        var started = new FakeRunner(false, false);
+        var composite = new CompositeContainerRunner(started, new FakeRunner(true, false)) {
+        };
+
+        try (var applicationContext = new GenericApplicationContext()) {
+            assertThatThrownBy(() -> composite.initialize(applicationContext))
+                    .hasMessageContaining("start failed");
+        }
+
+        // the container may still be starting when the context fails
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> {
+                    assertThat(started.acquired).isTrue();
+                    assertThat(ContainerRegistry.getReferenceCount(started.getContainerKey())).isZero();
+                });
+    }
+
+    @Test
+    void givenOneBindingFails_whenInitialize_thenAllReleased() {
+        var first = new FakeRunner(false, false);
+        var second = new FakeRunner(false, true);
+        var composite = new CompositeContainerRunner(first, second) {
+        };
+
+        try (var applicationContext = new GenericApplicationContext()) {
+            assertThatThrownBy(() -> composite.initialize(applicationContext))
+                    .hasMessageContaining("binding failed");
+        }
+
+        assertThat(first.acquired).isTrue();
+        assertThat(second.acquired).isTrue();
+        // the second one has failed to bind, so it has nothing to unbind
+        assertThat(first.unbound).isTrue();
+        assertThat(second.unbound).isFalse();
+        assertThat(ContainerRegistry.getReferenceCount(first.getContainerKey())).isZero();
+        assertThat(ContainerRegistry.getReferenceCount(second.getContainerKey())).isZero();
+    }
+
+    @Test
+    void givenTwoContainers_whenProvisioned_thenConcurrently() {
+        var provisioning = new CountDownLatch(2);
+        // each waits for the other one, which would time out if provisioning were serialized
+        Runnable awaitOther = () -> {
+            provisioning.countDown();
+            await().atMost(Duration.ofSeconds(5))
+                    .until(() -> provisioning.getCount() == 0);
+        };
+
+        var first = new FakeRunner(false, false);
+        var second = new FakeRunner(false, false);
+        first.provisioning = awaitOther;
+        second.provisioning = awaitOther;
+        var composite = new CompositeContainerRunner(first, second) {
+        };
+
+        try (var applicationContext = new GenericApplicationContext()) {
+            composite.initialize(applicationContext);
+        } finally {
+            ContainerRegistry.release(first.getContainerKey());
+            ContainerRegistry.release(second.getContainerKey());
+        }
+
+        assertThat(provisioning.getCount()).isZero();
+    }
+
+    /**
+     * Runner of a mock container, registered under a unique key.
+     */
+    private static class FakeRunner extends AbstractContainerRunner<GenericContainer<?>> {
+
+        private final String key = "fake-" + UUID.randomUUID();
+        private final boolean failStart;
+        private final boolean failBinding;
+        private volatile boolean acquired;
+        private volatile boolean unbound;
+        private volatile Runnable provisioning = () -> {
+        };
+
+        FakeRunner(boolean failStart, boolean failBinding) {
+            this.failStart = failStart;
+            this.failBinding = failBinding;
+        }
+
+        @Override
+        public String getContainerKey() {
+            return key;
+        }
+
+        @Override
+        protected String getPropertyPrefix() {
+            return "guru.nicks.test.fake";
+        }
+
+        @Override
+        protected GenericContainer<?> createContainer() {
+            if (failStart) {
+                throw new IllegalStateException("start failed");
+            }
+
+            GenericContainer<?> container = mock(GenericContainer.class);
+            when(container.getContainerId()).thenReturn(key);
+            return container;
+        }
+
+        @Override
+        protected void provision(GenericContainer<?> container) {
+            provisioning.run();
+        }
+
+        @Override
+        protected Class<? super GenericContainer<?>> getContainerBeanClass() {
+            return GenericContainer.class;
+        }
+
+        @Override
+        protected List<String> getTestProperties(GenericContainer<?> container) {
+            if (failBinding) {
+                throw new IllegalStateException("binding failed");
+            }
+
+            return List.of("fake.container-id=" + container.getContainerId());
+        }
+
+        @Override
+        GenericContainer<?> acquireContainer(String contextName) {
+            GenericContainer<?> container = super.acquireContainer(contextName);
+            acquired = true;
+            return container;
+        }
+
+        @Override
+        void unbindContainer() {
+            unbound = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link DelayProfile}
+ */
+class DelayProfileTest {
+
+    private static final DelayProfile HISTOGRAM = DelayProfile.histogram(new TreeMap<>(Map.of(
+            50.0, Duration.ofMillis(20),
+            90.0, Duration.ofMillis(120),
+            100.0, Duration.ofMillis(1000))));
+
+    @Test
+    void givenHistogram_whenSample_thenInterpolatedBetweenPercentiles() {
+        assertThat(HISTOGRAM.sample(fixedRandom(0.3))).isEqualTo(20);
+        assertThat(HISTOGRAM.sample(fixedRandom(0.5))).isEqualTo(20);
+        assertThat(HISTOGRAM.sample(fixedRandom(0.7))).isEqualTo(70);
+        assertThat(HISTOGRAM.sample(fixedRandom(0.95))).isEqualTo(560);
+    }
+
+    @Test
+    void givenPercentileOutOfRange_whenHistogram_thenException() {
+        assertThatThrownBy(() -> DelayProfile.histogram(new TreeMap<>(Map.of(101.0, Duration.ofMillis(1)))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DelayProfile.histogram(new TreeMap<>()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenSameSeed_whenTransformed_thenSameDelays() {
+        DelayProfile delay = DelayProfile.logNormal(Duration.ofMillis(50), 0.5).withSeed(42);
+        List<Integer> delays = transform(delay, new DelayProfile.Transformer());
+
+        // as if in another run
+        assertThat(delays)
+                .isEqualTo(transform(delay, new DelayProfile.Transformer()))
+                .allSatisfy(millis -> assertThat(millis).isPositive());
+        assertThat(new HashSet<>(delays)).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void givenDifferentSeeds_whenTransformed_thenDifferentDelays() {
+        DelayProfile delay = DelayProfile.logNormal(Duration.ofMillis(50), 0.5);
+
+        assertThat(transform(delay.withSeed(42), new DelayProfile.Transformer()))
+                .isNotEqualTo(transform(delay.withSeed(43), new DelayProfile.Transformer()));
+    }
+
+    /**
+     * Serves a stub having the delay 100 times.
+     *
+     * @return delays set by the transformer, in milliseconds
+     */
+    private static List<Integer> transform(DelayProfile delay, DelayProfile.Transformer transformer) {
+        ResponseDefinitionBuilder response = aResponse();
+        List<String> transformers = new ArrayList<>();
+        delay.applyTo(response, transformers);
+        assertThat(transformers).containsExactly(DelayProfile.Transformer.NAME);
+
+        StubMapping stub = get(anyUrl()).willReturn(response).build();
+        ServeEvent serveEvent = mock(ServeEvent.class);
+        when(serveEvent.getStubMapping()).thenReturn(stub);
+        when(serveEvent.getResponseDefinition()).thenReturn(stub.getResponse());
+        when(serveEvent.getTransformerParameters()).thenReturn(stub.getResponse().getTransformerParameters());
+
+        return IntStream.range(0, 100)
+                .mapToObj(i -> transformer.transform(serveEvent).getFixedDelayMilliseconds())
+                .toList();
+    }
+
+    private static Random fixedRandom(double value) {
+        return new Random() {
+            @Override
+            public double nextDouble() {
+                return value;
+            }
+        };
+    }
+
+}
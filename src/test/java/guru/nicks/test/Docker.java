@@ -0,0 +1,17 @@
+package guru.nicks.test;
+
+import org.testcontainers.DockerClientFactory;
+
+/**
+ * Condition for tests which need containers: {@code @EnabledIf("guru.nicks.test.Docker#isAvailable")}.
+ */
+final class Docker {
+
+    private Docker() {
+    }
+
+    static boolean isAvailable() {
+        return DockerClientFactory.instance().isDockerAvailable();
+    }
+
+}
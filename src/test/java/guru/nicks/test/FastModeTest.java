@@ -0,0 +1,82 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.mock.env.MockEnvironment;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests server settings and data directory mount of {@link PostgreSqlContainerRunner} and
+ * {@link MySqlContainerRunner} containers in fast mode.
+ */
+@EnabledIf("guru.nicks.test.Docker#isAvailable")
+class FastModeTest {
+
+    @Test
+    void givenPostgresFastMode_whenStarted_thenDurabilityOffAndDataOnTmpfs() throws Exception {
+        var runner = new PostgreSqlContainerRunner();
+        runner.applyEnvironment(new MockEnvironment()
+                .withProperty(PostgreSqlContainerRunner.FAST_MODE_PROPERTY, "true"));
+        JdbcDatabaseContainer<?> container = runner.acquireContainer(FastModeTest.class.getName());
+
+        try (Connection connection = container.createConnection("")) {
+            assertThat(query(connection, "SHOW fsync")).isEqualTo("off");
+            assertThat(query(connection, "SHOW synchronous_commit")).isEqualTo("off");
+            assertThat(query(connection, "SHOW full_page_writes")).isEqualTo("off");
+            assertThat(getMountType(container, PostgreSqlContainerRunner.DATA_DIRECTORY)).isEqualTo("tmpfs");
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    @Test
+    void givenMySqlFastMode_whenStarted_thenDurabilityOffAndDataOnTmpfs() throws Exception {
+        var runner = new MySqlContainerRunner();
+        runner.applyEnvironment(new MockEnvironment()
+                .withProperty(MySqlContainerRunner.FAST_MODE_PROPERTY, "true"));
+        JdbcDatabaseContainer<?> container = runner.acquireContainer(FastModeTest.class.getName());
+
+        try (Connection connection = container.createConnection("")) {
+            assertThat(query(connection, "SELECT @@innodb_flush_log_at_trx_commit")).isEqualTo("0");
+            assertThat(query(connection, "SELECT @@log_bin")).isEqualTo("0");
+            assertThat(getMountType(container, MySqlContainerRunner.DATA_DIRECTORY)).isEqualTo("tmpfs");
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    private static String query(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    /**
+     * Returns the file system type of the mount point, as seen in the container.
+     *
+     * @return type, {@code null} if the directory is not a mount point
+     */
+    private static String getMountType(JdbcDatabaseContainer<?> container, String directory)
+            throws IOException, InterruptedException {
+        // device, mount point, type, options, ...
+        return container.execInContainer("cat", "/proc/mounts")
+                .getStdout()
+                .lines()
+                .map(line -> line.split(" "))
+                .filter(fields -> (fields.length > 2) && fields[1].equals(directory))
+                .map(fields -> fields[2])
+                .findFirst()
+                .orElse(null);
+    }
+
+}
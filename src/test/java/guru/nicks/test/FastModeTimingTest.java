@@ -0,0 +1,83 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.mock.env.MockEnvironment;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares write throughput of {@link PostgreSqlContainerRunner} and {@link MySqlContainerRunner} containers with and
+ * without fast mode, on a commit-bound workload: single-row inserts in autocommit mode. Wall-clock, so excluded from
+ * the regular build (see the 'benchmark' Maven profile); fast mode settings are tested by {@link FastModeTest}.
+ */
+@Slf4j
+@Tag("benchmark")
+@EnabledIf("guru.nicks.test.Docker#isAvailable")
+class FastModeTimingTest {
+
+    private static final int WARMUP_INSERTS = 200;
+    private static final int MEASURED_INSERTS = 2_000;
+
+    @Test
+    void givenPostgres_whenFastMode_thenMoreInsertsPerSecond() throws SQLException {
+        compare("PostgreSQL", PostgreSqlContainerRunner::new, PostgreSqlContainerRunner.FAST_MODE_PROPERTY);
+    }
+
+    @Test
+    void givenMySql_whenFastMode_thenMoreInsertsPerSecond() throws SQLException {
+        compare("MySQL", MySqlContainerRunner::new, MySqlContainerRunner.FAST_MODE_PROPERTY);
+    }
+
+    private static void compare(String database,
+            Supplier<? extends AbstractContainerRunner<JdbcDatabaseContainer<?>>> runnerFactory,
+            String fastModeProperty) throws SQLException {
+        long defaultRate = measure(runnerFactory.get(), new MockEnvironment());
+        long fastRate = measure(runnerFactory.get(), new MockEnvironment().withProperty(fastModeProperty, "true"));
+
+        log.info("{} single-row inserts/s: {} by default, {} in fast mode", database, defaultRate, fastRate);
+        assertThat(fastRate).isGreaterThan(defaultRate);
+    }
+
+    private static long measure(AbstractContainerRunner<JdbcDatabaseContainer<?>> runner,
+            MockEnvironment environment) throws SQLException {
+        runner.applyEnvironment(environment);
+        JdbcDatabaseContainer<?> container = runner.acquireContainer(FastModeTimingTest.class.getName());
+
+        try (Connection connection = container.createConnection("")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS fast_mode_timing (id INTEGER, name VARCHAR(100))");
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO fast_mode_timing VALUES (?, ?)")) {
+                long start = 0;
+
+                for (int i = 0; i < WARMUP_INSERTS + MEASURED_INSERTS; i++) {
+                    if (i == WARMUP_INSERTS) {
+                        start = System.nanoTime();
+                    }
+
+                    statement.setInt(1, i);
+                    statement.setString(2, "name-" + i);
+                    statement.executeUpdate();
+                }
+
+                return MEASURED_INSERTS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, System.nanoTime() - start);
+            }
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+package guru.nicks.test;
+
+import guru.nicks.test.FixtureLoader.CsvRowReader;
+import guru.nicks.test.FixtureLoader.Dialect;
+import guru.nicks.test.FixtureLoader.NdjsonRowReader;
+import guru.nicks.test.FixtureLoader.RowReader;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.core.env.StandardEnvironment;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests {@link FixtureLoader}
+ */
+@Slf4j
+class FixtureLoaderTest {
+
+    private static final int BENCHMARK_ROWS = 20_000;
+
+    @Test
+    void givenQuotedFields_whenReadCsv_thenUnquoted() throws IOException {
+        List<String[]> rows = readAll(new CsvRowReader(reader("""
+                id,name,note
+                1,"Smith, John","said ""hi"""
+                2,plain,"multi
+                line"
+                """)));
+
+        assertThat(rows)
+                .containsExactly(
+                        new String[]{"1", "Smith, John", "said \"hi\""},
+                        new String[]{"2", "plain", "multi\nline"});
+    }
+
+    @Test
+    void givenEmptyFields_whenReadCsv_thenUnquotedNullQuotedEmpty() throws IOException {
+        List<String[]> rows = readAll(new CsvRowReader(reader("a,b,c\r\n,\"\",\r\nx,y,z")));
+
+        assertThat(rows)
+                .containsExactly(
+                        new String[]{null, "", null},
+                        new String[]{"x", "y", "z"});
+    }
+
+    @Test
+    void givenCsvHeader_whenRead_thenColumnsChecked() {
+        assertThat(new CsvRowReader(reader("id,\"user\"\n")).getColumns())
+                .containsExactly("id", "user");
+        assertThatThrownBy(() -> new CsvRowReader(reader("id,drop table\n")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CsvRowReader(reader("")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no columns");
+    }
+
+    @Test
+    void givenUnterminatedQuote_whenReadCsv_thenException() {
+        var rowReader = new CsvRowReader(reader("a\n\"open\n"));
+
+        assertThatThrownBy(rowReader::next)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Unterminated");
+    }
+
+    @Test
+    void givenObjects_whenReadNdjson_thenColumnsFromFirstObject() throws IOException {
+        var rowReader = new NdjsonRowReader(reader("""
+                {"id": 1, "name": "first", "tags": ["a", "b"]}
+
+                {"id": 2, "name": null, "extra": true}
+                {"id": 3, "tags": {"nested": 1.5}}
+                """));
+
+        assertThat(rowReader.getColumns())
+                .containsExactly("id", "name", "tags");
+        assertThat(readAll(rowReader))
+                .containsExactly(
+                        new String[]{"1", "first", "[\"a\",\"b\"]"},
+                        new String[]{"2", null, null},
+                        new String[]{"3", null, "{\"nested\":1.5}"});
+    }
+
+    @Test
+    void givenNonObjectLine_whenReadNdjson_thenException() {
+        var rowReader = new NdjsonRowReader(reader("{\"id\": 1}\n[2]\n"));
+        rowReader.next();
+
+        assertThatThrownBy(rowReader::next)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not an object");
+    }
+
+    @Test
+    void givenDialect_whenQuote_thenEachPartQuotedAndFolded() {
+        assertThat(new Dialect("\"", true, false).quote("Public.Order"))
+                .isEqualTo("\"public\".\"order\"");
+        assertThat(new Dialect("`", false, false).quote("Order"))
+                .isEqualTo("`Order`");
+        assertThat(new Dialect("\"", false, true).quoteAll(List.of("id", "user")))
+                .isEqualTo("\"ID\", \"USER\"");
+        assertThat(new Dialect("", false, false).quote("user"))
+                .isEqualTo("user");
+    }
+
+    @Test
+    void givenUnknownExtension_whenLoad_thenException() {
+        assertThatThrownBy(() -> FixtureLoader.load(mock(DataSource.class), "t", "fixtures/order.txt"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown fixture format");
+    }
+
+    @Test
+    @EnabledIf("guru.nicks.test.Docker#isAvailable")
+    void givenReservedWords_whenLoad_thenQuoted() throws SQLException {
+        var runner = new PostgreSqlContainerRunner();
+        runner.applyEnvironment(new StandardEnvironment());
+        JdbcDatabaseContainer<?> container = runner.acquireContainer(FixtureLoaderTest.class.getName());
+
+        try (Connection connection = container.createConnection("");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE \"order\" (id INTEGER, \"user\" TEXT, note TEXT)");
+
+            assertThat(FixtureLoader.load(dataSource(container), "order", "fixtures/order.csv"))
+                    .isEqualTo(2);
+
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT \"user\", note FROM \"order\" ORDER BY id")) {
+                resultSet.next();
+                assertThat(resultSet.getString(1)).isEqualTo("nick");
+                assertThat(resultSet.getString(2)).isEqualTo("first, with comma");
+
+                resultSet.next();
+                assertThat(resultSet.getString(1)).isNull();
+                assertThat(resultSet.getString(2)).isEmpty();
+            }
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    @Test
+    @EnabledIf("guru.nicks.test.Docker#isAvailable")
+    void givenManyRows_whenCopyOrMultiRowInsert_thenFasterThanSingleRowInserts() throws IOException, SQLException {
+        var runner = new PostgreSqlContainerRunner();
+        runner.applyEnvironment(new StandardEnvironment());
+        JdbcDatabaseContainer<?> container = runner.acquireContainer(FixtureLoaderTest.class.getName());
+
+        var csv = new StringBuilder("id,name,amount\n");
+        for (int i = 0; i < BENCHMARK_ROWS; i++) {
+            csv.append(i).append(",\"name ").append(i).append("\",").append(i * 1.5).append('\n');
+        }
+
+        try (Connection connection = container.createConnection("")) {
+            var dialect = Dialect.of(connection.getMetaData());
+
+            try (Statement statement = connection.createStatement()) {
+                for (String table : List.of("copy_rows", "multi_row_inserts", "single_row_inserts")) {
+                    // multi-row inserts bind strings, which PostgreSQL doesn't cast to other types implicitly
+                    statement.execute("CREATE TABLE " + table + " (id TEXT, name TEXT, amount TEXT)");
+                }
+            }
+
+            long copyStart = System.nanoTime();
+            FixtureLoader.PostgresCopy.copy(connection, "copy_rows", new CsvRowReader(reader(csv.toString())),
+                    dialect);
+            long copyNanos = System.nanoTime() - copyStart;
+
+            long multiRowStart = System.nanoTime();
+            FixtureLoader.insertBatched(connection, "multi_row_inserts", new CsvRowReader(reader(csv.toString())),
+                    dialect);
+            long multiRowNanos = System.nanoTime() - multiRowStart;
+
+            long singleRowStart = System.nanoTime();
+            var rowReader = new CsvRowReader(reader(csv.toString()));
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO single_row_inserts (id, name, amount) VALUES (?, ?, ?)")) {
+                for (String[] row = rowReader.next(); row != null; row = rowReader.next()) {
+                    for (int i = 0; i < row.length; i++) {
+                        statement.setString(i + 1, row[i]);
+                    }
+
+                    statement.executeUpdate();
+                }
+            }
+            long singleRowNanos = System.nanoTime() - singleRowStart;
+
+            log.info("{} rows took {} ms via COPY, {} ms via multi-row inserts, {} ms via single-row inserts",
+                    BENCHMARK_ROWS, TimeUnit.NANOSECONDS.toMillis(copyNanos),
+                    TimeUnit.NANOSECONDS.toMillis(multiRowNanos), TimeUnit.NANOSECONDS.toMillis(singleRowNanos));
+
+            assertThat(copyNanos).isLessThan(singleRowNanos);
+            assertThat(multiRowNanos).isLessThan(singleRowNanos);
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    private static BufferedReader reader(String text) {
+        return new BufferedReader(new StringReader(text));
+    }
+
+    private static List<String[]> readAll(RowReader rowReader) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+
+        try (rowReader) {
+            for (String[] row = rowReader.next(); row != null; row = rowReader.next()) {
+                rows.add(row);
+            }
+        }
+
+        return rows;
+    }
+
+    private static PGSimpleDataSource dataSource(JdbcDatabaseContainer<?> container) {
+        var dataSource = new PGSimpleDataSource();
+        dataSource.setURL(container.getJdbcUrl());
+        dataSource.setUser(container.getUsername());
+        dataSource.setPassword(container.getPassword());
+        return dataSource;
+    }
+
+}
@@ -0,0 +1,65 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests {@link ForkSharedContainers}
+ */
+class ForkSharedContainersTest {
+
+    private static final ProcessHandle CURRENT = ProcessHandle.current();
+
+    @Test
+    void givenLiveFork_whenPrune_thenKept() {
+        var state = new Properties();
+        state.setProperty("fork." + CURRENT.pid(), "1," + getStartMillis());
+
+        ForkSharedContainers.pruneDeadForks(state);
+
+        assertThat(state).containsOnlyKeys("fork." + CURRENT.pid());
+    }
+
+    @Test
+    void givenLiveForkWithoutStartInstant_whenPrune_thenKept() {
+        var state = new Properties();
+        state.setProperty("fork." + CURRENT.pid(), "1");
+
+        ForkSharedContainers.pruneDeadForks(state);
+
+        assertThat(state).containsOnlyKeys("fork." + CURRENT.pid());
+    }
+
+    @Test
+    void givenExitedFork_whenPrune_thenRemoved() {
+        var state = new Properties();
+        state.setProperty("fork." + Long.MAX_VALUE, "1,0");
+
+        ForkSharedContainers.pruneDeadForks(state);
+
+        assertThat(state).isEmpty();
+    }
+
+    @Test
+    void givenPidReusedByAnotherProcess_whenPrune_thenRemoved() {
+        assumeTrue(CURRENT.info().startInstant().isPresent(), "process start instant is not reported");
+
+        var state = new Properties();
+        state.setProperty("fork." + CURRENT.pid(), "1," + (Long.parseLong(getStartMillis()) - 1));
+
+        ForkSharedContainers.pruneDeadForks(state);
+
+        assertThat(state).isEmpty();
+    }
+
+    private static String getStartMillis() {
+        return CURRENT.info().startInstant()
+                .map(instant -> String.valueOf(instant.toEpochMilli()))
+                .orElse("");
+    }
+
+}
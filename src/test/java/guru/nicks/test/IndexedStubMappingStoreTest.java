@@ -0,0 +1,142 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.status;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathTemplate;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link IndexedStubMappingStore}: each request is sent to a server having the indexed store and to one having
+ * WireMock default store, both having the same stubs, and must get the same response.
+ */
+class IndexedStubMappingStoreTest {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private WireMockServer server;
+    private WireMockServer defaultServer;
+
+    @BeforeEach
+    void beforeEach() {
+        WireMockConfiguration config = options().dynamicPort();
+        config.withStores(new IndexedStubMappingStore.Stores(config.filesRoot()));
+
+        server = new WireMockServer(config);
+        server.start();
+        defaultServer = new WireMockServer(options().dynamicPort());
+        defaultServer.start();
+    }
+
+    @AfterEach
+    void afterEach() {
+        server.stop();
+        defaultServer.stop();
+    }
+
+    @Test
+    void givenIndexedAndOtherStubs_whenCalled_thenByPriorityThenNewestFirst() throws Exception {
+        stubFor(get(urlPathEqualTo("/a")).willReturn(status(200)));
+        // not indexed, newer
+        stubFor(any(urlPathEqualTo("/a")).willReturn(status(201)));
+        assertThat(call("GET", "/a")).isEqualTo(201);
+
+        // indexed, newer
+        stubFor(get(urlPathEqualTo("/a")).willReturn(status(202)));
+        assertThat(call("GET", "/a")).isEqualTo(202);
+
+        // not indexed, higher priority
+        stubFor(get(urlMatching("/a.*")).atPriority(1).willReturn(status(203)));
+        // indexed, newer but lower priority
+        stubFor(get(urlPathEqualTo("/a")).atPriority(2).willReturn(status(204)));
+        assertThat(call("GET", "/a")).isEqualTo(203);
+    }
+
+    @Test
+    void givenStubRemovedOrReplaced_whenCalled_thenNoLongerMatched() throws Exception {
+        UUID removed = UUID.randomUUID();
+        UUID replaced = UUID.randomUUID();
+        stubFor(get(urlPathEqualTo("/b")).willReturn(status(200)));
+        stubFor(get(urlPathEqualTo("/b")).withId(removed).willReturn(status(201)));
+        stubFor(get(urlPathEqualTo("/c")).withId(replaced).willReturn(status(202)));
+
+        server.removeStub(server.getSingleStubMapping(removed));
+        defaultServer.removeStub(defaultServer.getSingleStubMapping(removed));
+        assertThat(call("GET", "/b")).isEqualTo(200);
+
+        MappingBuilder replacement = get(urlPathEqualTo("/d")).withId(replaced).willReturn(status(203));
+        server.editStub(replacement);
+        defaultServer.editStub(replacement);
+        assertThat(call("GET", "/c")).isEqualTo(404);
+        assertThat(call("GET", "/d")).isEqualTo(203);
+    }
+
+    @Test
+    void givenUrlPatternAndAnyMethodStubs_whenCalled_thenMatched() throws Exception {
+        stubFor(any(urlPathEqualTo("/e")).willReturn(status(200)));
+        stubFor(get(urlPathMatching("/f/[0-9]+")).willReturn(status(201)));
+        stubFor(get(urlEqualTo("/g?page=1")).willReturn(status(202)));
+        stubFor(get(urlPathTemplate("/h/{id}")).willReturn(status(203)));
+
+        assertThat(call("POST", "/e")).isEqualTo(200);
+        assertThat(call("GET", "/f/1")).isEqualTo(201);
+        assertThat(call("POST", "/f/1")).isEqualTo(404);
+        assertThat(call("GET", "/g?page=1")).isEqualTo(202);
+        assertThat(call("GET", "/h/1")).isEqualTo(203);
+    }
+
+    @Test
+    void givenPercentEncodedPath_whenCalled_thenMatchedAsByDefaultStore() throws Exception {
+        stubFor(get(urlPathEqualTo("/i j")).willReturn(status(200)));
+        stubFor(get(urlPathEqualTo("/i%20j")).willReturn(status(201)));
+
+        assertThat(call("GET", "/i%20j")).isNotEqualTo(404);
+    }
+
+    private void stubFor(MappingBuilder mappingBuilder) {
+        server.stubFor(mappingBuilder);
+        defaultServer.stubFor(mappingBuilder);
+    }
+
+    /**
+     * Sends the request to both servers.
+     *
+     * @return response status, the same for both servers
+     */
+    private int call(String method, String pathAndQuery) throws IOException, InterruptedException {
+        int status = send(server, method, pathAndQuery);
+
+        assertThat(status)
+                .as("%s %s", method, pathAndQuery)
+                .isEqualTo(send(defaultServer, method, pathAndQuery));
+        return status;
+    }
+
+    private int send(WireMockServer target, String method, String pathAndQuery)
+            throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(target.baseUrl() + pathAndQuery))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+}
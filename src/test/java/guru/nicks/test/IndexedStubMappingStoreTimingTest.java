@@ -0,0 +1,107 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.stubbing.StubImport;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares request latency of {@link IndexedStubMappingStore} and WireMock default stub store as the number of stubs
+ * grows. Wall-clock, so excluded from the regular build (see the 'benchmark' Maven profile); matching itself is tested
+ * by {@link IndexedStubMappingStoreTest}.
+ */
+@Slf4j
+@Tag("benchmark")
+class IndexedStubMappingStoreTimingTest {
+
+    private static final int FEW_STUBS = 100;
+    private static final int MANY_STUBS = 5_000;
+    private static final int WARMUP_REQUESTS = 200;
+    private static final int MEASURED_REQUESTS = 500;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void givenManyStubs_whenCalled_thenIndexedLatencyStaysFlat() throws IOException, InterruptedException {
+        long defaultFew = measureMedianNanos(false, FEW_STUBS);
+        long defaultMany = measureMedianNanos(false, MANY_STUBS);
+        long indexedFew = measureMedianNanos(true, FEW_STUBS);
+        long indexedMany = measureMedianNanos(true, MANY_STUBS);
+
+        log.info("Median request latency, us: default store {} (stubs: {}) -> {} (stubs: {}), indexed store {} -> {}",
+                toMicros(defaultFew), FEW_STUBS, toMicros(defaultMany), MANY_STUBS, toMicros(indexedFew),
+                toMicros(indexedMany));
+
+        assertThat(indexedMany).isLessThan(defaultMany);
+        // flat, with generous slack for noisy CI machines
+        assertThat(indexedMany).isLessThan(3 * indexedFew + TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private long measureMedianNanos(boolean indexed, int stubCount) throws IOException, InterruptedException {
+        WireMockConfiguration config = options()
+                .dynamicPort()
+                .disableRequestJournal();
+
+        if (indexed) {
+            config.withStores(new IndexedStubMappingStore.Stores(config.filesRoot()));
+        }
+
+        var server = new WireMockServer(config);
+        server.start();
+
+        try {
+            StubImport.Builder stubImport = StubImport.stubImport();
+            for (int i = 0; i < stubCount; i++) {
+                stubImport.stub(get(urlPathEqualTo("/stub/" + i)).willReturn(ok()));
+            }
+
+            server.importStubs(stubImport.build());
+
+            var random = new SplittableRandom(42);
+            long[] latencies = new long[MEASURED_REQUESTS];
+
+            for (int i = 0; i < WARMUP_REQUESTS + MEASURED_REQUESTS; i++) {
+                String path = "/stub/" + random.nextInt(stubCount);
+                var request = HttpRequest.newBuilder(URI.create(server.baseUrl() + path))
+                        .GET()
+                        .build();
+
+                long start = System.nanoTime();
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                long latency = System.nanoTime() - start;
+
+                assertThat(response.statusCode()).isEqualTo(200);
+                if (i >= WARMUP_REQUESTS) {
+                    latencies[i - WARMUP_REQUESTS] = latency;
+                }
+            }
+
+            Arrays.sort(latencies);
+            return latencies[latencies.length / 2];
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
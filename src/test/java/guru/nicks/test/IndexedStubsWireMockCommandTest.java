@@ -0,0 +1,17 @@
+package guru.nicks.user;
+
+import guru.nicks.test.WireMockConfig;
+import guru.nicks.test.WireMockServerCustomizer;
+
+import com.github.tomakehurst.wiremock.core.Options;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+
+/**
+ * Runs {@link WireMockCommandTest} with indexed stubs, which must behave the same as WireMock default stub store.
+ */
+@SpringBootTest(classes = WireMockConfig.class,
+        properties = WireMockServerCustomizer.INDEXED_STUBS_PROPERTY + "=true")
+@AutoConfigureWireMock(port = Options.DYNAMIC_PORT)
+class IndexedStubsWireMockCommandTest extends WireMockCommandTest {
+}
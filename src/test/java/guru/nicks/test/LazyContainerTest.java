@@ -0,0 +1,144 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestContext;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link LazyContainer}
+ */
+class LazyContainerTest {
+
+    private static final String URL_PROPERTY = "spring.datasource.url";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenContainerNotAccessed_whenClose_thenNotStartedNorReleased() {
+        AbstractContainerRunner<GenericContainer<?>> runner = mock(AbstractContainerRunner.class);
+        when(runner.getContainerKey()).thenReturn("test");
+        var lazyContainer = new LazyContainer<>(runner, "context");
+        var propertySource = new LazyContainer.PropertySource(lazyContainer, List.of(URL_PROPERTY), false);
+
+        assertThat(propertySource.getPropertyNames())
+                .isEmpty();
+        assertThat(propertySource.getProperty("spring.other"))
+                .isNull();
+
+        lazyContainer.close();
+
+        assertThat(lazyContainer.isStarted())
+                .isFalse();
+        verify(runner, never()).acquireContainer(anyString());
+        verify(runner, never()).unbindLazyContainer();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenPropertyRead_whenGetProperty_thenContainerStartedOnce() {
+        AbstractContainerRunner<GenericContainer<?>> runner = mock(AbstractContainerRunner.class);
+        GenericContainer<?> container = mock(GenericContainer.class);
+        when(runner.getContainerKey()).thenReturn("test");
+        when(runner.acquireContainer(anyString())).thenAnswer(invocation -> container);
+        when(runner.bindLazyContainer(container)).thenReturn(List.of(URL_PROPERTY + "=jdbc:test"));
+        var lazyContainer = new LazyContainer<>(runner, "context");
+        var propertySource = new LazyContainer.PropertySource(lazyContainer, List.of(URL_PROPERTY), false);
+
+        assertThat(propertySource.getProperty(URL_PROPERTY))
+                .isEqualTo("jdbc:test");
+        assertThat(propertySource.containsProperty(URL_PROPERTY))
+                .isTrue();
+        assertThat(propertySource.getPropertyNames())
+                .containsExactly(URL_PROPERTY);
+
+        lazyContainer.close();
+
+        verify(runner).acquireContainer("context");
+        verify(runner).unbindLazyContainer();
+    }
+
+    @Test
+    void givenLazyJdbcRunner_whenStaticPropertyRead_thenContainerNotStarted() {
+        var environment = new MockEnvironment()
+                .withProperty(AbstractContainerRunner.LAZY_START_PROPERTY, "true");
+        PostgreSqlContainerRunner runner = spy(new PostgreSqlContainerRunner());
+        runner.applyEnvironment(environment);
+
+        try (var applicationContext = new GenericApplicationContext()) {
+            applicationContext.setEnvironment(environment);
+            runner.registerLazyContainer(applicationContext);
+
+            assertThat(runner.isLazyStart())
+                    .isTrue();
+            assertThat(environment.getProperty("spring.test.database.replace"))
+                    .isEqualTo("none");
+            assertThat(environment.containsProperty("spring.test.database.replace"))
+                    .isTrue();
+            verify(runner, never()).acquireContainer(any());
+        }
+    }
+
+    @Test
+    void givenLazyStartEnabled_whenRedisOrMongoRunner_thenLazyUnlessResetOrSharedBetweenForks() {
+        var environment = new MockEnvironment()
+                .withProperty(AbstractContainerRunner.LAZY_START_PROPERTY, "true");
+        var redisRunner = new RedisContainerRunner();
+        var mongoRunner = new MongoContainerRunner();
+        redisRunner.applyEnvironment(environment);
+        mongoRunner.applyEnvironment(environment);
+
+        assertThat(redisRunner.isLazyStart())
+                .isTrue();
+        assertThat(mongoRunner.isLazyStart())
+                .isTrue();
+
+        redisRunner.applyEnvironment(environment
+                .withProperty(RedisContainerRunner.RESET_SCOPE_PROPERTY, "METHOD"));
+        mongoRunner.applyEnvironment(environment
+                .withProperty(ForkSharedContainers.ENABLED_PROPERTY, "true"));
+
+        assertThat(redisRunner.isLazyStart())
+                .isFalse();
+        assertThat(mongoRunner.isLazyStart())
+                .isFalse();
+    }
+
+    @Test
+    void givenLazyRedisRunner_whenContextRefreshedAndTestIsolated_thenContainerNotStarted() throws Exception {
+        var environment = new MockEnvironment()
+                .withProperty(AbstractContainerRunner.LAZY_START_PROPERTY, "true");
+        RedisContainerRunner runner = spy(new RedisContainerRunner());
+        runner.applyEnvironment(environment);
+
+        try (var applicationContext = new GenericApplicationContext()) {
+            applicationContext.setEnvironment(environment);
+            runner.registerLazyContainer(applicationContext);
+            applicationContext.refresh();
+
+            TestContext testContext = mock(TestContext.class);
+            when(testContext.getApplicationContext()).thenReturn(applicationContext);
+            new TestIsolationExecutionListener().beforeTestMethod(testContext);
+
+            // the lazy one, Spring Boot backs off
+            assertThat(applicationContext.getBeansOfType(RedisConnectionFactory.class))
+                    .hasSize(1);
+            assertThat(environment.getProperty("spring.redis.scheme"))
+                    .isEqualTo("redis");
+            verify(runner, never()).acquireContainer(any());
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput of a default WireMock server and one tuned by {@link WireMockServerCustomizer} load mode.
+ * Wall-clock, so excluded from the regular build (see the 'benchmark' Maven profile); load mode itself is tested by
+ * {@link WireMockServerCustomizerTest}.
+ */
+@Slf4j
+@Tag("benchmark")
+class LoadModeTimingTest {
+
+    private static final int CLIENT_THREADS = 16;
+    private static final int WARMUP_REQUESTS_PER_THREAD = 200;
+    private static final int MEASURED_REQUESTS_PER_THREAD = 1_000;
+
+    @Test
+    void givenConcurrentClients_whenLoadMode_thenThroughputNotLowerAndJournalDisabled() throws Exception {
+        WireMockConfiguration defaultConfig = options().dynamicPort();
+        new WireMockServerCustomizer(new MockEnvironment()).customize(defaultConfig);
+
+        WireMockConfiguration loadModeConfig = options().dynamicPort();
+        new WireMockServerCustomizer(new MockEnvironment()
+                .withProperty(WireMockServerCustomizer.LOAD_MODE_PROPERTY, "true"))
+                .customize(loadModeConfig);
+
+        // heap doesn't grow with the number of requests
+        assertThat(loadModeConfig.requestJournalDisabled()).isTrue();
+
+        long defaultRate = measure(defaultConfig);
+        long loadModeRate = measure(loadModeConfig);
+
+        log.info("Requests/s with {} client threads: {} by default, {} in load mode", CLIENT_THREADS, defaultRate,
+                loadModeRate);
+
+        // loopback HTTP dominates both, so only a regression beyond noise fails the test
+        assertThat(loadModeRate).isGreaterThan(defaultRate * 9 / 10);
+    }
+
+    private static long measure(WireMockConfiguration config) throws Exception {
+        var server = new WireMockServer(config);
+        server.start();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(CLIENT_THREADS)) {
+            server.stubFor(get(urlPathEqualTo("/load")).willReturn(aResponse().withBody("{\"status\": \"ok\"}")));
+            var httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .build();
+            var request = HttpRequest.newBuilder(URI.create(server.baseUrl() + "/load")).build();
+
+            send(executor, httpClient, request, WARMUP_REQUESTS_PER_THREAD);
+            long start = System.nanoTime();
+            send(executor, httpClient, request, MEASURED_REQUESTS_PER_THREAD);
+            long nanos = System.nanoTime() - start;
+
+            return CLIENT_THREADS * MEASURED_REQUESTS_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / nanos;
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void send(ExecutorService executor, HttpClient httpClient, HttpRequest request,
+            int requestsPerThread) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(CLIENT_THREADS);
+
+        for (int thread = 0; thread < CLIENT_THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < requestsPerThread; i++) {
+                    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    assertThat(response.statusCode()).isEqualTo(200);
+                }
+
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+}
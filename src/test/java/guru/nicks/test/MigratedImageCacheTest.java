@@ -0,0 +1,55 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.UrlResource;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link MigratedImageCache}
+ */
+class MigratedImageCacheTest {
+
+    @Test
+    void givenPattern_whenGetRoot_thenDirectoryBeforeWildcards() {
+        assertThat(MigratedImageCache.getRoot("classpath*:db/migration/**/*.*"))
+                .isEqualTo("db/migration/");
+        assertThat(MigratedImageCache.getRoot("classpath:/db/changelog/db.changelog-*.yaml"))
+                .isEqualTo("db/changelog/");
+        assertThat(MigratedImageCache.getRoot("classpath*:db/migration/V1__init.sql"))
+                .isEqualTo("db/migration/");
+        assertThat(MigratedImageCache.getRoot("classpath*:**/*.sql"))
+                .isEmpty();
+    }
+
+    @Test
+    void givenDirectoryOrJar_whenGetPath_thenSamePathFromRoot() throws IOException {
+        String root = "db/migration/";
+
+        assertThat(MigratedImageCache.getPath(
+                new UrlResource("file:/home/user/project/target/classes/db/migration/v2/V2__index.sql"), root))
+                .isEqualTo("db/migration/v2/V2__index.sql");
+        assertThat(MigratedImageCache.getPath(
+                new UrlResource("jar:file:/opt/app/migrations.jar!/db/migration/v2/V2__index.sql"), root))
+                .isEqualTo("db/migration/v2/V2__index.sql");
+        assertThat(MigratedImageCache.getPath(
+                new UrlResource("file:/home/user/project/target/classes/db/migration/v3/V2__index.sql"), root))
+                .isEqualTo("db/migration/v3/V2__index.sql");
+        assertThat(MigratedImageCache.getPath(
+                new UrlResource("file:/home/user/project/target/classes/V1__init.sql"), ""))
+                .isEqualTo("V1__init.sql");
+    }
+
+    @Test
+    void givenScripts_whenComputeChecksum_thenStableAndContentDependent() {
+        String checksum = MigratedImageCache.computeChecksum("classpath*:wiremock/catalog/**/*.json");
+
+        assertThat(checksum)
+                .hasSize(16)
+                .isEqualTo(MigratedImageCache.computeChecksum(" classpath*:wiremock/catalog/**/*.json "))
+                .isNotEqualTo(MigratedImageCache.computeChecksum("classpath*:wiremock/self-test/**/*.json"));
+    }
+
+}
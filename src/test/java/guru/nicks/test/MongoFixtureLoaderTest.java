@@ -0,0 +1,105 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.core.env.StandardEnvironment;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link MongoFixtureLoader}
+ */
+@Slf4j
+class MongoFixtureLoaderTest {
+
+    private static final int DOCUMENT_COUNT = 5_000;
+
+    @Test
+    void givenJacksonNumbers_whenNormalize_thenBsonNumbers() {
+        assertThat(MongoFixtureLoader.normalize(BigInteger.valueOf(42)))
+                .isEqualTo(42L);
+        assertThat(MongoFixtureLoader.normalize(BigInteger.TWO.pow(70)))
+                .isEqualTo(Math.pow(2, 70));
+        assertThat(MongoFixtureLoader.normalize(new BigDecimal("1.5")))
+                .isEqualTo(1.5d);
+        assertThat(MongoFixtureLoader.normalize(2.5f))
+                .isEqualTo(2.5d);
+        assertThat(MongoFixtureLoader.normalize((short) 7))
+                .isEqualTo(7);
+        assertThat(MongoFixtureLoader.normalize("text"))
+                .isEqualTo("text");
+        assertThat(MongoFixtureLoader.normalize(null))
+                .isNull();
+    }
+
+    @Test
+    void givenNestedDocument_whenNormalize_thenNormalizedDeeply() {
+        Map<Object, Object> nested = new LinkedHashMap<>();
+        nested.put(1, new BigDecimal("0.25"));
+        nested.put("list", Arrays.asList((short) 1, null, List.of(BigInteger.ONE)));
+
+        assertThat(MongoFixtureLoader.normalize(Map.of("nested", nested)))
+                .isEqualTo(Map.of("nested", Map.of(
+                        "1", 0.25d,
+                        "list", Arrays.asList(1, null, List.of(1L)))));
+    }
+
+    @Test
+    @EnabledIf("guru.nicks.test.Docker#isAvailable")
+    void givenManyDocuments_whenInsertedInBatch_thenFasterThanOneByOne() {
+        var runner = new MongoContainerRunner();
+        runner.applyEnvironment(new StandardEnvironment());
+        MongoDBContainer container = runner.acquireContainer(MongoFixtureLoaderTest.class.getName());
+
+        try (var client = new MongoWireClient(container.getHost(),
+                container.getMappedPort(MongoContainerRunner.MONGO_PORT), Duration.ofSeconds(60))) {
+            long oneByOneStart = System.nanoTime();
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                insert(client, "oneByOne", List.of(document(i)));
+            }
+            long oneByOneNanos = System.nanoTime() - oneByOneStart;
+
+            List<Object> batch = new ArrayList<>(DOCUMENT_COUNT);
+            long batchStart = System.nanoTime();
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                batch.add(document(i));
+            }
+            insert(client, "batch", batch);
+            long batchNanos = System.nanoTime() - batchStart;
+
+            log.info("Inserting {} documents took {} ms one by one, {} ms in a batch", DOCUMENT_COUNT,
+                    TimeUnit.NANOSECONDS.toMillis(oneByOneNanos), TimeUnit.NANOSECONDS.toMillis(batchNanos));
+
+            assertThat(batchNanos).isLessThan(oneByOneNanos);
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    private static Map<String, Object> document(int index) {
+        return Map.of("index", index, "name", "name-" + index);
+    }
+
+    private static void insert(MongoWireClient client, String collection, List<Object> documents) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("insert", collection);
+        command.put("documents", documents);
+        command.put("ordered", false);
+
+        assertThat(client.runCommand(MongoFixtureLoaderTest.class.getSimpleName(), command))
+                .containsEntry("n", documents.size());
+    }
+
+}
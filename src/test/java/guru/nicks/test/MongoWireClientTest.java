@@ -0,0 +1,84 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Tests {@link MongoWireClient}
+ */
+class MongoWireClientTest {
+
+    @Test
+    void givenSimpleDocument_whenEncode_thenBsonSpecBytes() {
+        assertThat(MongoWireClient.encodeDocument(Map.of("a", 1)))
+                .containsExactly(0x0C, 0, 0, 0, 0x10, 'a', 0, 1, 0, 0, 0, 0);
+    }
+
+    @Test
+    void givenAllSupportedTypes_whenEncodeAndDecode_thenSameDocument() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("empty", Map.of());
+        nested.put("list", Arrays.asList(1, "two", null, List.of(3L)));
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("double", 1.5);
+        document.put("string", "Привет, 世界");
+        document.put("nested", nested);
+        document.put("true", true);
+        document.put("false", false);
+        document.put("int", Integer.MIN_VALUE);
+        document.put("long", Long.MAX_VALUE);
+        document.put("null", null);
+
+        assertThat(decode(MongoWireClient.encodeDocument(document)))
+                .isEqualTo(document)
+                .containsOnlyKeys(document.keySet());
+        // document length, element, terminator
+        assertThat(MongoWireClient.elementSize("документ", document))
+                .isEqualTo(MongoWireClient.encodeDocument(Map.of("документ", document)).length - 4 - 1);
+    }
+
+    @Test
+    void givenUnsupportedValue_whenEncode_thenException() {
+        assertThatThrownBy(() -> MongoWireClient.encodeDocument(Map.of("id", UUID.randomUUID())))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unsupported BSON value type");
+    }
+
+    @Test
+    void givenUnsupportedTypes_whenDecode_thenSkippedAsNull() {
+        // {"_id": ObjectId, "at": datetime, "n": 7}
+        ByteBuffer bson = ByteBuffer.allocate(41).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(41)
+                .put((byte) 0x07).put("_id".getBytes(StandardCharsets.UTF_8)).put((byte) 0).put(new byte[12])
+                .put((byte) 0x09).put("at".getBytes(StandardCharsets.UTF_8)).put((byte) 0).putLong(1_700_000_000_000L)
+                .put((byte) 0x10).put("n".getBytes(StandardCharsets.UTF_8)).put((byte) 0).putInt(7)
+                .put((byte) 0);
+
+        Map<String, Object> document = decode(bson.array());
+
+        assertThat(document)
+                .containsExactly(entry("_id", null), entry("at", null), entry("n", 7));
+    }
+
+    private static Map<String, Object> decode(byte[] bson) {
+        ByteBuffer buffer = ByteBuffer.wrap(bson).order(ByteOrder.LITTLE_ENDIAN);
+        Map<String, Object> document = MongoWireClient.decodeDocument(buffer);
+
+        assertThat(buffer.hasRemaining()).isFalse();
+        return document;
+    }
+
+}
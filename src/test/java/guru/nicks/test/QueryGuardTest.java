@@ -0,0 +1,82 @@
+package guru.nicks.test;
+
+import guru.nicks.test.QueryGuard.StatementStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link QueryGuard}
+ */
+class QueryGuardTest {
+
+    @Test
+    void givenNewStatement_whenDiff_thenWholeStatisticsReturned() {
+        var statistics = new StatementStatistics("SELECT 1", 2, 3, 4.0);
+
+        assertThat(QueryGuard.diff(Map.of(), Map.of("1", statistics)))
+                .containsExactly(statistics);
+    }
+
+    @Test
+    void givenCalledStatement_whenDiff_thenDifferenceReturned() {
+        List<StatementStatistics> statements = QueryGuard.diff(
+                Map.of("1", new StatementStatistics("SELECT 1", 2, 3, 4.0)),
+                Map.of("1", new StatementStatistics("SELECT 1", 5, 10, 6.5)));
+
+        assertThat(statements)
+                .containsExactly(new StatementStatistics("SELECT 1", 3, 7, 2.5));
+    }
+
+    @Test
+    void givenUncalledStatement_whenDiff_thenExcluded() {
+        var statistics = new StatementStatistics("SELECT 1", 2, 3, 4.0);
+
+        assertThat(QueryGuard.diff(Map.of("1", statistics), Map.of("1", statistics)))
+                .isEmpty();
+    }
+
+    @Test
+    void givenStatisticsReset_whenDiff_thenStatementExcluded() {
+        List<StatementStatistics> statements = QueryGuard.diff(
+                Map.of("1", new StatementStatistics("SELECT 1", 5, 5, 5.0)),
+                Map.of("1", new StatementStatistics("SELECT 1", 1, 1, 1.0)));
+
+        assertThat(statements)
+                .isEmpty();
+    }
+
+    @Test
+    void givenSeveralStatements_whenDiff_thenMostExpensiveFirst() {
+        List<StatementStatistics> statements = QueryGuard.diff(Map.of(), Map.of(
+                "1", new StatementStatistics("cheap", 100, 1, 1.0),
+                "2", new StatementStatistics("expensive", 1, 1, 50.0),
+                "3", new StatementStatistics("medium", 10, 1, 10.0)));
+
+        assertThat(statements)
+                .extracting(StatementStatistics::statement)
+                .containsExactly("expensive", "medium", "cheap");
+    }
+
+    @Test
+    void givenSameStatementId_whenCombine_thenStatisticsSummed() {
+        StatementStatistics combined = QueryGuard.combine(
+                new StatementStatistics("top-level", 1, 2, 3.0),
+                new StatementStatistics("nested", 4, 5, 6.0));
+
+        assertThat(combined)
+                .isEqualTo(new StatementStatistics("top-level", 5, 7, 9.0));
+    }
+
+    @Test
+    void givenCalls_whenMeanTime_thenTotalDividedByCalls() {
+        assertThat(new StatementStatistics("SELECT 1", 4, 0, 10.0).meanTimeMillis())
+                .isEqualTo(2.5);
+        assertThat(new StatementStatistics("SELECT 1", 0, 0, 0).meanTimeMillis())
+                .isZero();
+    }
+
+}
@@ -0,0 +1,31 @@
+package guru.nicks.test;
+
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests {@link RedisContainerRunner}
+ */
+class RedisContainerRunnerTest {
+
+    @Test
+    void givenForkSlotWithoutDatabase_whenBindContainer_thenException() {
+        var runner = new RedisContainerRunner() {
+            @Override
+            protected int getForkSlot() {
+                return DATABASE_COUNT;
+            }
+        };
+
+        try (var applicationContext = new GenericApplicationContext()) {
+            assertThatThrownBy(() -> runner.bindContainer(applicationContext, mock(RedisContainer.class)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Fork slot " + RedisContainerRunner.DATABASE_COUNT);
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package guru.nicks.test;
+
+import com.redis.testcontainers.RedisContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests {@link RedisFixtureLoader}
+ */
+@Slf4j
+class RedisFixtureLoaderTest {
+
+    private static final int COMMAND_COUNT = 20_000;
+
+    @Test
+    void givenPlainAndQuotedArguments_whenSplit_thenUnquoted() {
+        assertThat(split("SET  key 'single \"quoted\"' \"double 'quoted'\""))
+                .containsExactly("SET", "key", "single \"quoted\"", "double 'quoted'");
+    }
+
+    @Test
+    void givenEscapes_whenSplit_thenUnescaped() {
+        assertThat(split("SET key \"a\\\"b\\\\c\\nd\\te\""))
+                .containsExactly("SET", "key", "a\"b\\c\nd\te");
+    }
+
+    @Test
+    void givenHexEscape_whenSplit_thenRawByte() {
+        List<byte[]> args = RedisFixtureLoader.splitArguments("SET key \"\\xff\\x00é\"");
+
+        // é is UTF-8-encoded, \xff is a single byte rather than two
+        assertThat(args.get(2))
+                .containsExactly(0xff, 0x00, 0xc3, 0xa9);
+    }
+
+    @Test
+    void givenUnterminatedQuoteOrInvalidEscape_whenSplit_thenException() {
+        assertThatThrownBy(() -> RedisFixtureLoader.splitArguments("SET key \"value"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RedisFixtureLoader.splitArguments("SET key 'value"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RedisFixtureLoader.splitArguments("SET key \"\\xzz\""))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenKeyPrefix_whenParseCommand_thenFirstArgumentPrefixed() {
+        List<byte[][]> pipeline = new ArrayList<>();
+
+        RedisFixtureLoader.parseCommand("  # comment", "p:", pipeline);
+        RedisFixtureLoader.parseCommand("", "p:", pipeline);
+        RedisFixtureLoader.parseCommand("HSET user:1 name Nick", "p:", pipeline);
+        RedisFixtureLoader.parseCommand("del user:2", "p:", pipeline);
+
+        assertThat(pipeline)
+                .extracting(command -> new String(command[1], StandardCharsets.UTF_8))
+                .containsExactly("p:user:1", "p:user:2");
+    }
+
+    @Test
+    void givenCommandEscapingPartition_whenParseCommand_thenRejected() {
+        assertThatThrownBy(() -> RedisFixtureLoader.parseCommand("select 3", "", new ArrayList<>()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("outside the partition");
+        assertThatThrownBy(() -> RedisFixtureLoader.parseCommand("FLUSHALL", "", new ArrayList<>()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenKeylessCommand_whenParseCommandWithPrefix_thenRejected() {
+        assertThatThrownBy(() -> RedisFixtureLoader.parseCommand("FLUSHDB", "p:", new ArrayList<>()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Key prefix");
+        assertThatThrownBy(() -> RedisFixtureLoader.parseCommand("EVAL 'return 1' 0", "p:", new ArrayList<>()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RedisFixtureLoader.parseCommand("GET", "p:", new ArrayList<>()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // fine in a database of its own
+        List<byte[][]> pipeline = new ArrayList<>();
+        RedisFixtureLoader.parseCommand("FLUSHDB", "", pipeline);
+        assertThat(pipeline).hasSize(1);
+    }
+
+    @Test
+    void givenMultiKeyCommand_whenParseCommandWithPrefix_thenRejected() {
+        for (String line : List.of("MSET a 1 b 2", "DEL a b", "EXISTS a b", "RENAME a b", "SMOVE a b x",
+                "LMOVE a b LEFT RIGHT", "SUNIONSTORE a b c", "ZUNIONSTORE a 2 b c", "PFMERGE a b", "COPY a b",
+                "BITOP AND a b c")) {
+            assertThatThrownBy(() -> RedisFixtureLoader.parseCommand(line, "p:", new ArrayList<>()))
+                    .as(line)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("single-key");
+        }
+    }
+
+    @Test
+    @EnabledIf("guru.nicks.test.Docker#isAvailable")
+    void givenManyCommands_whenPipelined_thenFasterThanOneByOne() {
+        var runner = new RedisContainerRunner();
+        runner.applyEnvironment(new StandardEnvironment());
+        RedisContainer container = runner.acquireContainer(RedisFixtureLoaderTest.class.getName());
+        RedisPartition partition = RedisPartition.lease(container.getHost(), container.getRedisPort(),
+                RedisContainerRunner.DATABASE_COUNT, null, null);
+
+        try (var client = new RespClient(partition.getHost(), partition.getPort(), Duration.ofSeconds(60))) {
+            client.execute("SELECT", String.valueOf(partition.getDatabase()));
+
+            long oneByOneStart = System.nanoTime();
+            for (int i = 0; i < COMMAND_COUNT; i++) {
+                client.execute("SET", "one:" + i, "value-" + i);
+            }
+            long oneByOneNanos = System.nanoTime() - oneByOneStart;
+
+            List<String[]> pipeline = new ArrayList<>(RedisFixtureLoader.PIPELINE_SIZE);
+            long pipelinedStart = System.nanoTime();
+            for (int i = 0; i < COMMAND_COUNT; i++) {
+                pipeline.add(new String[]{"SET", "pipelined:" + i, "value-" + i});
+
+                if (pipeline.size() == RedisFixtureLoader.PIPELINE_SIZE) {
+                    client.executePipelined(pipeline);
+                    pipeline.clear();
+                }
+            }
+            client.executePipelined(pipeline);
+            long pipelinedNanos = System.nanoTime() - pipelinedStart;
+
+            log.info("{} SET commands took {} ms one by one, {} ms pipelined", COMMAND_COUNT,
+                    TimeUnit.NANOSECONDS.toMillis(oneByOneNanos), TimeUnit.NANOSECONDS.toMillis(pipelinedNanos));
+
+            assertThat(client.execute("DBSIZE")).isEqualTo(2L * COMMAND_COUNT);
+            assertThat(pipelinedNanos).isLessThan(oneByOneNanos);
+        } finally {
+            partition.close();
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    private static List<String> split(String line) {
+        return RedisFixtureLoader.splitArguments(line)
+                .stream()
+                .map(arg -> new String(arg, StandardCharsets.UTF_8))
+                .toList();
+    }
+
+}
@@ -0,0 +1,36 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests {@link ResponseTemplate}
+ */
+class ResponseTemplateTest {
+
+    @Test
+    void givenInvalidVariable_whenCompile_thenException() {
+        assertThatThrownBy(() -> ResponseTemplate.compile("{\"id\": \"${path[-1]}\"}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("path[-1]")
+                .hasMessageContaining("negative");
+        assertThatThrownBy(() -> ResponseTemplate.compile("${path[x]}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid template variable");
+        assertThatThrownBy(() -> ResponseTemplate.compile("${cookie.id}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown template variable");
+        assertThatThrownBy(() -> ResponseTemplate.compile("${path[0]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unclosed variable");
+    }
+
+    @Test
+    void givenFirstPathSegment_whenCompile_thenAccepted() {
+        assertThatCode(() -> ResponseTemplate.compile("${path[0]}"))
+                .doesNotThrowAnyException();
+    }
+
+}
@@ -0,0 +1,137 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares response latency of {@link ResponseTemplate} and WireMock Handlebars templating rendering the same body.
+ * The comparison is wall-clock, so it's excluded from the regular build (see the 'benchmark' Maven profile).
+ */
+@Slf4j
+class ResponseTemplateTimingTest {
+
+    private static final int WARMUP_REQUESTS = 500;
+    private static final int MEASURED_REQUESTS = 2_000;
+
+    private static final String REQUEST_BODY = "{\"user\": {\"name\": \"name-1\"}}";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private WireMockServer server;
+
+    @BeforeEach
+    void beforeEach() {
+        server = new WireMockServer(options()
+                .dynamicPort()
+                .disableRequestJournal()
+                .extensions(new ResponseTemplate.Transformer()));
+        server.start();
+        WireMockCommand.bindClient(new WireMock(server.port()));
+
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.POST).path("/compiled/items/1")
+                //
+                .and().response()
+                .httpStatus(HttpStatus.OK)
+                .templatedJsonBody("""
+                        {"id": "${path[2]}", "q": "${query.q}", "requestId": "${header.X-Request-Id}", \
+                        "name": "${body.user.name}"}""")
+                //
+                .and().mock();
+
+        server.stubFor(post(urlPathEqualTo("/handlebars/items/1"))
+                .willReturn(aResponse()
+                        .withBody("""
+                                {"id": "{{request.pathSegments.[2]}}", "q": "{{request.query.q}}", \
+                                "requestId": "{{request.headers.X-Request-Id}}", \
+                                "name": "{{jsonPath request.body '$.user.name'}}"}""")
+                        .withTransformers("response-template")));
+    }
+
+    @AfterEach
+    void afterEach() {
+        WireMockCommand.bindClient(null);
+        server.stop();
+    }
+
+    @Test
+    void givenSameBody_whenRendered_thenSameAsHandlebars() throws IOException, InterruptedException {
+        assertThat(send("/compiled/items/1").body())
+                .isEqualTo(send("/handlebars/items/1").body())
+                .contains("\"id\": \"1\"", "\"q\": \"query-1\"", "\"requestId\": \"request-1\"",
+                        "\"name\": \"name-1\"");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void givenSameBody_whenRendered_thenCompiledTemplateNotSlowerThanHandlebars()
+            throws IOException, InterruptedException {
+        long[] compiled = new long[MEASURED_REQUESTS];
+        long[] handlebars = new long[MEASURED_REQUESTS];
+
+        // interleaved, so both see the same machine load
+        for (int i = 0; i < WARMUP_REQUESTS + MEASURED_REQUESTS; i++) {
+            long compiledNanos = measure("/compiled/items/1");
+            long handlebarsNanos = measure("/handlebars/items/1");
+
+            if (i >= WARMUP_REQUESTS) {
+                compiled[i - WARMUP_REQUESTS] = compiledNanos;
+                handlebars[i - WARMUP_REQUESTS] = handlebarsNanos;
+            }
+        }
+
+        long compiledMedian = median(compiled);
+        long handlebarsMedian = median(handlebars);
+        log.info("Median response latency, us: compiled template {}, Handlebars {}",
+                TimeUnit.NANOSECONDS.toMicros(compiledMedian), TimeUnit.NANOSECONDS.toMicros(handlebarsMedian));
+
+        // HTTP dominates both, so only a regression beyond noise fails the test
+        assertThat(compiledMedian).isLessThan(handlebarsMedian * 11 / 10);
+    }
+
+    private long measure(String path) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = send(path);
+        long nanos = System.nanoTime() - start;
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        return nanos;
+    }
+
+    private HttpResponse<String> send(String path) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(server.baseUrl() + path + "?q=query-1"))
+                .header("X-Request-Id", "request-1")
+                .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODY))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+}
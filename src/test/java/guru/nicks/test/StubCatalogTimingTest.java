@@ -0,0 +1,113 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests loading a {@link StubCatalog} of many files for the first time (parsing) and again (from the cache). Timings
+ * are only logged: comparing wall-clock times is too noisy for assertions.
+ */
+@Slf4j
+class StubCatalogTimingTest {
+
+    private static final int WARMUP_FILE_COUNT = 500;
+    private static final int FILE_COUNT = 5_000;
+
+    @TempDir
+    private Path directory;
+
+    private WireMockServer server;
+
+    @BeforeEach
+    void beforeEach() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        WireMockCommand.bindClient(new WireMock(server.port()));
+        System.setProperty(StubCatalog.CACHE_DIRECTORY_PROPERTY, directory.resolve("cache").toString());
+    }
+
+    @AfterEach
+    void afterEach() {
+        System.clearProperty(StubCatalog.CACHE_DIRECTORY_PROPERTY);
+        WireMockCommand.bindClient(null);
+        server.stop();
+    }
+
+    @Test
+    void givenManyFiles_whenLoadedAgain_thenNotParsedAgain() throws IOException {
+        StubCatalog.load(writeCatalog("warmup", WARMUP_FILE_COUNT));
+        server.resetMappings();
+        String pattern = writeCatalog("catalog", FILE_COUNT);
+
+        long parsedFileCount = StubCatalog.getParsedFileCount();
+        long firstStart = System.nanoTime();
+        assertThat(StubCatalog.load(pattern)).hasSize(FILE_COUNT);
+        long firstNanos = System.nanoTime() - firstStart;
+        assertThat(StubCatalog.getParsedFileCount()).isEqualTo(parsedFileCount + FILE_COUNT);
+        server.resetMappings();
+
+        long cachedStart = System.nanoTime();
+        assertThat(StubCatalog.load(pattern)).hasSize(FILE_COUNT);
+        long cachedNanos = System.nanoTime() - cachedStart;
+        assertThat(StubCatalog.getParsedFileCount()).isEqualTo(parsedFileCount + FILE_COUNT);
+
+        log.info("Loading {} mapping files took {} ms first, {} ms cached", FILE_COUNT,
+                TimeUnit.NANOSECONDS.toMillis(firstNanos), TimeUnit.NANOSECONDS.toMillis(cachedNanos));
+
+        assertThat(server.getStubMappings()).hasSize(FILE_COUNT);
+    }
+
+    @Test
+    void givenTwoPatterns_whenLoadedInNextRun_thenBothFromCacheFiles() throws IOException {
+        String first = writeCatalog("first", 10);
+        String second = writeCatalog("second", 10);
+        StubCatalog.load(first);
+        StubCatalog.load(second);
+
+        // as if in the next run, which has only the cache files
+        StubCatalog.clear();
+        StubCatalog.load(first);
+        StubCatalog.load(second);
+
+        assertThat(StubCatalog.getParsedFileCount()).isZero();
+    }
+
+    /**
+     * Writes mapping files with unique content, so they haven't been parsed by other tests in this JVM.
+     *
+     * @return resource pattern matching the files
+     */
+    private String writeCatalog(String name, int fileCount) throws IOException {
+        String nonce = UUID.randomUUID().toString();
+        Path catalog = Files.createDirectories(directory.resolve(name));
+
+        for (int i = 0; i < fileCount; i++) {
+            Files.writeString(catalog.resolve("stub-" + i + ".json"), """
+                    {
+                        "request": {"httpMethod": "GET", "path": "/%s/%s/%d"},
+                        "response": {
+                            "httpStatus": 200,
+                            "headers": {"Content-Type": "application/json"},
+                            "body": {"index": %d, "tags": ["a", "b", "c"], "nested": {"name": "stub-%d"}}
+                        }
+                    }""".formatted(name, nonce, i, i, i));
+        }
+
+        return catalog.toUri() + "**/*.json";
+    }
+
+}
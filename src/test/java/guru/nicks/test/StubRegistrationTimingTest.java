@@ -0,0 +1,82 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares registering stubs one by one with {@link WireMockCommand#mock()} and at once with
+ * {@link WireMockCommand#mockAll(java.util.Collection)}. Wall-clock, so excluded from the regular build (see the
+ * 'benchmark' Maven profile).
+ */
+@Slf4j
+@Tag("benchmark")
+class StubRegistrationTimingTest {
+
+    private static final int STUB_COUNT = 500;
+
+    private WireMockServer server;
+
+    @BeforeEach
+    void beforeEach() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        WireMockCommand.bindClient(new WireMock(server.port()));
+    }
+
+    @AfterEach
+    void afterEach() {
+        WireMockCommand.bindClient(null);
+        server.stop();
+    }
+
+    @Test
+    void givenManyStubs_whenMockAll_thenFasterThanMockEach() {
+        // warmup, both paths
+        buildCommands("/warmup/each/").forEach(WireMockCommand::mock);
+        WireMockCommand.mockAll(buildCommands("/warmup/all/"), true);
+
+        List<WireMockCommand> eachCommands = buildCommands("/each/");
+        long eachStart = System.nanoTime();
+        eachCommands.forEach(WireMockCommand::mock);
+        long eachNanos = System.nanoTime() - eachStart;
+
+        List<WireMockCommand> allCommands = buildCommands("/all/");
+        long allStart = System.nanoTime();
+        WireMockCommand.mockAll(allCommands);
+        long allNanos = System.nanoTime() - allStart;
+
+        log.info("Registering {} stubs took {} ms one by one, {} ms at once", STUB_COUNT,
+                TimeUnit.NANOSECONDS.toMillis(eachNanos), TimeUnit.NANOSECONDS.toMillis(allNanos));
+
+        assertThat(server.getStubMappings()).hasSize(3 * STUB_COUNT);
+        assertThat(allNanos).isLessThan(eachNanos);
+    }
+
+    private static List<WireMockCommand> buildCommands(String pathPrefix) {
+        return IntStream.range(0, STUB_COUNT)
+                .mapToObj(i -> WireMockCommand.builder()
+                        .request()
+                        .httpMethod(HttpMethod.GET).path(pathPrefix + i)
+                        //
+                        .and().response()
+                        .httpStatus(HttpStatus.OK).body("{\"index\":" + i + "}")
+                        //
+                        .and().build())
+                .toList();
+    }
+
+}
@@ -0,0 +1,114 @@
+package guru.nicks.test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.core.env.StandardEnvironment;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link TemplateDatabaseDataSource}
+ */
+@EnabledIf("guru.nicks.test.Docker#isAvailable")
+class TemplateDatabaseDataSourceTest {
+
+    private static JdbcDatabaseContainer<?> container;
+
+    private TemplateDatabaseDataSource dataSource;
+
+    @BeforeAll
+    static void beforeClass() {
+        var runner = new PostgreSqlContainerRunner();
+        runner.applyEnvironment(new StandardEnvironment());
+        container = runner.acquireContainer(TemplateDatabaseDataSourceTest.class.getName());
+    }
+
+    @BeforeEach
+    void beforeEach() throws SQLException {
+        try (Connection connection = container.createConnection("");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS template_test (name TEXT)");
+            statement.execute("TRUNCATE template_test");
+            statement.execute("INSERT INTO template_test VALUES ('migrated')");
+        }
+
+        var config = new HikariConfig();
+        config.setJdbcUrl(container.getJdbcUrl());
+        config.setUsername(container.getUsername());
+        config.setPassword(container.getPassword());
+        config.setMaximumPoolSize(3);
+        config.setPoolName("template-test");
+
+        dataSource = new TemplateDatabaseDataSource(new HikariDataSource(config), container,
+                container.getDatabaseName(), TestIsolation.Scope.METHOD);
+    }
+
+    @AfterEach
+    void afterEach() {
+        dataSource.close();
+    }
+
+    @Test
+    void givenChangesInClone_whenIsolate_thenNextCloneHasTemplateData() throws SQLException {
+        dataSource.isolate();
+        execute("INSERT INTO template_test VALUES ('changed')");
+        assertThat(count()).isEqualTo(2);
+
+        dataSource.isolate();
+
+        assertThat(count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenSourceDatabaseSession_whenIsolate_thenSessionNotTerminated() throws SQLException {
+        dataSource.isolate();
+
+        // such as a pool of another context
+        try (Connection otherConnection = container.createConnection("")) {
+            dataSource.isolate();
+
+            assertThat(otherConnection.isValid(1)).isTrue();
+            try (Statement statement = otherConnection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+        }
+    }
+
+    @Test
+    void givenHikariPool_whenIsolate_thenPoolSettingsKept() throws SQLException {
+        dataSource.isolate();
+
+        var clonePool = dataSource.unwrap(HikariDataSource.class);
+        assertThat(clonePool.getMaximumPoolSize()).isEqualTo(3);
+        assertThat(clonePool.getPoolName()).startsWith("template-test-");
+        assertThat(clonePool.getJdbcUrl()).doesNotContain("/" + container.getDatabaseName() + "?");
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM template_test")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+}
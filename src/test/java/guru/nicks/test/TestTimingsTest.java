@@ -0,0 +1,90 @@
+package guru.nicks.test;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.context.TestContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link TestTimings}
+ */
+class TestTimingsTest {
+
+    @BeforeEach
+    void beforeEach() {
+        TestTimings.clear();
+    }
+
+    @AfterEach
+    void afterEach() {
+        TestTimings.clear();
+    }
+
+    @Test
+    void givenNoMeasurements_whenGetReport_thenEmpty() {
+        assertThat(TestTimings.getReport())
+                .isEmpty();
+    }
+
+    @Test
+    void givenMeasurements_whenGetReport_thenMeasuredPhasesOnly() {
+        TestTimings.start(TestTimings.Phase.FIXTURE_LOAD, "users.csv").stop();
+        TestTimings.start(TestTimings.Phase.FIXTURE_LOAD, "orders.csv").stop();
+
+        assertThat(TestTimings.getReport())
+                .contains("FIXTURE_LOAD", "count:     2", "users.csv", "orders.csv")
+                .doesNotContain("CONTAINER_START", "Container time by context", "Spring contexts");
+    }
+
+    @Test
+    void givenManyMeasurements_whenGetReport_thenSlowestOnly() {
+        for (int i = 0; i < TestTimings.SLOWEST_COUNT + 3; i++) {
+            TestTimings.start(TestTimings.Phase.STUB_REGISTRATION, "stub-" + i).stop();
+        }
+
+        long slowestLines = TestTimings.getReport()
+                .lines()
+                .filter(line -> line.contains("stub-"))
+                .count();
+        assertThat(slowestLines)
+                .isEqualTo(TestTimings.SLOWEST_COUNT);
+    }
+
+    @Test
+    void givenContextLoadedByTestClass_whenGetReport_thenContainerTimeNamedAfterTestClass() {
+        try (var applicationContext = new GenericApplicationContext()) {
+            TestContext testContext = mock(TestContext.class);
+            when(testContext.hasApplicationContext()).thenReturn(false);
+            when(testContext.getApplicationContext()).thenReturn(applicationContext);
+            when(testContext.getTestClass()).thenAnswer(invocation -> TestTimingsTest.class);
+
+            new TestTimings.ExecutionListener().beforeTestClass(testContext);
+            TestTimings.start(TestTimings.Phase.CONTAINER_ACQUIRE, "postgres",
+                    TestTimings.contextKey(applicationContext)).stop();
+
+            assertThat(TestTimings.getReport())
+                    .contains("Container time by context", TestTimingsTest.class.getName(),
+                            "Spring contexts: 1 created, 0 reused");
+        }
+    }
+
+    @Test
+    void givenCachedContext_whenBeforeTestClass_thenContextNotLoaded() {
+        TestContext testContext = mock(TestContext.class);
+        when(testContext.hasApplicationContext()).thenReturn(true);
+
+        new TestTimings.ExecutionListener().beforeTestClass(testContext);
+
+        verify(testContext, never()).getApplicationContext();
+        assertThat(TestTimings.getReport())
+                .contains("Spring contexts: 0 created, 1 reused");
+    }
+
+}
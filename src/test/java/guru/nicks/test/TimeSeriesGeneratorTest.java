@@ -0,0 +1,206 @@
+package guru.nicks.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.core.env.StandardEnvironment;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests {@link TimeSeriesGenerator}
+ */
+@Slf4j
+class TimeSeriesGeneratorTest {
+
+    private static final Instant FROM = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void givenSettings_whenRead_thenRowsTimeMajor() throws IOException {
+        List<String> lines = render(generator(2, Duration.ofMinutes(3), 42).build());
+
+        assertThat(lines)
+                .hasSize(6)
+                .extracting(line -> line.substring(0, line.indexOf(',', line.indexOf(',') + 1)))
+                .containsExactly(
+                        "2025-01-01T00:00:00Z,1", "2025-01-01T00:00:00Z,2",
+                        "2025-01-01T00:01:00Z,1", "2025-01-01T00:01:00Z,2",
+                        "2025-01-01T00:02:00Z,1", "2025-01-01T00:02:00Z,2");
+        assertThat(lines)
+                .allMatch(line -> line.split(",")[2].equals("5.0"));
+    }
+
+    @Test
+    void givenRandomWalk_whenRead_thenStepsBoundedPerSeries() throws IOException {
+        List<String> lines = render(generator(2, Duration.ofHours(1), 42).build());
+
+        for (int i = 2; i < lines.size(); i++) {
+            double previous = Double.parseDouble(lines.get(i - 2).split(",")[3]);
+            double current = Double.parseDouble(lines.get(i).split(",")[3]);
+            assertThat(Math.abs(current - previous)).isLessThanOrEqualTo(1.0 + 1e-9);
+        }
+    }
+
+    @Test
+    void givenSameSeed_whenRead_thenSameRows() throws IOException {
+        assertThat(render(generator(3, Duration.ofHours(1), 7).build()))
+                .isEqualTo(render(generator(3, Duration.ofHours(1), 7).build()))
+                .isNotEqualTo(render(generator(3, Duration.ofHours(1), 8).build()));
+    }
+
+    @Test
+    @EnabledIf("guru.nicks.test.Docker#isAvailable")
+    void givenPolicies_whenGeneratedTwice_thenChunksCutOffRelativeToEnd() throws SQLException {
+        var runner = new PostgreSqlContainerRunner();
+        runner.applyEnvironment(new StandardEnvironment());
+        JdbcDatabaseContainer<?> container = runner.acquireContainer(TimeSeriesGeneratorTest.class.getName());
+
+        try {
+            TimeSeriesGenerator generator = generator(2, Duration.ofDays(10), 42)
+                    .table("policy_metrics")
+                    .interval(Duration.ofHours(1))
+                    .chunkInterval(Duration.ofDays(1))
+                    .compressAfter(Duration.ofDays(3))
+                    .retainFor(Duration.ofDays(7))
+                    .build();
+
+            // second run must not fail on compression settings of a table having compressed chunks
+            assertThat(generator.generate(dataSource(container))).isEqualTo(480);
+            assertThat(generator.generate(dataSource(container))).isEqualTo(480);
+
+            // days 4 to 10 retained, days 4 to 7 compressed - regardless of the current date
+            assertThat(count(container, "SELECT count(*) FROM timescaledb_information.chunks "
+                    + "WHERE hypertable_name = 'policy_metrics'")).isEqualTo(7);
+            assertThat(count(container, "SELECT count(*) FROM timescaledb_information.chunks "
+                    + "WHERE hypertable_name = 'policy_metrics' AND is_compressed")).isEqualTo(4);
+            assertThat(count(container, "SELECT count(*) FROM timescaledb_information.jobs "
+                    + "WHERE hypertable_name = 'policy_metrics' AND scheduled")).isZero();
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    @Test
+    @EnabledIf("guru.nicks.test.Docker#isAvailable")
+    void givenManyRows_whenGenerated_thenFasterThanBatchInserts() throws IOException, SQLException {
+        var runner = new PostgreSqlContainerRunner();
+        runner.applyEnvironment(new StandardEnvironment());
+        JdbcDatabaseContainer<?> container = runner.acquireContainer(TimeSeriesGeneratorTest.class.getName());
+
+        try (Connection connection = container.createConnection("")) {
+            TimeSeriesGenerator copyGenerator = generator(50, Duration.ofDays(1), 42)
+                    .table("copy_metrics")
+                    .chunkInterval(Duration.ofHours(6))
+                    .build();
+            TimeSeriesGenerator insertGenerator = generator(50, Duration.ofDays(1), 42)
+                    .table("insert_metrics")
+                    .build();
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE insert_metrics (time TIMESTAMPTZ NOT NULL, series_id INTEGER NOT NULL, "
+                        + "temperature DOUBLE PRECISION, load DOUBLE PRECISION)");
+                statement.execute("SELECT create_hypertable('insert_metrics', by_range('time', INTERVAL '6 hours'))");
+            }
+
+            long copyStart = System.nanoTime();
+            long rows = copyGenerator.generate(dataSource(container));
+            long copyNanos = System.nanoTime() - copyStart;
+
+            long insertStart = System.nanoTime();
+            try (BufferedReader reader = new BufferedReader(insertGenerator.new RowRenderingReader());
+                    PreparedStatement statement = connection.prepareStatement(
+                            "INSERT INTO insert_metrics VALUES (?, ?, ?, ?)")) {
+                int batchSize = 0;
+
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    String[] values = line.split(",");
+                    statement.setTimestamp(1, Timestamp.from(Instant.parse(values[0])));
+                    statement.setInt(2, Integer.parseInt(values[1]));
+                    statement.setDouble(3, Double.parseDouble(values[2]));
+                    statement.setDouble(4, Double.parseDouble(values[3]));
+                    statement.addBatch();
+
+                    if (++batchSize == 1000) {
+                        statement.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+
+                statement.executeBatch();
+            }
+            long insertNanos = System.nanoTime() - insertStart;
+
+            log.info("{} rows took {} ms via COPY, {} ms via batch inserts", rows,
+                    TimeUnit.NANOSECONDS.toMillis(copyNanos), TimeUnit.NANOSECONDS.toMillis(insertNanos));
+
+            assertThat(count(container, "SELECT count(*) FROM insert_metrics")).isEqualTo(rows);
+            assertThat(copyNanos).isLessThan(insertNanos);
+        } finally {
+            ContainerRegistry.release(runner.getContainerKey());
+        }
+    }
+
+    private static TimeSeriesGenerator.TimeSeriesGeneratorBuilder generator(int seriesCount, Duration range,
+            long seed) {
+        return TimeSeriesGenerator.builder()
+                .table("metrics")
+                .seriesCount(seriesCount)
+                .from(FROM)
+                .to(FROM.plus(range))
+                .interval(Duration.ofMinutes(1))
+                .valueColumn("temperature", TimeSeriesGenerator.Distribution.constant(5))
+                .valueColumn("load", TimeSeriesGenerator.Distribution.randomWalk(10, 1))
+                .seed(seed);
+    }
+
+    /**
+     * Reads with a small buffer, so that rows span several reads.
+     */
+    private static List<String> render(TimeSeriesGenerator generator) throws IOException {
+        var csv = new StringBuilder();
+        char[] buffer = new char[7];
+
+        try (Reader reader = generator.new RowRenderingReader()) {
+            for (int count = reader.read(buffer, 0, buffer.length); count != -1;
+                    count = reader.read(buffer, 0, buffer.length)) {
+                csv.append(buffer, 0, count);
+            }
+        }
+
+        return csv.toString().lines().toList();
+    }
+
+    private static PGSimpleDataSource dataSource(JdbcDatabaseContainer<?> container) {
+        var dataSource = new PGSimpleDataSource();
+        dataSource.setURL(container.getJdbcUrl());
+        dataSource.setUser(container.getUsername());
+        dataSource.setPassword(container.getPassword());
+        return dataSource;
+    }
+
+    private static long count(JdbcDatabaseContainer<?> container, String sql) throws SQLException {
+        try (Connection connection = container.createConnection("");
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+}
@@ -1,5 +1,8 @@
 package guru.nicks.user;
 
+import guru.nicks.test.DelayProfile;
+import guru.nicks.test.FixtureCache;
+import guru.nicks.test.StubCatalog;
 import guru.nicks.test.WireMockCommand;
 import guru.nicks.test.WireMockConfig;
 
@@ -24,12 +27,17 @@ import org.springframework.web.client.RestTemplate;
 import org.testcontainers.shaded.com.fasterxml.jackson.core.JsonProcessingException;
 import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 
 /**
  * Tests {@link WireMockCommand} and {@link WireMockConfig}
@@ -164,6 +172,42 @@ class WireMockCommandTest {
                 .hasMessageContaining("Unauthorized");
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"/non/existing/url/22"})
+    void givenNonStandardHttpStatusCode_whenCalled_thenReturned(String path) {
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .httpStatusCode(299)
+                .body("ok")
+                //
+                .and().mock();
+
+        ResponseEntity<String> response = restTemplate.getForEntity(endpoint + path, String.class);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(299);
+        assertThat(response.getBody()).isEqualTo("ok");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 99, 1000})
+    void givenInvalidHttpStatusCode_whenMock_thenException(int httpStatusCode) {
+        var builder = WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path("/non/existing/url/23")
+                //
+                .and().response()
+                .httpStatusCode(httpStatusCode)
+                //
+                .and();
+
+        assertThatThrownBy(builder::mock)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("HTTP status code must be 3-digit");
+    }
+
     @ParameterizedTest
     @ValueSource(strings = "/non/existing/url/7")
     void givenRepeatedBuilder_whenBuild_thenOk(String path) {
@@ -219,4 +263,272 @@ class WireMockCommandTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PERMANENT_REDIRECT);
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/9/")
+    void givenManyCommands_whenMockAll_thenAllStubbed(String pathPrefix) {
+        List<WireMockCommand> commands = IntStream.range(0, 100)
+                .mapToObj(i -> WireMockCommand.builder()
+                        .request()
+                        .httpMethod(HttpMethod.GET).path(pathPrefix + i)
+                        //
+                        .and().response()
+                        .httpStatus(HttpStatus.OK).body("{\"index\":" + i + "}")
+                        //
+                        .and().build())
+                .toList();
+
+        WireMockCommand.mockAll(commands);
+
+        for (int i : List.of(0, 42, 99)) {
+            ResponseEntity<Map> response = restTemplate.getForEntity(endpoint + pathPrefix + i, Map.class);
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).containsEntry("index", i);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/16")
+    void givenCommandsForSameRequest_whenMockAll_thenLaterWins(String path) {
+        List<WireMockCommand> commands = Stream.of("first", "second")
+                .map(name -> WireMockCommand.builder()
+                        .request()
+                        .httpMethod(HttpMethod.GET).path(path)
+                        //
+                        .and().response()
+                        .httpStatus(HttpStatus.OK).body("{\"name\":\"" + name + "\"}")
+                        //
+                        .and().build())
+                .toList();
+
+        WireMockCommand.mockAll(commands);
+
+        ResponseEntity<Map> response = restTemplate.getForEntity(endpoint + path, Map.class);
+        assertThat(response.getBody()).containsEntry("name", "second");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/10")
+    void givenBinaryFixture_whenLoadedTwice_thenCachedAndServed(String path) {
+        long hits = FixtureCache.getHits();
+
+        for (int i = 0; i < 2; i++) {
+            WireMockCommand.builder()
+                    .request()
+                    .httpMethod(HttpMethod.GET).path(path)
+                    //
+                    .and().response()
+                    .binaryBodyFromClasspath("wiremock/self-test/response1.json")
+                    //
+                    .and().mock();
+        }
+
+        ResponseEntity<Map> response = restTemplate.getForEntity(endpoint + path, Map.class);
+
+        assertThat(FixtureCache.getHits()).isGreaterThan(hits);
+        assertThat(response.getBody()).containsEntry("testKey", "test value");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/11")
+    void givenSeededDelay_whenCalled_thenDelayed(String path) {
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .delay(DelayProfile.uniform(Duration.ofMillis(100), Duration.ofMillis(150)).withSeed(42))
+                //
+                .and().mock();
+
+        long start = System.nanoTime();
+        ResponseEntity<Void> response = restTemplate.getForEntity(endpoint + path, Void.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/18")
+    void givenHistogramDelay_whenCalled_thenDelayed(String path) {
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .delay(DelayProfile.histogram(new TreeMap<>(Map.of(
+                        0.0, Duration.ofMillis(100),
+                        100.0, Duration.ofMillis(150)))))
+                //
+                .and().mock();
+
+        long start = System.nanoTime();
+        ResponseEntity<Void> response = restTemplate.getForEntity(endpoint + path, Void.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/19")
+    void givenBandwidth_whenCalled_thenBodyDribbled(String path) {
+        String body = "x".repeat(2_000);
+
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .body(body)
+                .bandwidth(10_000L)
+                //
+                .and().mock();
+
+        long start = System.nanoTime();
+        ResponseEntity<String> response = restTemplate.getForEntity(endpoint + path, String.class);
+
+        // 2000 bytes at 10000 bytes/s take 200 ms, the first chunk is sent right away
+        assertThat(response.getBody()).isEqualTo(body);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, -1})
+    void givenNonPositiveBandwidth_whenMock_thenException(long bandwidth) {
+        var builder = WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path("/non/existing/url/20")
+                //
+                .and().response()
+                .bandwidth(bandwidth)
+                //
+                .and();
+
+        assertThatThrownBy(builder::mock)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("bandwidth must be positive");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/21")
+    void givenInvalidCommand_whenMockAll_thenNothingSentNorRegistered(String path) {
+        WireMockCommand valid = WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .httpStatus(HttpStatus.OK)
+                //
+                .and().build();
+        WireMockCommand invalid = WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path + "/invalid")
+                //
+                .and().response()
+                .body("body")
+                .bodyFile("body.json")
+                //
+                .and().build();
+
+        assertThatThrownBy(() -> WireMockCommand.mockAll(List.of(valid, invalid)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(valid::getStatistics)
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> restTemplate.getForEntity(endpoint + path, Void.class))
+                .isInstanceOf(HttpClientErrorException.class)
+                .hasMessageContaining("404 Not Found");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/12")
+    void givenStub_whenCalledTwice_thenHitCountIs2(String path) {
+        var command = WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .httpStatus(HttpStatus.OK)
+                //
+                .and().mock();
+
+        assertThat(command.getStatistics().getHitCount()).isZero();
+
+        restTemplate.getForEntity(endpoint + path, Void.class);
+        restTemplate.getForEntity(endpoint + path, Void.class);
+
+        // the listener is called after the response is sent
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(command.getStatistics().getHitCount()).isEqualTo(2));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/14")
+    void givenStubCatalog_whenLoadedTwice_thenStubsServed(String path) {
+        StubCatalog.load("classpath*:wiremock/catalog/**/*.json");
+        long parsedFileCount = StubCatalog.getParsedFileCount();
+        List<WireMockCommand> commands = StubCatalog.load("classpath*:wiremock/catalog/**/*.json");
+        assertThat(commands).hasSize(2);
+        // the second load comes from the cache
+        assertThat(StubCatalog.getParsedFileCount()).isEqualTo(parsedFileCount);
+
+        ResponseEntity<Map> response = restTemplate.getForEntity(endpoint + path, Map.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsEntry("name", "catalog");
+
+        ResponseEntity<Void> deleteResponse = restTemplate.exchange(endpoint + path, HttpMethod.DELETE,
+                HttpEntity.EMPTY, Void.class);
+        assertThat(deleteResponse.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/15")
+    void givenTemplatedBody_whenCalled_thenRequestDataRendered(String path) {
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.POST).path(path)
+                //
+                .and().response()
+                .httpStatus(HttpStatus.OK)
+                .templatedBody("""
+                        {"segment": "${path[3]}", "q": "${query.q}", "requestId": "${header.X-Request-Id}", \
+                        "name": "${body.user.name}", "missing": "${query.missing}"}""")
+                //
+                .and().mock();
+
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Request-Id", "request-1");
+
+        ResponseEntity<Map> response = restTemplate.postForEntity(endpoint + path + "?q=query-1",
+                new HttpEntity<>(Map.of("user", Map.of("name", "name-1")), headers), Map.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .containsEntry("segment", "15")
+                .containsEntry("q", "query-1")
+                .containsEntry("requestId", "request-1")
+                .containsEntry("name", "name-1")
+                .containsEntry("missing", "");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/non/existing/url/17")
+    void givenTemplatedJsonBody_whenValueHasQuotes_thenValidJson(String path) {
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.POST).path(path)
+                //
+                .and().response()
+                .httpStatus(HttpStatus.OK)
+                .templatedJsonBody("{\"name\": \"${body.name}\"}")
+                //
+                .and().mock();
+
+        String name = "say \"hi\" \\ bye\n";
+        ResponseEntity<Map> response = restTemplate.postForEntity(endpoint + path, Map.of("name", name), Map.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsEntry("name", name);
+    }
+
 }
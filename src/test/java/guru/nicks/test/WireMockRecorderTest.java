@@ -0,0 +1,144 @@
+package guru.nicks.test;
+
+import guru.nicks.test.WireMockRecorder.RecordedStub;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Tests {@link WireMockRecorder}
+ */
+class WireMockRecorderTest {
+
+    /**
+     * Compact, because WireMock records JSON bodies as parsed JSON.
+     */
+    private static final String USER_JSON = "{\"id\":1,\"name\":\"nick\"}";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    /**
+     * Plays the real service.
+     */
+    private WireMockServer target;
+
+    private WireMockServer server;
+
+    /**
+     * Recording directory relative to the classpath.
+     */
+    private String recording;
+    private Path recordingDirectory;
+
+    @BeforeEach
+    void beforeEach() throws URISyntaxException {
+        target = new WireMockServer(options().dynamicPort());
+        target.start();
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        WireMockCommand.bindClient(new WireMock(server.port()));
+
+        // test classes are on the classpath, so replay() finds the recording there
+        recording = "recordings/" + UUID.randomUUID();
+        recordingDirectory = Path.of(WireMockRecorderTest.class.getResource("/").toURI()).resolve(recording);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        WireMockCommand.bindClient(null);
+        server.stop();
+        target.stop();
+        FileSystemUtils.deleteRecursively(recordingDirectory);
+    }
+
+    @Test
+    void givenProxiedRequests_whenRecordedAndReplayed_thenSameResponses() throws IOException, InterruptedException {
+        target.stubFor(get(urlPathEqualTo("/users/1")).willReturn(aResponse()
+                .withHeader("Content-Type", "application/json")
+                .withBody(USER_JSON)));
+        // non-standard status
+        target.stubFor(get(urlPathEqualTo("/users")).willReturn(aResponse()
+                .withStatus(299)
+                .withHeader("Content-Type", "application/json")
+                .withBody("[" + USER_JSON + "]")));
+        target.stubFor(delete(urlPathEqualTo("/users/1")).willReturn(aResponse().withStatus(204)));
+
+        WireMockRecorder.start(target.baseUrl());
+        sendRequests();
+        List<RecordedStub> stubs = WireMockRecorder.stop(recordingDirectory);
+
+        assertThat(stubs)
+                .extracting(RecordedStub::httpMethod, RecordedStub::path, RecordedStub::httpStatus,
+                        RecordedStub::bodySize)
+                .containsExactlyInAnyOrder(
+                        tuple("GET", "/users/1", 200, (long) USER_JSON.length()),
+                        tuple("GET", "/users", 299, (long) USER_JSON.length() + 2),
+                        tuple("DELETE", "/users/1", 204, 0L));
+        assertThat(recordingDirectory.resolve(WireMockRecorder.INDEX_FILE)).isRegularFile();
+        try (var bodies = Files.list(recordingDirectory.resolve(WireMockRecorder.BODIES_DIRECTORY))) {
+            assertThat(bodies).hasSize(2);
+        }
+
+        // the service no longer answers, responses come from the recording
+        target.resetAll();
+        server.resetAll();
+        assertThat(WireMockRecorder.replay(recording)).hasSize(3);
+
+        List<HttpResponse<String>> responses = sendRequests();
+        assertThat(responses)
+                .extracting(HttpResponse::statusCode, HttpResponse::body)
+                .containsExactly(
+                        tuple(200, USER_JSON),
+                        tuple(299, "[" + USER_JSON + "]"),
+                        tuple(204, ""));
+        assertThat(responses.getFirst().headers().firstValue("Content-Type")).hasValue("application/json");
+    }
+
+    @Test
+    void givenIndexLine_whenParsed_thenSameStub() {
+        var stub = new RecordedStub("GET", "/users/1", 200, "application/json", "bodies/1.gz", 25);
+
+        assertThat(RecordedStub.fromIndexLine(stub.toIndexLine() + "\r"))
+                .isEqualTo(stub);
+        assertThatThrownBy(() -> RecordedStub.fromIndexLine("GET\t/users/1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Malformed");
+    }
+
+    private List<HttpResponse<String>> sendRequests() throws IOException, InterruptedException {
+        return List.of(
+                send(HttpRequest.newBuilder(URI.create(server.baseUrl() + "/users/1")).build()),
+                // query strings are not recorded
+                send(HttpRequest.newBuilder(URI.create(server.baseUrl() + "/users?page=1")).build()),
+                send(HttpRequest.newBuilder(URI.create(server.baseUrl() + "/users/1")).DELETE().build()));
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+}
@@ -0,0 +1,124 @@
+package guru.nicks.user;
+
+import guru.nicks.test.WireMockCommand;
+import guru.nicks.test.WireMockConfig;
+import guru.nicks.test.WireMockScope;
+
+import com.github.tomakehurst.wiremock.core.Options;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests {@link WireMockScope}: stubs scoped to test methods
+ */
+@SpringBootTest(classes = WireMockConfig.class)
+@AutoConfigureWireMock(port = Options.DYNAMIC_PORT)
+@ExtendWith(WireMockScope.class)
+class WireMockScopeTest {
+
+    private static RestTemplate restTemplate;
+    private static RestTemplate unscopedRestTemplate;
+
+    @Value("${" + WireMockConfig.WIREMOCK_SELF_TEST_PROPERTY + "}")
+    private String endpoint;
+
+    @BeforeAll
+    static void beforeClass() {
+        restTemplate = new RestTemplateBuilder()
+                .additionalInterceptors(WireMockScope.interceptor())
+                .build();
+        unscopedRestTemplate = new RestTemplateBuilder().build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/scoped/url/1")
+    void givenScopedStub_whenCalledWithinScope_thenServed(String path) {
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .httpStatus(HttpStatus.ACCEPTED)
+                //
+                .and().mock();
+
+        ResponseEntity<Void> response = restTemplate.getForEntity(endpoint + path, Void.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/scoped/url/2")
+    void givenScopedStub_whenCalledWithoutScopeHeader_then404(String path) {
+        WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(path)
+                //
+                .and().response()
+                .httpStatus(HttpStatus.OK)
+                //
+                .and().mock();
+
+        assertThatThrownBy(() -> unscopedRestTemplate.getForEntity(endpoint + path, Void.class))
+                .isInstanceOf(HttpClientErrorException.class)
+                .hasMessageContaining("404 Not Found");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = "/scoped/url/3")
+    void givenStubOfAnotherScope_whenCalled_then404(String path) throws InterruptedException {
+        var stubbed = new CountDownLatch(1);
+        var checked = new CountDownLatch(1);
+
+        // another test running in parallel, its stub lives until its scope ends
+        Thread otherTest = Thread.ofPlatform().start(() -> {
+            var otherScope = new WireMockScope();
+            otherScope.beforeEach(null);
+
+            try {
+                WireMockCommand.builder()
+                        .request()
+                        .httpMethod(HttpMethod.GET).path(path)
+                        //
+                        .and().response()
+                        .httpStatus(HttpStatus.OK)
+                        //
+                        .and().mock();
+                stubbed.countDown();
+                checked.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                otherScope.afterEach(null);
+            }
+        });
+
+        try {
+            assertThat(stubbed.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThatThrownBy(() -> restTemplate.getForEntity(endpoint + path, Void.class))
+                    .isInstanceOf(HttpClientErrorException.class)
+                    .hasMessageContaining("404 Not Found");
+        } finally {
+            checked.countDown();
+            otherTest.join();
+        }
+    }
+
+}
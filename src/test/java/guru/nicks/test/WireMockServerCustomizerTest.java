@@ -0,0 +1,93 @@
+package guru.nicks.test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.verification.RequestJournalDisabledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Tests {@link WireMockServerCustomizer}
+ */
+class WireMockServerCustomizerTest {
+
+    private static final String PATH = "/load-mode";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private WireMockServer server;
+
+    @AfterEach
+    void afterEach() {
+        WireMockCommand.bindClient(null);
+        server.stop();
+    }
+
+    @Test
+    void givenLoadMode_whenVerify_thenJournalDisabledButStatisticsCollected() throws Exception {
+        start(new MockEnvironment()
+                .withProperty(WireMockServerCustomizer.LOAD_MODE_PROPERTY, "true"));
+        WireMockCommand command = mockAndCall();
+
+        assertThatThrownBy(() -> server.verify(getRequestedFor(urlPathEqualTo(PATH))))
+                .isInstanceOf(RequestJournalDisabledException.class);
+        // the listener is called after the response is sent
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(command.getStatistics().getHitCount()).isEqualTo(1));
+    }
+
+    @Test
+    void givenLoadModeWithJournalSize_whenVerify_thenRequestsCounted() throws Exception {
+        start(new MockEnvironment()
+                .withProperty(WireMockServerCustomizer.LOAD_MODE_PROPERTY, "true")
+                .withProperty(WireMockServerCustomizer.LOAD_MODE_JOURNAL_SIZE_PROPERTY, "10"));
+        mockAndCall();
+
+        server.verify(1, getRequestedFor(urlPathEqualTo(PATH)));
+    }
+
+    private void start(MockEnvironment environment) {
+        WireMockConfiguration config = options().dynamicPort();
+        new WireMockServerCustomizer(environment).customize(config);
+
+        server = new WireMockServer(config);
+        server.start();
+        WireMockCommand.bindClient(new WireMock(server.port()));
+    }
+
+    private WireMockCommand mockAndCall() throws IOException, InterruptedException {
+        WireMockCommand command = WireMockCommand.builder()
+                .request()
+                .httpMethod(HttpMethod.GET).path(PATH)
+                //
+                .and().response()
+                .body("{\"status\": \"ok\"}")
+                //
+                .and().mock();
+
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(server.baseUrl() + PATH)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+
+        return command;
+    }
+
+}